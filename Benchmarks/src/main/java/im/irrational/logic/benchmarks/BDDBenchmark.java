@@ -0,0 +1,80 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.BDD;
+import im.irrational.logic.propositional.BDDManager;
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.operators.MSSSession;
+import im.irrational.logic.propositional.operators.MSSSolver;
+import im.irrational.logic.propositional.operators.Timeout;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * entailment queries of random clauses against a fixed random 3-CNF knowledge base: one SAT call per query in a
+ * {@link MSSSession} of the knowledge base, against {@link BDD#entails(Clause)} on the knowledge base compiled once
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BDDBenchmark {
+    @Param({"30"})
+    int variables;
+
+    @Param({"100"})
+    int queries;
+
+    private List<Clause> clauses;
+    private List<Clause> negations;
+    private MSSSession session;
+    private BDD kb;
+
+    @Setup
+    public void setUp() throws FormulaError {
+        RandomFormulas formulas = new RandomFormulas(42, variables);
+        Clause cnf = formulas.cnf(3 * variables / 2, 3);
+        clauses = new ArrayList<>();
+        negations = new ArrayList<>();
+        for (int i = 0; i < queries; i++) {
+            Clause clause = formulas.disjunction(3);
+            clauses.add(clause);
+            negations.add(clause.negation());
+        }
+        session = new MSSSolver().openSession(cnf, 60);
+        kb = new BDDManager().compile(cnf);
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public int sat() throws FormulaError, Timeout {
+        int entailed = 0;
+        for (Clause negation : negations) {
+            // the knowledge base entails the clause if it is inconsistent with its negation
+            if (session.call(null, negation) == null) {
+                entailed++;
+            }
+        }
+        return entailed;
+    }
+
+    @Benchmark
+    public int bdd() throws FormulaError {
+        int entailed = 0;
+        for (Clause clause : clauses) {
+            if (kb.entails(clause)) {
+                entailed++;
+            }
+        }
+        return entailed;
+    }
+}
@@ -0,0 +1,37 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Clause#convertToCNF(Clause)} on formulas which alternate disjunctions and conjunctions, the distributed CNF
+ * grows exponentially with the depth
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CNFBenchmark {
+    @Param({"2", "3", "4", "5"})
+    int depth;
+
+    @Param({"2"})
+    int width;
+
+    private Clause formula;
+
+    @Setup
+    public void setUp() throws FormulaError {
+        formula = new RandomFormulas(42, 4 * depth * width).nested(depth, width);
+    }
+
+    @Benchmark
+    public Clause convertToCNF() throws FormulaError {
+        return Clause.convertToCNF(formula);
+    }
+}
@@ -0,0 +1,67 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the basic operations of {@link Clause} on a disjunction of size literals
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClauseBenchmark {
+    @Param({"4", "16", "64"})
+    int size;
+
+    private Literal[] literals;
+    private Clause clause;
+    private Clause copy;
+
+    @Setup
+    public void setUp() throws FormulaError {
+        // distinct literals, so that the clause has size elements
+        literals = new Literal[size];
+        for (int i = 0; i < size; i++) {
+            literals[i] = new Literal("V" + i, i % 2 == 0);
+        }
+        clause = new Clause(eClauseType.DISJUNCTIVE, literals);
+        copy = new Clause(eClauseType.DISJUNCTIVE, literals);
+    }
+
+    @Benchmark
+    public Clause add() throws FormulaError {
+        Clause result = new Clause(eClauseType.DISJUNCTIVE);
+        for (Literal literal : literals) {
+            result.add(literal);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Clause cloneClause() {
+        return clause.clone();
+    }
+
+    @Benchmark
+    public boolean equalsClause() {
+        return clause.equals(copy);
+    }
+
+    @Benchmark
+    public int hashCodeClause() {
+        return clause.hashCode();
+    }
+
+    @Benchmark
+    public String toStringClause() {
+        return clause.toString();
+    }
+}
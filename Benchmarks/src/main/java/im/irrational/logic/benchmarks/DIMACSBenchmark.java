@@ -0,0 +1,49 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.LanguageFormatException;
+import im.irrational.logic.propositional.operators.DIMACSInstance;
+import im.irrational.logic.propositional.operators.DIMACSLanguage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DIMACSLanguage#read(Path)} of a random 3-CNF file
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DIMACSBenchmark {
+    @Param({"100000"})
+    int clauses;
+
+    private final DIMACSLanguage language = new DIMACSLanguage();
+    private Path path;
+
+    @Setup
+    public void setUp() throws IOException {
+        RandomFormulas formulas = new RandomFormulas(42, clauses / 4);
+        DIMACSInstance instance = new DIMACSInstance(false);
+        for (int i = 0; i < clauses; i++) {
+            instance.addHardClause(formulas.clause(3));
+        }
+        path = Files.createTempFile("benchmark", ".cnf");
+        language.write(instance, path);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public DIMACSInstance read() throws IOException, LanguageFormatException {
+        return language.read(path);
+    }
+}
@@ -0,0 +1,46 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.operators.MSSSolver;
+import org.openjdk.jmh.annotations.*;
+import org.sat4j.core.Vec;
+import org.sat4j.core.VecInt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MSSSolver#encode(Clause)} and {@link MSSSolver#decode(Vec)} of a random 3-CNF formula
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark {
+    @Param({"100", "1000"})
+    int clauses;
+
+    private MSSSolver solver;
+    private Clause formula;
+    private Vec<VecInt> encoded;
+
+    @Setup
+    public void setUp() throws FormulaError {
+        formula = new RandomFormulas(42, clauses / 4).cnf(clauses, 3);
+        solver = new MSSSolver();
+        // the words are in the dictionary, so that both directions measure lookups
+        encoded = solver.encode(formula);
+    }
+
+    @Benchmark
+    public Vec<VecInt> encode() throws FormulaError {
+        return solver.encode(formula);
+    }
+
+    @Benchmark
+    public Clause decode() throws FormulaError {
+        return solver.decode(encoded);
+    }
+}
@@ -0,0 +1,100 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.CompiledFormula;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.ILogicFormula;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a random 3-CNF formula under 64 random assignments: a walk of the {@link Clause} looking up the names in a map, against
+ * {@link CompiledFormula#evaluate(long[])} for each assignment and one {@link CompiledFormula#evaluateParallel(long[])}
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EvaluationBenchmark {
+    @Param({"20", "100"})
+    int variables;
+
+    private Clause formula;
+    private CompiledFormula compiled;
+    private List<HashMap<String, Boolean>> maps;
+    private long[][] assignments;
+    private long[] columns;
+
+    @Setup
+    public void setUp() throws FormulaError {
+        formula = new RandomFormulas(42, variables).cnf(2 * variables, 3);
+        compiled = new CompiledFormula(formula);
+        Random random = new Random(7);
+        maps = new ArrayList<>();
+        assignments = new long[64][(variables + 63) / 64];
+        columns = new long[variables];
+        for (int j = 0; j < 64; j++) {
+            HashMap<String, Boolean> map = new HashMap<>();
+            for (int v = 0; v < variables; v++) {
+                boolean value = random.nextBoolean();
+                map.put(compiled.getVariable(v), value);
+                if (value) {
+                    assignments[j][v >>> 6] |= 1L << v;
+                    columns[v] |= 1L << j;
+                }
+            }
+            maps.add(map);
+        }
+    }
+
+    private static boolean evaluate(final ILogicFormula formula, final HashMap<String, Boolean> values) {
+        if (formula instanceof Literal) {
+            Literal literal = (Literal) formula;
+            return values.get(literal.getName()) == literal.getValue();
+        }
+        Clause clause = (Clause) formula;
+        boolean and = clause.getType() == eClauseType.CONJUNCTIVE;
+        for (ILogicFormula element : clause) {
+            if (evaluate(element, values) != and) {
+                return !and;
+            }
+        }
+        return and;
+    }
+
+    @Benchmark
+    public long tree() {
+        long models = 0;
+        for (int j = 0; j < 64; j++) {
+            if (evaluate(formula, maps.get(j))) {
+                models |= 1L << j;
+            }
+        }
+        return models;
+    }
+
+    @Benchmark
+    public long compiled() {
+        long models = 0;
+        for (int j = 0; j < 64; j++) {
+            if (compiled.evaluate(assignments[j])) {
+                models |= 1L << j;
+            }
+        }
+        return models;
+    }
+
+    @Benchmark
+    public long parallel() {
+        return compiled.evaluateParallel(columns);
+    }
+}
@@ -0,0 +1,79 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.operators.MSSQuery;
+import im.irrational.logic.propositional.operators.MSSSolver;
+import im.irrational.logic.propositional.operators.Timeout;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a burst of queries against the same random 3-CNF knowledge base, one {@link MSSSolver#call(Clause, Clause, Clause, int)}
+ * per query against {@link MSSSolver#call(Clause, java.util.Collection, int)}. The queries share a few hard formulas
+ * and some of them are repeated.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MSSBatchBenchmark {
+    @Param({"50"})
+    int variables;
+
+    @Param({"100"})
+    int queries;
+
+    /**
+     * number of distinct hard formulas
+     */
+    @Param({"5"})
+    int hardFormulas;
+
+    /**
+     * number of distinct soft formulas
+     */
+    @Param({"50"})
+    int softFormulas;
+
+    private Clause kb;
+    private List<MSSQuery> batch;
+
+    @Setup
+    public void setUp() throws FormulaError {
+        RandomFormulas formulas = new RandomFormulas(42, variables);
+        kb = formulas.cnf(2 * variables, 3);
+        List<Clause> hard = new ArrayList<>();
+        for (int i = 0; i < hardFormulas; i++) {
+            hard.add(formulas.disjunction(2));
+        }
+        List<Clause> soft = new ArrayList<>();
+        for (int i = 0; i < softFormulas; i++) {
+            soft.add(formulas.conjunction(8));
+        }
+        batch = new ArrayList<>();
+        for (int i = 0; i < queries; i++) {
+            batch.add(new MSSQuery(soft.get(i % softFormulas), hard.get(i % hardFormulas)));
+        }
+    }
+
+    @Benchmark
+    public List<List<Clause>> independent() throws FormulaError, Timeout {
+        MSSSolver solver = new MSSSolver();
+        List<List<Clause>> answers = new ArrayList<>(batch.size());
+        for (MSSQuery query : batch) {
+            answers.add(solver.call(kb, query.getSoftFormula(), query.getHardFormula(), 60));
+        }
+        return answers;
+    }
+
+    @Benchmark
+    public List<List<Clause>> batch() throws FormulaError, Timeout {
+        return new MSSSolver().call(kb, batch, 60);
+    }
+}
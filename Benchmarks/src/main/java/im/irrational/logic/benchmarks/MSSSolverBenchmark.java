@@ -0,0 +1,56 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.operators.MSSSolver;
+import im.irrational.logic.propositional.operators.Timeout;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * end to end {@link MSSSolver#call(Clause, Clause, Clause, int)} on a random 3-CNF knowledge base, with a random
+ * conjunction of literals as soft formula and a random clause as hard formula
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MSSSolverBenchmark {
+    @Param({"20", "50"})
+    int variables;
+
+    /**
+     * clauses of the knowledge base per variable, the random 3-CNF formulas are satisfiable below ~4.26
+     */
+    @Param({"2"})
+    int ratio;
+
+    @Param({"8", "16"})
+    int softLiterals;
+
+    @Param({"DESCENDING_BOUNDS", "CORRECTION_SETS"})
+    MSSSolver.Enumeration enumeration;
+
+    private Clause kb;
+    private Clause soft;
+    private Clause hard;
+
+    @Setup
+    public void setUp() throws FormulaError {
+        RandomFormulas formulas = new RandomFormulas(42, variables);
+        kb = formulas.cnf(ratio * variables, 3);
+        soft = formulas.conjunction(softLiterals);
+        hard = formulas.disjunction(2);
+    }
+
+    @Benchmark
+    public List<Clause> call() throws FormulaError, Timeout {
+        MSSSolver solver = new MSSSolver();
+        solver.setEnumeration(enumeration);
+        return solver.call(kb, soft, hard, 60);
+    }
+}
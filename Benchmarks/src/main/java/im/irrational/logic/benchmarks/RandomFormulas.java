@@ -0,0 +1,93 @@
+package im.irrational.logic.benchmarks;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.ILogicFormula;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+
+import java.util.Random;
+
+/**
+ * seeded generators of formulas, so that every run of a benchmark measures the same inputs
+ */
+final class RandomFormulas {
+    private final Random random;
+    private final int variables;
+
+    /**
+     * @param seed      seed of the generator
+     * @param variables number of distinct variables, named V0, V1, ...
+     */
+    RandomFormulas(long seed, int variables) {
+        this.random = new Random(seed);
+        this.variables = variables;
+    }
+
+    Literal literal() {
+        return new Literal("V" + random.nextInt(variables), random.nextBoolean());
+    }
+
+    /**
+     * @return a clause of width random literals in DIMACS, the variables numbered from 1
+     */
+    int[] clause(int width) {
+        int[] clause = new int[width];
+        for (int i = 0; i < width; i++) {
+            clause[i] = (random.nextInt(variables) + 1) * (random.nextBoolean() ? 1 : -1);
+        }
+        return clause;
+    }
+
+    /**
+     * @return a disjunction of width random literals
+     */
+    Clause disjunction(int width) throws FormulaError {
+        Clause clause = new Clause(eClauseType.DISJUNCTIVE);
+        for (int i = 0; i < width; i++) {
+            clause.add(literal());
+        }
+        return clause;
+    }
+
+    /**
+     * @return a random CNF formula of the given number of clauses of width literals
+     */
+    Clause cnf(int clauses, int width) throws FormulaError {
+        Clause formula = new Clause(eClauseType.CONJUNCTIVE);
+        for (int i = 0; i < clauses; i++) {
+            formula.add(disjunction(width));
+        }
+        return formula;
+    }
+
+    /**
+     * @return a conjunction of count random literals
+     */
+    Clause conjunction(int count) throws FormulaError {
+        Clause formula = new Clause(eClauseType.CONJUNCTIVE);
+        for (int i = 0; i < count; i++) {
+            formula.add(literal());
+        }
+        return formula;
+    }
+
+    /**
+     * @param depth number of alternations of conjunctions and disjunctions
+     * @param width number of elements of every (sub-)formula
+     * @return a formula which alternates conjunctions and disjunctions, starting with a disjunction
+     */
+    Clause nested(int depth, int width) throws FormulaError {
+        return nested(depth, width, eClauseType.DISJUNCTIVE);
+    }
+
+    private Clause nested(int depth, int width, eClauseType type) throws FormulaError {
+        Clause clause = new Clause(type);
+        eClauseType childType = (type == eClauseType.DISJUNCTIVE ? eClauseType.CONJUNCTIVE : eClauseType.DISJUNCTIVE);
+        for (int i = 0; i < width; i++) {
+            ILogicFormula element = (depth <= 1 ? literal() : nested(depth - 1, width, childType));
+            clause.add(element);
+        }
+        return clause;
+    }
+}
@@ -0,0 +1,491 @@
+package im.irrational.logic.propositional.operators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static java.lang.Math.abs;
+
+/**
+ * simplification of an encoded CNF before it is added to a solver
+ * <p>
+ * the equivalence preserving steps are always applied: duplicate literals, tautologies and duplicate clauses are
+ * removed, the unit clauses are propagated (the fixed variables are kept as unit clauses) and the subsumed clauses are
+ * removed. With variable elimination, the pure literals and the variables whose elimination by resolution does not
+ * increase the number of clauses (bounded variable elimination) are removed as well. These steps only keep the models
+ * projected onto the other variables, so every variable which is used outside of the formula, e.g. in the soft clauses
+ * or the queries of a session, must be frozen.
+ * <p>
+ * an inconsistent formula is simplified to the empty clause. A CNFPreprocessor is not thread safe.
+ */
+public class CNFPreprocessor {
+    private final boolean eliminateVariables;
+    private final BitSet frozen = new BitSet();
+    private int maxResolventSize = 16;
+    private int maxOccurrences = 16;
+
+    private ArrayList<int[]> clauses;
+    /**
+     * clauses of each literal, see {@link #index(int)}, they may include removed clauses
+     */
+    private int[][] occurrences;
+    private int[] occurrenceCounts;
+    /**
+     * value of each variable: 1 true, -1 false, 0 unknown
+     */
+    private byte[] values;
+    private boolean inconsistent;
+
+    private int tautologies = 0;
+    private int subsumed = 0;
+    private int fixedVariables = 0;
+    private int pureLiterals = 0;
+    private int eliminatedVariables = 0;
+
+    /**
+     * @param eliminateVariables true to eliminate the pure literals and the variables by resolution
+     */
+    public CNFPreprocessor(boolean eliminateVariables) {
+        this.eliminateVariables = eliminateVariables;
+    }
+
+    /**
+     * keep a variable in the formula, it is never eliminated
+     */
+    public void freeze(int variable) {
+        frozen.set(abs(variable));
+    }
+
+    /**
+     * freeze every variable of the formula
+     */
+    public void freeze(final PackedCNF formula) {
+        for (int clause = 0; clause < formula.size(); clause++) {
+            for (int i = 0; i < formula.clauseSize(clause); i++) {
+                freeze(formula.get(clause, i));
+            }
+        }
+    }
+
+    /**
+     * @param size a variable is not eliminated if one of its resolvents is longer
+     */
+    public void setMaxResolventSize(int size) {
+        this.maxResolventSize = size;
+    }
+
+    /**
+     * @param occurrences a variable is not eliminated if it occurs more often in both polarities
+     */
+    public void setMaxOccurrences(int occurrences) {
+        this.maxOccurrences = occurrences;
+    }
+
+    /**
+     * @return the simplified formula, a new packed CNF
+     */
+    public PackedCNF simplify(final PackedCNF formula) {
+        int maxVariable = formula.getMaxVariable();
+        clauses = new ArrayList<>(formula.size());
+        occurrences = new int[2 * maxVariable + 2][];
+        occurrenceCounts = new int[2 * maxVariable + 2];
+        values = new byte[maxVariable + 1];
+        inconsistent = false;
+        for (int clause = 0; clause < formula.size() && !inconsistent; clause++) {
+            int[] literals = normalize(formula.getClause(clause));
+            if (literals == null) {
+                tautologies++;
+            } else if (literals.length == 0) {
+                inconsistent = true;
+            } else {
+                addClause(literals);
+            }
+        }
+        if (!inconsistent) {
+            propagate();
+        }
+        if (!inconsistent) {
+            rebuildOccurrences();
+            removeSubsumed();
+        }
+        if (!inconsistent && eliminateVariables) {
+            eliminatePureLiterals();
+            eliminateVariables();
+        }
+        PackedCNF simplified = new PackedCNF(clauses.size() + 1, formula.numberOfLiterals() + 1);
+        if (inconsistent) {
+            simplified.startClause();
+            simplified.endClause();
+        } else {
+            for (int var = 1; var <= maxVariable; var++) {
+                if (values[var] != 0) {
+                    simplified.addClause(values[var] * var);
+                }
+            }
+            for (int[] literals : clauses) {
+                if (literals != null) {
+                    simplified.addClause(literals);
+                }
+            }
+        }
+        clauses = null;
+        occurrences = null;
+        occurrenceCounts = null;
+        values = null;
+        return simplified;
+    }
+
+    /**
+     * @return the literals sorted without duplicates, null for a tautology
+     */
+    private static int[] normalize(final int[] literals) {
+        Arrays.sort(literals);
+        int size = 0;
+        for (int i = 0; i < literals.length; i++) {
+            if (size == 0 || literals[size - 1] != literals[i]) {
+                literals[size++] = literals[i];
+            }
+        }
+        // a literal and its negation are at the same distance from the middle of the sorted clause
+        for (int i = 0, j = size - 1; i < j; ) {
+            int sum = literals[i] + literals[j];
+            if (sum == 0) {
+                return null;
+            } else if (sum < 0) {
+                i++;
+            } else {
+                j--;
+            }
+        }
+        return (size == literals.length ? literals : Arrays.copyOf(literals, size));
+    }
+
+    private static int index(int literal) {
+        return (literal > 0 ? literal << 1 : ((-literal) << 1) | 1);
+    }
+
+    private int addClause(final int[] literals) {
+        int clause = clauses.size();
+        clauses.add(literals);
+        for (int literal : literals) {
+            addOccurrence(literal, clause);
+        }
+        return clause;
+    }
+
+    private void addOccurrence(int literal, int clause) {
+        int index = index(literal);
+        int[] list = occurrences[index];
+        if (list == null) {
+            list = occurrences[index] = new int[4];
+        } else if (occurrenceCounts[index] == list.length) {
+            list = occurrences[index] = Arrays.copyOf(list, list.length << 1);
+        }
+        list[occurrenceCounts[index]++] = clause;
+    }
+
+    /**
+     * drop the removed clauses from the occurrence lists
+     */
+    private void rebuildOccurrences() {
+        Arrays.fill(occurrenceCounts, 0);
+        for (int clause = 0; clause < clauses.size(); clause++) {
+            int[] literals = clauses.get(clause);
+            if (literals != null) {
+                for (int literal : literals) {
+                    addOccurrence(literal, clause);
+                }
+            }
+        }
+    }
+
+    private int value(int literal) {
+        return (literal > 0 ? values[literal] : -values[-literal]);
+    }
+
+    /**
+     * @return false if the literal is already false
+     */
+    private boolean assign(int literal, int[] queue, int[] queueSize) {
+        int value = value(literal);
+        if (value != 0) {
+            return value > 0;
+        }
+        values[abs(literal)] = (byte) (literal > 0 ? 1 : -1);
+        fixedVariables++;
+        queue[queueSize[0]++] = literal;
+        return true;
+    }
+
+    /**
+     * unit propagation, the unit clauses are removed, their literals are kept in the values
+     */
+    private void propagate() {
+        int[] queue = new int[values.length];
+        int[] queueSize = {0};
+        for (int clause = 0; clause < clauses.size(); clause++) {
+            int[] literals = clauses.get(clause);
+            if (literals.length == 1) {
+                clauses.set(clause, null);
+                if (!assign(literals[0], queue, queueSize)) {
+                    inconsistent = true;
+                    return;
+                }
+            }
+        }
+        for (int head = 0; head < queueSize[0]; head++) {
+            int literal = queue[head];
+            int index = index(literal);
+            for (int i = 0; i < occurrenceCounts[index]; i++) {
+                clauses.set(occurrences[index][i], null);
+            }
+            index = index(-literal);
+            for (int i = 0; i < occurrenceCounts[index]; i++) {
+                int clause = occurrences[index][i];
+                int[] literals = clauses.get(clause);
+                if (literals == null) {
+                    continue;
+                }
+                int size = 0;
+                int[] remaining = new int[literals.length];
+                boolean satisfied = false;
+                for (int l : literals) {
+                    int value = value(l);
+                    if (value > 0) {
+                        satisfied = true;
+                        break;
+                    } else if (value == 0) {
+                        remaining[size++] = l;
+                    }
+                }
+                if (satisfied) {
+                    clauses.set(clause, null);
+                } else if (size == 0) {
+                    inconsistent = true;
+                    return;
+                } else if (size == 1) {
+                    clauses.set(clause, null);
+                    assign(remaining[0], queue, queueSize);
+                } else {
+                    clauses.set(clause, Arrays.copyOf(remaining, size));
+                }
+            }
+        }
+    }
+
+    /**
+     * remove the clauses which contain another clause, in particular the duplicates
+     */
+    private void removeSubsumed() {
+        Integer[] order = new Integer[clauses.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(length(a), length(b)));
+        for (int clause : order) {
+            int[] literals = clauses.get(clause);
+            if (literals == null) {
+                continue;
+            }
+            // the other clauses which contain the least frequent literal
+            int best = index(literals[0]);
+            for (int literal : literals) {
+                if (occurrenceCounts[index(literal)] < occurrenceCounts[best]) {
+                    best = index(literal);
+                }
+            }
+            for (int i = 0; i < occurrenceCounts[best]; i++) {
+                int other = occurrences[best][i];
+                int[] otherLiterals = clauses.get(other);
+                if (other != clause && otherLiterals != null && otherLiterals.length >= literals.length
+                        && isSubset(literals, otherLiterals)) {
+                    clauses.set(other, null);
+                    subsumed++;
+                }
+            }
+        }
+    }
+
+    private int length(int clause) {
+        int[] literals = clauses.get(clause);
+        return (literals == null ? 0 : literals.length);
+    }
+
+    private static boolean isSubset(final int[] small, final int[] large) {
+        int j = 0;
+        for (int literal : small) {
+            while (j < large.length && large[j] < literal) {
+                j++;
+            }
+            if (j == large.length || large[j] != literal) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+
+    private boolean isCandidate(int var) {
+        return !frozen.get(var) && values[var] == 0;
+    }
+
+    /**
+     * @return the clauses of the literal which are not removed
+     */
+    private int[] clausesOf(int literal) {
+        int index = index(literal);
+        int[] alive = new int[occurrenceCounts[index]];
+        int size = 0;
+        for (int i = 0; i < occurrenceCounts[index]; i++) {
+            if (clauses.get(occurrences[index][i]) != null) {
+                alive[size++] = occurrences[index][i];
+            }
+        }
+        return (size == alive.length ? alive : Arrays.copyOf(alive, size));
+    }
+
+    /**
+     * remove the clauses of the variables which occur in a single polarity, until there is none
+     */
+    private void eliminatePureLiterals() {
+        int[] stack = new int[values.length];
+        int size = 0;
+        boolean[] queued = new boolean[values.length];
+        for (int var = values.length - 1; var > 0; var--) {
+            stack[size++] = var;
+            queued[var] = true;
+        }
+        while (size > 0) {
+            int var = stack[--size];
+            queued[var] = false;
+            if (!isCandidate(var)) {
+                continue;
+            }
+            int[] positive = clausesOf(var);
+            int[] negative = clausesOf(-var);
+            int[] pure = (negative.length == 0 ? positive : (positive.length == 0 ? negative : null));
+            if (pure == null || pure.length == 0) {
+                continue;
+            }
+            pureLiterals++;
+            for (int clause : pure) {
+                for (int literal : clauses.get(clause)) {
+                    int other = abs(literal);
+                    if (!queued[other]) {
+                        stack[size++] = other;
+                        queued[other] = true;
+                    }
+                }
+                clauses.set(clause, null);
+            }
+        }
+    }
+
+    /**
+     * bounded variable elimination: a variable is replaced by all the resolvents of its clauses when they are not more
+     * than its clauses, the cheapest variables first
+     */
+    private void eliminateVariables() {
+        ArrayList<int[]> candidates = new ArrayList<>();
+        for (int var = 1; var < values.length; var++) {
+            if (isCandidate(var)) {
+                long cost = (long) clausesOf(var).length * clausesOf(-var).length;
+                candidates.add(new int[]{var, (int) Math.min(cost, Integer.MAX_VALUE)});
+            }
+        }
+        candidates.sort((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(a[0], b[0]));
+        ArrayList<int[]> resolvents = new ArrayList<>();
+        for (int[] candidate : candidates) {
+            int var = candidate[0];
+            int[] positive = clausesOf(var);
+            int[] negative = clausesOf(-var);
+            if (positive.length + negative.length == 0
+                    || (positive.length > maxOccurrences && negative.length > maxOccurrences)) {
+                continue;
+            }
+            resolvents.clear();
+            boolean bounded = true;
+            for (int i = 0; i < positive.length && bounded; i++) {
+                for (int j = 0; j < negative.length && bounded; j++) {
+                    int[] resolvent = resolve(clauses.get(positive[i]), clauses.get(negative[j]), var);
+                    if (resolvent != null) {
+                        resolvents.add(resolvent);
+                        bounded = resolvent.length <= maxResolventSize
+                                && resolvents.size() <= positive.length + negative.length;
+                    }
+                }
+            }
+            if (!bounded) {
+                continue;
+            }
+            for (int clause : positive) {
+                clauses.set(clause, null);
+            }
+            for (int clause : negative) {
+                clauses.set(clause, null);
+            }
+            eliminatedVariables++;
+            for (int[] resolvent : resolvents) {
+                if (resolvent.length == 0) {
+                    inconsistent = true;
+                    return;
+                }
+                addClause(resolvent);
+            }
+        }
+    }
+
+    /**
+     * @return the resolvent on the variable of the two sorted clauses, null if it is a tautology
+     */
+    private static int[] resolve(final int[] positive, final int[] negative, int var) {
+        int[] resolvent = new int[positive.length + negative.length - 2];
+        int size = 0;
+        for (int literal : positive) {
+            if (literal != var) {
+                resolvent[size++] = literal;
+            }
+        }
+        for (int literal : negative) {
+            if (literal != -var) {
+                resolvent[size++] = literal;
+            }
+        }
+        return normalize(Arrays.copyOf(resolvent, size));
+    }
+
+    /**
+     * @return number of tautologies removed
+     */
+    public int getTautologies() {
+        return tautologies;
+    }
+
+    /**
+     * @return number of subsumed and duplicate clauses removed
+     */
+    public int getSubsumed() {
+        return subsumed;
+    }
+
+    /**
+     * @return number of variables fixed by unit propagation
+     */
+    public int getFixedVariables() {
+        return fixedVariables;
+    }
+
+    /**
+     * @return number of pure literals whose clauses were removed
+     */
+    public int getPureLiterals() {
+        return pureLiterals;
+    }
+
+    /**
+     * @return number of variables eliminated by resolution
+     */
+    public int getEliminatedVariables() {
+        return eliminatedVariables;
+    }
+}
@@ -0,0 +1,133 @@
+package im.irrational.logic.propositional.operators;
+
+import java.util.Arrays;
+
+/**
+ * a formula in DIMACS CNF or WCNF: hard clauses, and soft clauses with their weights, see {@link DIMACSLanguage}
+ * <p>
+ * the literals are variables of the solver as in {@link PackedCNF}, they can be given to
+ * {@link MSSSolver#call(PackedCNF, PackedCNF, int)} without building formulas. A CNF formula has only hard clauses.
+ */
+public class DIMACSInstance {
+    private final PackedCNF hardClauses;
+    private final PackedCNF softClauses;
+    private long[] weights = new long[16];
+    /**
+     * sum of the weights of the soft clauses, below {@link Long#MAX_VALUE} so that the top weight is a long
+     */
+    private long totalWeight = 0;
+    private int numberOfVariables = 0;
+    private boolean weighted;
+
+    /**
+     * @param weighted true for WCNF, false for CNF
+     */
+    public DIMACSInstance(boolean weighted) {
+        this(weighted, new PackedCNF(), new PackedCNF());
+    }
+
+    DIMACSInstance(boolean weighted, final PackedCNF hardClauses, final PackedCNF softClauses) {
+        this.weighted = weighted;
+        this.hardClauses = hardClauses;
+        this.softClauses = softClauses;
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    public void setWeighted(boolean weighted) {
+        this.weighted = weighted;
+    }
+
+    /**
+     * @return the number of variables declared in the header, or the largest variable if it is larger
+     */
+    public int getNumberOfVariables() {
+        return Math.max(numberOfVariables, Math.max(hardClauses.getMaxVariable(), softClauses.getMaxVariable()));
+    }
+
+    public void setNumberOfVariables(int numberOfVariables) {
+        this.numberOfVariables = numberOfVariables;
+    }
+
+    public PackedCNF getHardClauses() {
+        return hardClauses;
+    }
+
+    /**
+     * @return the soft clauses, their weights are given by {@link #getWeight(int)}
+     */
+    public PackedCNF getSoftClauses() {
+        return softClauses;
+    }
+
+    /**
+     * @return index of the new clause in the hard clauses
+     */
+    public int addHardClause(int... clause) {
+        return hardClauses.addClause(clause);
+    }
+
+    /**
+     * @return index of the new clause in the soft clauses
+     * @throws IllegalArgumentException if the weight is not positive, or if the sum of the weights would not leave a
+     *                                  top weight
+     */
+    public int addSoftClause(long weight, int... clause) {
+        checkWeight(weight, 0);
+        int index = softClauses.addClause(clause);
+        setWeight(index, weight);
+        return index;
+    }
+
+    /**
+     * @param clause index of a soft clause
+     * @return the weight of the clause
+     */
+    public long getWeight(int clause) {
+        if (clause >= softClauses.size()) {
+            throw new IndexOutOfBoundsException(String.format("no soft clause %d", clause));
+        }
+        return weights[clause];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the weight is not positive, or if the sum of the weights would not leave a
+     *                                  top weight, see {@link #getMaxWeight()}
+     */
+    void setWeight(int clause, long weight) {
+        if (clause >= weights.length) {
+            weights = Arrays.copyOf(weights, Math.max(clause + 1, weights.length << 1));
+        }
+        checkWeight(weight, weights[clause]);
+        totalWeight += weight - weights[clause];
+        weights[clause] = weight;
+    }
+
+    /**
+     * @param replaced weight which the new weight replaces, 0 for a new clause
+     */
+    private void checkWeight(long weight, long replaced) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException(String.format("the weight of a soft clause must be positive: %d", weight));
+        }
+        if (weight > getMaxWeight() + replaced) {
+            throw new IllegalArgumentException(String.format("the sum of the weights of the soft clauses is too large with %d", weight));
+        }
+    }
+
+    /**
+     * @return the largest weight of a new soft clause, so that the top weight is still a long
+     */
+    long getMaxWeight() {
+        return Long.MAX_VALUE - 1 - totalWeight;
+    }
+
+    /**
+     * @return a weight larger than the sum of the weights of the soft clauses, the weight of the hard clauses in WCNF
+     */
+    public long getTop() {
+        return totalWeight + 1;
+    }
+}
@@ -0,0 +1,407 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.ILanguage;
+import im.irrational.logic.propositional.LanguageFormatException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * the DIMACS CNF and WCNF formats
+ * <p>
+ * a CNF file has a header {@code p cnf <variables> <clauses>} followed by the clauses, each a list of non zero
+ * literals terminated by 0. A WCNF file either has a header {@code p wcnf <variables> <clauses> [<top>]} and every
+ * clause starts with its weight, the clauses with a weight of at least top being hard; or it has no header, and every
+ * clause starts with its weight, or with {@code h} for a hard clause (the format of the MaxSAT evaluations since 2022).
+ * Lines starting with {@code c} are comments, and a line starting with {@code %} ends the clauses, as in the SATLIB
+ * benchmarks. The literals must be variables of the header, if there is one.
+ * <p>
+ * files are read through memory mapped buffers and the numbers are scanned from the bytes, the clauses are packed
+ * directly into a {@link DIMACSInstance}. WCNF is written with a header and the top weight.
+ */
+public class DIMACSLanguage implements ILanguage<DIMACSInstance> {
+    /**
+     * largest region of a file which is mapped at once
+     */
+    private static final long MAPPED_REGION = 1L << 30;
+    private final long mappedRegion;
+
+    public DIMACSLanguage() {
+        this(MAPPED_REGION);
+    }
+
+    /**
+     * @param mappedRegion largest region of a file which is mapped at once
+     */
+    DIMACSLanguage(long mappedRegion) {
+        this.mappedRegion = mappedRegion;
+    }
+
+    @Override
+    public String toString(final DIMACSInstance languageElement) {
+        StringWriter writer = new StringWriter();
+        try {
+            write(languageElement, writer);
+        } catch (IOException e) {
+            // a StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public DIMACSInstance parse(final String str) throws LanguageFormatException {
+        return parse(new Input(ByteBuffer.wrap(str.getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    /**
+     * read a CNF or WCNF file
+     *
+     * @param path the file
+     * @return the formula in the file
+     */
+    public DIMACSInstance read(final Path path) throws IOException, LanguageFormatException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parse(new Input(channel, mappedRegion));
+        }
+    }
+
+    /**
+     * write the formula to a file, as CNF if the formula is not weighted
+     */
+    public void write(final DIMACSInstance instance, final Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            write(instance, writer);
+        }
+    }
+
+    public void write(final DIMACSInstance instance, final Writer writer) throws IOException {
+        PackedCNF hardClauses = instance.getHardClauses();
+        PackedCNF softClauses = instance.getSoftClauses();
+        Output output = new Output(writer);
+        if (instance.isWeighted()) {
+            long top = instance.getTop();
+            output.append("p wcnf ").append(instance.getNumberOfVariables()).append(' ')
+                    .append(hardClauses.size() + softClauses.size()).append(' ').append(top).append('\n');
+            for (int i = 0; i < hardClauses.size(); i++) {
+                output.append(top).append(' ').appendClause(hardClauses, i);
+            }
+            for (int i = 0; i < softClauses.size(); i++) {
+                output.append(instance.getWeight(i)).append(' ').appendClause(softClauses, i);
+            }
+        } else {
+            if (softClauses.size() > 0) {
+                throw new IllegalArgumentException("a CNF formula has no soft clauses");
+            }
+            output.append("p cnf ").append(instance.getNumberOfVariables()).append(' ')
+                    .append(hardClauses.size()).append('\n');
+            for (int i = 0; i < hardClauses.size(); i++) {
+                output.appendClause(hardClauses, i);
+            }
+        }
+        output.flush();
+        writer.flush();
+    }
+
+    private DIMACSInstance parse(final Input input) throws LanguageFormatException {
+        DIMACSInstance instance = null;
+        long top = Long.MAX_VALUE;
+        // variables of the header, any variable without a header
+        int numberOfVariables = Integer.MAX_VALUE;
+        for (int c = input.skipWhitespace(); c >= 0; c = input.skipWhitespace()) {
+            if (c == 'c') {
+                input.skipLine();
+            } else if (c == '%') {
+                // end of the clauses in the SATLIB benchmarks, followed by a line "0"
+                break;
+            } else if (c == 'p') {
+                if (instance != null) {
+                    throw input.error("unexpected header");
+                }
+                input.read();
+                String format = input.readWord();
+                if ("cnf".equals(format)) {
+                    instance = new DIMACSInstance(false);
+                } else if ("wcnf".equals(format)) {
+                    instance = new DIMACSInstance(true);
+                } else {
+                    throw input.error(String.format("unknown format \"%s\"", format));
+                }
+                input.skipWhitespace();
+                long position = input.position();
+                numberOfVariables = input.readInt();
+                if (numberOfVariables < 0) {
+                    throw new LanguageFormatException(String.format("negative number of variables at offset %d", position), position);
+                }
+                instance.setNumberOfVariables(numberOfVariables);
+                input.readInt();
+                if (instance.isWeighted() && input.hasNumberOnLine()) {
+                    top = input.readLong();
+                }
+            } else {
+                if (instance == null) {
+                    // no header: WCNF with h for the hard clauses
+                    instance = new DIMACSInstance(true);
+                }
+                if (!instance.isWeighted()) {
+                    readClause(input, instance.getHardClauses(), numberOfVariables);
+                } else if (c == 'h') {
+                    input.read();
+                    readClause(input, instance.getHardClauses(), numberOfVariables);
+                } else {
+                    long position = input.position();
+                    long weight = input.readLong();
+                    if (weight <= 0) {
+                        throw new LanguageFormatException(String.format("the weight of a soft clause must be positive: %d", weight), position);
+                    }
+                    if (weight >= top) {
+                        readClause(input, instance.getHardClauses(), numberOfVariables);
+                    } else if (weight > instance.getMaxWeight()) {
+                        throw new LanguageFormatException(String.format("the sum of the weights of the soft clauses is too large at offset %d", position), position);
+                    } else {
+                        PackedCNF softClauses = instance.getSoftClauses();
+                        instance.setWeight(readClause(input, softClauses, numberOfVariables), weight);
+                    }
+                }
+            }
+        }
+        return instance == null ? new DIMACSInstance(false) : instance;
+    }
+
+    /**
+     * @param numberOfVariables largest variable of the literals
+     * @return index of the clause
+     */
+    private static int readClause(final Input input, final PackedCNF clauses, int numberOfVariables) throws LanguageFormatException {
+        clauses.startClause();
+        while (true) {
+            input.skipWhitespace();
+            long position = input.position();
+            int literal = input.readInt();
+            if (literal == 0) {
+                return clauses.endClause();
+            }
+            if (Math.abs(literal) > numberOfVariables) {
+                throw new LanguageFormatException(String.format("literal %d is not a variable of the header at offset %d", literal, position), position);
+            }
+            clauses.addLiteral(literal);
+        }
+    }
+
+    /**
+     * the bytes of a string or of a file, the file is mapped region by region
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private final long size;
+        private final long region;
+        /**
+         * offset of the buffer in the file
+         */
+        private long base = 0;
+        private ByteBuffer buffer;
+
+        Input(final ByteBuffer buffer) {
+            this.channel = null;
+            this.size = buffer.remaining();
+            this.region = size;
+            this.buffer = buffer;
+        }
+
+        Input(final FileChannel channel, long region) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.region = region;
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, region));
+        }
+
+        long position() {
+            return base + buffer.position();
+        }
+
+        /**
+         * @return the next byte, -1 at the end
+         */
+        int peek() {
+            if (!buffer.hasRemaining() && !nextRegion()) {
+                return -1;
+            }
+            return buffer.get(buffer.position()) & 0xff;
+        }
+
+        int read() {
+            if (!buffer.hasRemaining() && !nextRegion()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        private boolean nextRegion() {
+            long next = base + buffer.limit();
+            if (channel == null || next >= size) {
+                return false;
+            }
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(size - next, region));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            base = next;
+            return true;
+        }
+
+        /**
+         * @return the next byte which is not a white space, -1 at the end
+         */
+        int skipWhitespace() {
+            int c = peek();
+            while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                buffer.get();
+                c = peek();
+            }
+            return c;
+        }
+
+        /**
+         * skip spaces and tabs but stop at the end of the line
+         *
+         * @return true if a number follows on the same line
+         */
+        boolean hasNumberOnLine() {
+            int c = peek();
+            while (c == ' ' || c == '\t') {
+                buffer.get();
+                c = peek();
+            }
+            return c == '-' || (c >= '0' && c <= '9');
+        }
+
+        void skipLine() {
+            for (int c = read(); c >= 0 && c != '\n'; c = read()) {
+                // comment
+            }
+        }
+
+        String readWord() throws LanguageFormatException {
+            skipWhitespace();
+            StringBuilder word = new StringBuilder();
+            for (int c = peek(); c > ' '; c = peek()) {
+                word.append((char) read());
+            }
+            if (word.length() == 0) {
+                throw error("a word is expected");
+            }
+            return word.toString();
+        }
+
+        int readInt() throws LanguageFormatException {
+            long position = position();
+            long value = readLong();
+            if (value > Integer.MAX_VALUE || value < -Integer.MAX_VALUE) {
+                throw new LanguageFormatException(String.format("%d is out of the range of the literals", value), position);
+            }
+            return (int) value;
+        }
+
+        long readLong() throws LanguageFormatException {
+            int c = skipWhitespace();
+            boolean negative = (c == '-');
+            if (negative) {
+                read();
+                c = peek();
+            }
+            if (c < '0' || c > '9') {
+                throw error(c < 0 ? "unexpected end of input" : String.format("a number is expected, found '%c'", (char) c));
+            }
+            long value = 0;
+            while (c >= '0' && c <= '9') {
+                read();
+                if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                    throw error("number too large");
+                }
+                value = value * 10 + (c - '0');
+                c = peek();
+            }
+            if (c > ' ') {
+                throw error(String.format("unexpected '%c' in a number", (char) c));
+            }
+            return negative ? -value : value;
+        }
+
+        LanguageFormatException error(final String message) {
+            return new LanguageFormatException(String.format("%s at offset %d", message, position()), position());
+        }
+    }
+
+    /**
+     * format the numbers into a reused buffer instead of strings
+     */
+    private static final class Output {
+        private final Writer writer;
+        private final char[] buffer = new char[8192];
+        private int size = 0;
+
+        Output(final Writer writer) {
+            this.writer = writer;
+        }
+
+        Output append(char c) throws IOException {
+            if (size == buffer.length) {
+                flush();
+            }
+            buffer[size++] = c;
+            return this;
+        }
+
+        Output append(final String str) throws IOException {
+            for (int i = 0; i < str.length(); i++) {
+                append(str.charAt(i));
+            }
+            return this;
+        }
+
+        Output append(long value) throws IOException {
+            if (size + 20 > buffer.length) {
+                flush();
+            }
+            // the digits are taken from the negative value, which holds Long.MIN_VALUE
+            if (value < 0) {
+                buffer[size++] = '-';
+            } else {
+                value = -value;
+            }
+            int start = size;
+            do {
+                buffer[size++] = (char) ('0' - value % 10);
+                value /= 10;
+            } while (value < 0);
+            // the digits are in reverse order
+            for (int i = start, j = size - 1; i < j; i++, j--) {
+                char c = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = c;
+            }
+            return this;
+        }
+
+        Output appendClause(final PackedCNF clauses, int clause) throws IOException {
+            for (int i = 0; i < clauses.clauseSize(clause); i++) {
+                append(clauses.get(clause, i)).append(' ');
+            }
+            return append('0').append('\n');
+        }
+
+        void flush() throws IOException {
+            writer.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+}
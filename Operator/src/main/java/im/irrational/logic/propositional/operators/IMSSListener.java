@@ -0,0 +1,59 @@
+package im.irrational.logic.propositional.operators;
+
+import java.util.BitSet;
+
+/**
+ * progress of a search of the maximum satisfiable subsets, see {@link MSSSolver#setListener(IMSSListener)}
+ * <p>
+ * the methods are called by the thread of the search, while the search waits, so they should return quickly. The
+ * subsets are indexes of the soft clauses, they must not be changed.
+ * <p>
+ * a listener is shared by the searches of a solver, which may run at the same time: every method is given the
+ * statistics of its search, the same instance from {@link #onStart(MSSStatistics)} to {@link #onFinish(MSSStatistics)},
+ * so a listener tells the searches apart by the identity of their statistics.
+ */
+public interface IMSSListener {
+    /**
+     * the knowledge base, the hard and the soft formulas are encoded and added to the solver
+     */
+    default void onStart(MSSStatistics statistics) {
+    }
+
+    /**
+     * a call to the SAT solver returned
+     *
+     * @param search      statistics of the search
+     * @param bound       the number of soft clauses required
+     * @param satisfiable true if a model was found
+     * @param nanos       time of the call
+     */
+    default void onSolve(MSSStatistics search, int bound, boolean satisfiable, long nanos) {
+    }
+
+    /**
+     * all the subsets of the given size are found
+     *
+     * @param search statistics of the search
+     * @param nanos  time spent on the bound
+     */
+    default void onBound(MSSStatistics search, int bound, long nanos) {
+    }
+
+    /**
+     * a new maximum satisfiable subset
+     */
+    default void onSubset(MSSStatistics search, BitSet subset) {
+    }
+
+    /**
+     * a model which is contained in a subset found before, it is discarded
+     */
+    default void onNonMaximal(MSSStatistics search, BitSet subset) {
+    }
+
+    /**
+     * the search is exhausted or closed, the statistics are final
+     */
+    default void onFinish(MSSStatistics statistics) {
+    }
+}
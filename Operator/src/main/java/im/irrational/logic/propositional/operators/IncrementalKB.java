@@ -0,0 +1,273 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.eClauseType;
+import org.sat4j.core.VecInt;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.specs.ContradictionException;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * a knowledge base which changes between queries, see {@link MSSSolver#openIncrementalKB(int)}
+ * <p>
+ * each formula of the knowledge base is encoded once and added to a long-lived solver, conditioned on an activation
+ * literal of its own which every query assumes. Retracting a formula disables its activation literal for good, so an
+ * update costs the size of the formula, not of the knowledge base, and the clauses learnt from the other formulas are
+ * kept. The clauses of the retracted formulas are dropped by {@link #compact()}, which moves the live formulas to a
+ * new solver without encoding them again; it is done before a query once the retracted clauses outnumber the live
+ * ones.
+ * <p>
+ * the knowledge base must not be changed while an iterator of its queries is open. An IncrementalKB is not thread safe.
+ */
+public class IncrementalKB implements AutoCloseable {
+    /**
+     * retracted clauses below which the solver is never compacted
+     */
+    private static final int MIN_COMPACTION = 64;
+
+    private final MSSSolver mssSolver;
+    private final int solverTimeout;
+    private MSSSession session;
+    private final LinkedHashMap<Clause, Entry> formulas = new LinkedHashMap<>();
+    /**
+     * activation literals of the formulas, null if they changed since the last query
+     */
+    private VecInt activations = null;
+    private long liveClauses = 0;
+    private long retractedClauses = 0;
+    /**
+     * temporary variables of the retracted formulas, released when the solver is compacted
+     */
+    private final BitSet retired = new BitSet();
+    private long compactions = 0;
+
+    private static final class Entry {
+        final int activation;
+        final PackedCNF clauses;
+        /**
+         * activation literal and auxiliary variables of the formula
+         */
+        final BitSet scope;
+
+        Entry(int activation, final PackedCNF clauses, final BitSet scope) {
+            this.activation = activation;
+            this.clauses = clauses;
+            this.scope = scope;
+        }
+    }
+
+    IncrementalKB(final MSSSolver mssSolver, int solverTimeout) {
+        this.mssSolver = mssSolver;
+        this.solverTimeout = solverTimeout;
+        this.session = newSession();
+    }
+
+    private MSSSession newSession() {
+        IPBSolver solver = mssSolver.newSAT4JSolver();
+        solver.setTimeout(solverTimeout);
+        return new MSSSession(mssSolver, solver, solverTimeout);
+    }
+
+    /**
+     * add a formula to the knowledge base
+     *
+     * @return false if the formula is already in the knowledge base
+     */
+    public boolean add(final Clause formula) throws FormulaError {
+        IPBSolver solver = solver();
+        if (formulas.containsKey(formula)) {
+            return false;
+        }
+        BitSet scope = new BitSet();
+        int activation = mssSolver.newTempVariable(scope);
+        try {
+            PackedCNF clauses = mssSolver.encodeHard(formula, scope);
+            addClauses(solver, clauses, activation);
+            formulas.put(formula.clone(), new Entry(activation, clauses, scope));
+            liveClauses += clauses.size();
+            activations = null;
+            return true;
+        } catch (FormulaError | RuntimeException e) {
+            mssSolver.releaseTempVariables(scope);
+            throw e;
+        }
+    }
+
+    /**
+     * remove a formula from the knowledge base
+     *
+     * @return false if the formula is not in the knowledge base
+     */
+    public boolean retract(final Clause formula) {
+        IPBSolver solver = solver();
+        Entry entry = formulas.remove(formula);
+        if (entry == null) {
+            return false;
+        }
+        try {
+            solver.addClause(new VecInt(new int[]{-entry.activation}));
+        } catch (ContradictionException e) {
+            // cannot happen, the activation literal is only assumed
+            throw new IllegalStateException(e);
+        }
+        liveClauses -= entry.clauses.size();
+        retractedClauses += entry.clauses.size();
+        retired.or(entry.scope);
+        activations = null;
+        return true;
+    }
+
+    public boolean contains(final Clause formula) {
+        return formulas.containsKey(formula);
+    }
+
+    /**
+     * @return number of formulas in the knowledge base
+     */
+    public int size() {
+        return formulas.size();
+    }
+
+    /**
+     * @return the conjunction of the formulas of the knowledge base
+     */
+    public Clause toClause() throws FormulaError {
+        Clause kb = new Clause(eClauseType.CONJUNCTIVE);
+        for (Clause formula : formulas.keySet()) {
+            kb.add(formula);
+        }
+        return kb;
+    }
+
+    /**
+     * @return number of clauses of the retracted formulas which are still in the solver
+     */
+    public long getRetractedClauses() {
+        return retractedClauses;
+    }
+
+    /**
+     * @return number of times the solver was compacted
+     */
+    public long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * find all the maximum satisfiable subsets of the soft formula with the knowledge base and the hard formula, see
+     * {@link MSSSession#call(Clause, Clause)}
+     *
+     * @return the maximum satisfiable subsets, or null if the knowledge base and the hard formula are inconsistent
+     */
+    public List<Clause> call(final Clause softFormula, final Clause hardFormula) throws FormulaError, Timeout {
+        return prepare().call(softFormula, hardFormula);
+    }
+
+    /**
+     * find the maximum satisfiable subsets one at a time, see {@link MSSSession#call(Clause, Clause, Predicate)}
+     */
+    public boolean call(final Clause softFormula, final Clause hardFormula, final Predicate<Clause> consumer) throws FormulaError, Timeout {
+        return prepare().call(softFormula, hardFormula, consumer);
+    }
+
+    /**
+     * find the maximum satisfiable subsets within a budget, see {@link MSSSession#call(Clause, Clause, MSSBudget)}
+     */
+    public MSSResult call(final Clause softFormula, final Clause hardFormula, final MSSBudget budget) throws FormulaError {
+        return prepare().call(softFormula, hardFormula, budget);
+    }
+
+    /**
+     * start the search of the maximum satisfiable subsets, the knowledge base must not change until the iterator is
+     * exhausted or closed
+     *
+     * @return the iterator, which must be closed if it is not exhausted
+     */
+    public MSSIterator iterator(final Clause softFormula, final Clause hardFormula) throws FormulaError {
+        return prepare().iterator(softFormula, hardFormula);
+    }
+
+    /**
+     * move the live formulas to a new solver, the clauses of the retracted ones and the clauses learnt so far are
+     * dropped
+     */
+    public void compact() {
+        solver();
+        MSSSession compacted = newSession();
+        IPBSolver solver = compacted.getSolver();
+        try {
+            for (Entry entry : formulas.values()) {
+                addClauses(solver, entry.clauses, entry.activation);
+            }
+        } catch (RuntimeException e) {
+            compacted.close();
+            throw e;
+        }
+        session.close();
+        session = compacted;
+        mssSolver.releaseTempVariables(retired);
+        retired.clear();
+        retractedClauses = 0;
+        activations = null;
+        compactions++;
+    }
+
+    /**
+     * release the solver and the variables of the knowledge base
+     */
+    @Override
+    public void close() {
+        if (session != null) {
+            session.close();
+            session = null;
+            for (Entry entry : formulas.values()) {
+                mssSolver.releaseTempVariables(entry.scope);
+            }
+            mssSolver.releaseTempVariables(retired);
+            formulas.clear();
+            retired.clear();
+        }
+    }
+
+    /**
+     * compact the solver if needed, and assume the activation literals of the formulas in the next queries
+     */
+    private MSSSession prepare() {
+        solver();
+        if (retractedClauses >= MIN_COMPACTION && retractedClauses > liveClauses) {
+            compact();
+        }
+        if (activations == null) {
+            activations = new VecInt(formulas.size());
+            for (Entry entry : formulas.values()) {
+                activations.push(entry.activation);
+            }
+            session.assume(activations);
+        }
+        return session;
+    }
+
+    private IPBSolver solver() {
+        if (session == null) {
+            throw new IllegalStateException("the knowledge base is closed");
+        }
+        return session.getSolver();
+    }
+
+    private static void addClauses(final IPBSolver solver, final PackedCNF clauses, int activation) {
+        VecInt buffer = new VecInt();
+        try {
+            for (int i = 0; i < clauses.size(); i++) {
+                clauses.addClauseTo(solver, i, -activation, buffer);
+            }
+        } catch (ContradictionException e) {
+            // cannot happen, the clauses are satisfied by -activation
+            throw new IllegalStateException(e);
+        }
+    }
+}
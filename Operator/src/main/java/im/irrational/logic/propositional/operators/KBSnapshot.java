@@ -0,0 +1,183 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.LanguageFormatException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * an encoded knowledge base in CNF together with the dictionary of the {@link MSSSolver} which encoded it, see
+ * {@link MSSSolver#snapshot(im.irrational.logic.propositional.Clause)} and {@link MSSSolver#openSession(KBSnapshot, int)}
+ * <p>
+ * the binary format is a header, a string table and the int arena of the {@link PackedCNF}, all in big-endian ints:
+ * <pre>
+ * magic "KBSN", version, number of variables, number of words, number of clauses, number of literals, max variable
+ * for each word: variable, length of the name in bytes, the name in UTF-8 padded to a multiple of 4 bytes
+ * offsets of the clauses (number of clauses + 1 ints)
+ * literals
+ * </pre>
+ * a file is memory mapped and the arena is copied in bulk, nothing but the names is decoded.
+ */
+public class KBSnapshot {
+    static final int MAGIC = 0x4B42534E;
+    static final int VERSION = 1;
+    private static final int HEADER_INTS = 7;
+
+    private final PackedCNF knowledgeBase;
+    /**
+     * name of each variable, null if the variable is not a word
+     */
+    private final String[] words;
+
+    /**
+     * @param knowledgeBase encoded knowledge base
+     * @param words         name of each variable, null if the variable is not a word
+     */
+    KBSnapshot(final PackedCNF knowledgeBase, final String[] words) {
+        this.knowledgeBase = knowledgeBase;
+        this.words = words;
+    }
+
+    /**
+     * @return the encoded knowledge base, in the variables of the snapshot
+     */
+    public PackedCNF getKnowledgeBase() {
+        return knowledgeBase;
+    }
+
+    /**
+     * @return the largest variable of the snapshot, in the dictionary or in the knowledge base
+     */
+    public int getNumberOfVariables() {
+        return words.length - 1;
+    }
+
+    /**
+     * @return name of the variable, null if it is not a word
+     */
+    public String getWord(int variable) {
+        return (variable < words.length ? words[variable] : null);
+    }
+
+    public void write(final Path path) throws IOException {
+        byte[][] names = new byte[words.length][];
+        int numberOfWords = 0;
+        long bytes = 4L * (HEADER_INTS + knowledgeBase.size() + 1 + knowledgeBase.numberOfLiterals());
+        for (int var = 1; var < words.length; var++) {
+            if (words[var] != null) {
+                names[var] = words[var].getBytes(StandardCharsets.UTF_8);
+                bytes += 8 + padded(names[var].length);
+                numberOfWords++;
+            }
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("the knowledge base is too large for a snapshot");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(words.length - 1).putInt(numberOfWords)
+                .putInt(knowledgeBase.size()).putInt(knowledgeBase.numberOfLiterals()).putInt(knowledgeBase.getMaxVariable());
+        for (int var = 1; var < names.length; var++) {
+            if (names[var] != null) {
+                buffer.putInt(var).putInt(names[var].length).put(names[var]);
+                buffer.position(buffer.position() + padded(names[var].length) - names[var].length);
+            }
+        }
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(knowledgeBase.offsetArena(), 0, knowledgeBase.size() + 1);
+        ints.put(knowledgeBase.literalArena(), 0, knowledgeBase.numberOfLiterals());
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public static KBSnapshot read(final Path path) throws IOException, LanguageFormatException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new LanguageFormatException("the snapshot is too large");
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param buffer the snapshot, from its position
+     */
+    public static KBSnapshot read(final ByteBuffer buffer) throws LanguageFormatException {
+        try {
+            if (buffer.remaining() < 4 * HEADER_INTS || buffer.getInt() != MAGIC) {
+                throw new LanguageFormatException("not a knowledge base snapshot", buffer.position());
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new LanguageFormatException(String.format("unsupported snapshot version %d", version), buffer.position());
+            }
+            int numberOfVariables = buffer.getInt();
+            int numberOfWords = buffer.getInt();
+            int size = buffer.getInt();
+            int numberOfLiterals = buffer.getInt();
+            int maxVariable = buffer.getInt();
+            if (numberOfVariables < 0 || numberOfWords < 0 || size < 0 || numberOfLiterals < 0
+                    || maxVariable < 0 || maxVariable > numberOfVariables) {
+                throw new LanguageFormatException("invalid snapshot header", buffer.position());
+            }
+            // a variable takes at least the 4 bytes of a literal or the 8 bytes of a word
+            if (numberOfVariables > buffer.remaining() || 8L * numberOfWords > buffer.remaining()) {
+                throw new LanguageFormatException("truncated snapshot", buffer.position());
+            }
+            String[] words = new String[numberOfVariables + 1];
+            byte[] name = new byte[64];
+            for (int i = 0; i < numberOfWords; i++) {
+                int var = buffer.getInt();
+                int length = buffer.getInt();
+                if (var <= 0 || var > numberOfVariables || length < 0) {
+                    throw new LanguageFormatException(String.format("invalid word of variable %d", var), buffer.position());
+                }
+                if (length > name.length) {
+                    name = new byte[Math.max(length, name.length << 1)];
+                }
+                buffer.get(name, 0, length);
+                buffer.position(buffer.position() + padded(length) - length);
+                words[var] = new String(name, 0, length, StandardCharsets.UTF_8);
+            }
+            if (4L * (size + 1L + numberOfLiterals) > buffer.remaining()) {
+                throw new LanguageFormatException("truncated snapshot", buffer.position());
+            }
+            IntBuffer ints = buffer.asIntBuffer();
+            int[] offsets = new int[size + 1];
+            int[] literals = new int[numberOfLiterals];
+            ints.get(offsets);
+            ints.get(literals);
+            buffer.position(buffer.position() + 4 * (offsets.length + literals.length));
+            if (offsets[0] != 0 || offsets[size] != numberOfLiterals) {
+                throw new LanguageFormatException("invalid clause offsets", buffer.position());
+            }
+            for (int i = 0; i < size; i++) {
+                if (offsets[i] > offsets[i + 1]) {
+                    throw new LanguageFormatException(String.format("invalid offset of clause %d", i + 1), buffer.position());
+                }
+            }
+            for (int literal : literals) {
+                // Math.abs(Integer.MIN_VALUE) is negative
+                if (literal == 0 || literal < -maxVariable || literal > maxVariable) {
+                    throw new LanguageFormatException(String.format("invalid literal %d", literal), buffer.position());
+                }
+            }
+            return new KBSnapshot(new PackedCNF(literals, offsets, size, maxVariable), words);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new LanguageFormatException("truncated snapshot", buffer.position());
+        }
+    }
+
+    private static int padded(int length) {
+        return (length + 3) & ~3;
+    }
+}
@@ -0,0 +1,167 @@
+package im.irrational.logic.propositional.operators;
+
+import org.sat4j.specs.ISolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the limits of a whole search of the maximum satisfiable subsets, see
+ * {@link MSSSolver#call(im.irrational.logic.propositional.Clause, im.irrational.logic.propositional.Clause, im.irrational.logic.propositional.Clause, MSSBudget)}
+ * <p>
+ * a search which runs out of its budget stops and keeps the subsets found so far, which are maximal, flagged as
+ * incomplete. The deadline is a wall-clock time for all the calls to the SAT solver together, each call gets the time
+ * which is left. The conflict limit is the total number of conflicts of these calls, for deterministic runs; when it is
+ * set, the SAT solver only counts conflicts and the deadline is checked between its calls. {@link #cancel()} may be
+ * called from any thread, it stops the current call to the SAT solver, or with a conflict limit the next one.
+ * <p>
+ * a budget is meant for a single search.
+ */
+public class MSSBudget {
+    private final long deadline;
+    private final long conflictLimit;
+    private volatile boolean cancelled = false;
+    /**
+     * the solver of the current call, to stop it on cancellation, null if there is none or if the call is bounded by
+     * conflicts: SAT4J cannot expire such a call while it is searching
+     */
+    private volatile ISolver active = null;
+
+    /**
+     * the limits of a search, or why it stopped
+     */
+    public enum Stop {
+        /**
+         * the search is not stopped
+         */
+        NONE,
+        DEADLINE,
+        CONFLICTS,
+        CANCELLED
+    }
+
+    /**
+     * @param deadline      value of {@link System#nanoTime()} when the search must stop, Long.MAX_VALUE for none
+     * @param conflictLimit maximum number of conflicts, a negative value for none
+     */
+    private MSSBudget(long deadline, long conflictLimit) {
+        this.deadline = deadline;
+        this.conflictLimit = conflictLimit;
+    }
+
+    /**
+     * @return a budget without any limit, it can still be cancelled
+     */
+    public static MSSBudget unlimited() {
+        return new MSSBudget(Long.MAX_VALUE, -1);
+    }
+
+    /**
+     * @return a budget which expires after the given time from now
+     */
+    public static MSSBudget deadline(long time, final TimeUnit unit) {
+        long now = System.nanoTime();
+        long nanos = unit.toNanos(time);
+        return new MSSBudget(nanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + nanos, -1);
+    }
+
+    /**
+     * @return a budget of at most the given number of conflicts
+     */
+    public static MSSBudget conflicts(long conflicts) {
+        return new MSSBudget(Long.MAX_VALUE, Math.max(conflicts, 0));
+    }
+
+    /**
+     * @return a budget with the same deadline and the given conflict limit
+     */
+    public MSSBudget withConflicts(long conflicts) {
+        return new MSSBudget(deadline, Math.max(conflicts, 0));
+    }
+
+    /**
+     * stop the search, it returns the subsets found so far
+     */
+    public void cancel() {
+        cancelled = true;
+        ISolver solver = active;
+        if (solver != null) {
+            solver.expireTimeout();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return time left in nanoseconds, Long.MAX_VALUE if there is no deadline
+     */
+    public long remainingNanos() {
+        return (deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime());
+    }
+
+    /**
+     * @return the number of conflicts of the solver since it was created or reset
+     */
+    static long conflicts(final ISolver solver) {
+        Number conflicts = solver.getStat().get("conflicts");
+        return (conflicts == null ? 0 : conflicts.longValue());
+    }
+
+    /**
+     * set the limits of the next call to the solver
+     *
+     * @param conflictsUsed conflicts of the search so far
+     * @return the exhausted limit, {@link Stop#NONE} if the solver can be called
+     */
+    Stop start(final ISolver solver, long conflictsUsed) {
+        Stop stop = check(conflictsUsed);
+        if (stop != Stop.NONE) {
+            return stop;
+        }
+        if (conflictLimit >= 0) {
+            solver.setTimeoutOnConflicts((int) Math.min(conflictLimit - conflictsUsed, Integer.MAX_VALUE));
+            return Stop.NONE;
+        } else if (deadline != Long.MAX_VALUE) {
+            solver.setTimeoutMs(Math.max(TimeUnit.NANOSECONDS.toMillis(remainingNanos()), 1));
+        } else {
+            solver.setTimeout(Integer.MAX_VALUE);
+        }
+        active = solver;
+        // a cancellation before the solver was known
+        return (cancelled ? Stop.CANCELLED : Stop.NONE);
+    }
+
+    /**
+     * the call to the solver returned
+     */
+    void end() {
+        active = null;
+    }
+
+    /**
+     * @return the exhausted limit, {@link Stop#NONE} if there is none
+     */
+    Stop check(long conflictsUsed) {
+        if (cancelled) {
+            return Stop.CANCELLED;
+        } else if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+            return Stop.DEADLINE;
+        } else if (conflictLimit >= 0 && conflictsUsed >= conflictLimit) {
+            return Stop.CONFLICTS;
+        }
+        return Stop.NONE;
+    }
+
+    /**
+     * @return why the solver timed out
+     */
+    Stop timedOut(long conflictsUsed) {
+        Stop stop = check(conflictsUsed);
+        if (stop != Stop.NONE) {
+            return stop;
+        }
+        // the conflicts of the last call are counted by the solver only when it returns normally
+        return (conflictLimit >= 0 ? Stop.CONFLICTS : Stop.DEADLINE);
+    }
+}
@@ -0,0 +1,363 @@
+package im.irrational.logic.propositional.operators;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * enumerate the maximal sets of selectors which can be true together, from the largest bound on the number of
+ * selectors down to 0
+ * <p>
+ * with {@link MSSSolver.Enumeration#CORRECTION_SETS} every model is grown to the set of all the soft clauses it
+ * satisfies, and its complement, a minimal correction set, is blocked: at least one of its clauses must be selected
+ * in the next models. Since all the larger sets are found at the previous bounds, every model is a new maximal set.
+ * With {@link MSSSolver.Enumeration#DESCENDING_BOUNDS} only the selected clauses are blocked, so the subsets of the
+ * sets found so far are enumerated too and filtered out by a {@link SubsetIndex}. Either way the sets are searched one
+ * at a time by {@link #next()}, and each set is maximal as soon as it is found.
+ * <p>
+ * everything added to the solver is conditioned on the guard literal, which is assumed during the enumeration, so the
+ * solver (and the clauses it learns) can be reused once the guard is retracted. The bound on the number of selectors
+ * is a pseudo boolean constraint conditioned on a literal of its own, which is retired when the bound is decreased,
+ * instead of removing the constraint which would also remove the learnt clauses.
+ */
+class MSSEnumerator {
+    private final IPBSolver solver;
+    private final PackedCNF softClauses;
+    private final int[] selectors;
+    private final int guard;
+    private final IntSupplier newVariable;
+    private final MSSSolver.Enumeration strategy;
+    private final MSSStatistics statistics;
+    private final IMSSListener listener;
+    /**
+     * limits of the search, null if the search only stops at the timeout of each call
+     */
+    private final MSSBudget budget;
+    /**
+     * conflicts of the solver before the search
+     */
+    private final long conflictBase;
+    /**
+     * maximal sets found so far, for {@link MSSSolver.Enumeration#DESCENDING_BOUNDS}
+     */
+    private final SubsetIndex found = new SubsetIndex();
+    private final VecInt blocking = new VecInt();
+    private int bound;
+    /**
+     * literal of the current bound, 0 if it is trivial
+     */
+    private int boundLiteral = 0;
+    /**
+     * literals assumed in every call besides the guard, e.g. the activation literals of an {@link IncrementalKB}
+     */
+    private IVecInt base = null;
+    /**
+     * assumptions of the current bound, null until the bound is added
+     */
+    private VecInt assumptions = null;
+    private boolean exhausted = false;
+    private boolean satisfiable = false;
+    private boolean finished = false;
+    private MSSBudget.Stop stop = MSSBudget.Stop.NONE;
+    /**
+     * start of the current bound, in nanoseconds
+     */
+    private long boundStart;
+
+    /**
+     * @param solver      solver with the hard clauses, and the soft clauses each deselected by its selector
+     * @param softClauses encoded soft clauses
+     * @param selectors   selector of each soft clause
+     * @param guard       literal to condition the search on
+     * @param newVariable allocator of fresh variables
+     * @param strategy    how the sets are enumerated
+     * @param statistics  counters of the search
+     * @param listener    progress of the search
+     * @param budget      limits of the search, or null
+     */
+    MSSEnumerator(final IPBSolver solver, final PackedCNF softClauses, final int[] selectors, int guard, final IntSupplier newVariable, MSSSolver.Enumeration strategy,
+                  final MSSStatistics statistics, final IMSSListener listener, final MSSBudget budget) {
+        this.solver = solver;
+        this.softClauses = softClauses;
+        this.selectors = selectors;
+        this.guard = guard;
+        this.newVariable = newVariable;
+        this.strategy = strategy;
+        this.statistics = statistics;
+        this.listener = listener;
+        this.budget = budget;
+        this.conflictBase = (budget == null ? 0 : MSSBudget.conflicts(solver));
+        this.bound = selectors.length;
+        // the guard may not occur in any clause yet
+        solver.registerLiteral(guard);
+    }
+
+    /**
+     * @return indexes of the selectors in each maximal set, in the order they are found, null if even the hard clauses
+     * are unsatisfiable
+     */
+    List<BitSet> enumerate() throws TimeoutException {
+        LinkedList<BitSet> subsets = new LinkedList<>();
+        try {
+            for (BitSet subset = next(); subset != null; subset = next()) {
+                subsets.add(subset);
+            }
+        } finally {
+            close();
+        }
+        return satisfiable ? subsets : null;
+    }
+
+    /**
+     * search the next maximal set, each set is final as soon as it is returned
+     * <p>
+     * with a budget, the search stops instead of throwing a {@link TimeoutException} when the budget is exhausted, see
+     * {@link #getStop()}
+     *
+     * @return indexes of the selectors in the set, null if there is none left
+     */
+    BitSet next() throws TimeoutException {
+        while (!exhausted) {
+            if (assumptions == null) {
+                if (bound < 0) {
+                    exhausted = true;
+                    break;
+                }
+                boundStart = System.nanoTime();
+                boundLiteral = addBound(bound);
+                assumptions = new VecInt(new int[]{guard});
+                if (base != null) {
+                    for (int i = 0; i < base.size(); i++) {
+                        assumptions.push(base.get(i));
+                    }
+                }
+                if (boundLiteral != 0) {
+                    assumptions.push(boundLiteral);
+                }
+            }
+            long start = System.nanoTime();
+            boolean model;
+            if (budget == null) {
+                model = solver.isSatisfiable(assumptions);
+            } else {
+                MSSBudget.Stop limit = budget.start(solver, conflicts());
+                try {
+                    if (limit == MSSBudget.Stop.NONE) {
+                        model = solver.isSatisfiable(assumptions);
+                    } else {
+                        stop(limit);
+                        break;
+                    }
+                } catch (TimeoutException e) {
+                    statistics.solvingTime += System.nanoTime() - start;
+                    stop(budget.timedOut(conflicts()));
+                    break;
+                } finally {
+                    budget.end();
+                }
+            }
+            long time = System.nanoTime() - start;
+            statistics.satCalls++;
+            statistics.solvingTime += time;
+            listener.onSolve(statistics, bound, model, time);
+            if (model) {
+                satisfiable = true;
+                statistics.models++;
+                BitSet subset = (strategy == MSSSolver.Enumeration.CORRECTION_SETS ? blockCorrectionSet() : blockSubset());
+                if (subset != null) {
+                    statistics.subsets++;
+                    listener.onSubset(statistics, subset);
+                    return subset;
+                }
+            } else {
+                nextBound();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * assume the literals in every call to the solver, before the search starts
+     */
+    void assume(final IVecInt literals) {
+        base = literals;
+    }
+
+    /**
+     * @return true if a model was found so far, i.e. the hard clauses are satisfiable
+     */
+    boolean isSatisfiable() {
+        return satisfiable;
+    }
+
+    /**
+     * @return the limit of the budget which stopped the search, {@link MSSBudget.Stop#NONE} if it was not stopped
+     */
+    MSSBudget.Stop getStop() {
+        return stop;
+    }
+
+    MSSStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * stop the enumeration and retire the current bound, the guard is left to the caller. The statistics are final
+     * once the enumerator is closed.
+     */
+    void close() {
+        if (boundLiteral != 0) {
+            retire(boundLiteral);
+            boundLiteral = 0;
+        }
+        exhausted = true;
+        if (!finished) {
+            finished = true;
+            statistics.setSolverStatistics(solver.getStat());
+            listener.onFinish(statistics);
+        }
+    }
+
+    private void stop(MSSBudget.Stop limit) {
+        stop = limit;
+        exhausted = true;
+    }
+
+    /**
+     * @return conflicts of the solver during the search
+     */
+    private long conflicts() {
+        return MSSBudget.conflicts(solver) - conflictBase;
+    }
+
+    private void nextBound() {
+        if (boundLiteral != 0) {
+            retire(boundLiteral);
+            boundLiteral = 0;
+        }
+        long time = System.nanoTime() - boundStart;
+        statistics.bounds++;
+        statistics.boundTime += time;
+        statistics.maxBoundTime = Math.max(statistics.maxBoundTime, time);
+        listener.onBound(statistics, bound, time);
+        assumptions = null;
+        bound--;
+    }
+
+    /**
+     * the set of all the soft clauses satisfied by the model is maximal, its complement (a minimal correction set) is
+     * blocked: at least one of its clauses must be selected from now on, which rules out all the subsets
+     */
+    private BitSet blockCorrectionSet() {
+        BitSet subset = new BitSet(selectors.length);
+        blocking.clear();
+        for (int i = 0; i < selectors.length; i++) {
+            if (solver.model(selectors[i]) || isSatisfied(i)) {
+                subset.set(i);
+            } else {
+                blocking.push(selectors[i]);
+            }
+        }
+        blocking.push(-guard);
+        statistics.blockingClauses++;
+        // an empty correction set means all the soft clauses are satisfiable, there is nothing else
+        if (blocking.size() == 1 || !addClause(blocking)) {
+            exhausted = true;
+        }
+        return subset;
+    }
+
+    /**
+     * the selected clauses are blocked: no model with all of them from now on
+     *
+     * @return the set, null if it is contained in a set found before
+     */
+    private BitSet blockSubset() {
+        BitSet subset = new BitSet(selectors.length);
+        blocking.clear();
+        for (int i = 0; i < selectors.length; i++) {
+            if (solver.model(selectors[i])) {
+                subset.set(i);
+                blocking.push(-selectors[i]);
+            }
+        }
+        blocking.push(-guard);
+        statistics.blockingClauses++;
+        if (!addClause(blocking)) {
+            nextBound();
+        }
+        // the blocking clauses rule out the supersets of the sets found before, so a set which is not contained in
+        // one of them is maximal
+        if (found.hasSuperset(subset)) {
+            statistics.nonMaximalModels++;
+            listener.onNonMaximal(statistics, subset);
+            return null;
+        }
+        found.add(subset);
+        return subset;
+    }
+
+    /**
+     * @param clause index of a soft clause
+     * @return true if the last model satisfies the clause
+     */
+    private boolean isSatisfied(int clause) {
+        for (int i = 0; i < softClauses.clauseSize(clause); i++) {
+            int literal = softClauses.get(clause, i);
+            if (solver.model(literal > 0 ? literal : -literal) == (literal > 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * add the constraint boundLiteral -> at least bound selectors
+     *
+     * @return the literal, 0 if the bound is trivial
+     */
+    private int addBound(int bound) {
+        if (bound == 0) {
+            return 0;
+        }
+        int boundLiteral = newVariable.getAsInt();
+        VecInt literals = new VecInt(selectors.length + 1);
+        VecInt coefficients = new VecInt(selectors.length + 1);
+        for (int selector : selectors) {
+            literals.push(selector);
+            coefficients.push(1);
+        }
+        literals.push(-boundLiteral);
+        coefficients.push(bound);
+        try {
+            solver.addAtLeast(literals, coefficients, bound);
+        } catch (ContradictionException e) {
+            // cannot happen, the constraint is satisfied by -boundLiteral
+            throw new IllegalStateException(e);
+        }
+        return boundLiteral;
+    }
+
+    private void retire(int literal) {
+        addClause(new VecInt(new int[]{-literal}));
+    }
+
+    /**
+     * @return false if the clause makes the solver inconsistent
+     */
+    private boolean addClause(VecInt clause) {
+        try {
+            solver.addClause(clause);
+            return true;
+        } catch (ContradictionException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * solve queries of a {@link MSSSolver} asynchronously, on a fixed number of threads with a bounded queue
+ * <p>
+ * a query which does not fit in the queue is rejected: its future fails with a {@link RejectedExecutionException}, so
+ * the caller can apply back-pressure. Each query has a {@link MSSBudget}; cancelling its future cancels the budget,
+ * which stops the SAT search, and a query cancelled before it starts is not solved. A query whose budget is exhausted
+ * completes normally with an incomplete {@link MSSResult}.
+ */
+public class MSSExecutor implements AutoCloseable {
+    private final MSSSolver solver;
+    private final ThreadPoolExecutor executor;
+    /**
+     * the queries which are not done yet, with their budget
+     */
+    private final Set<Task> tasks = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicInteger POOLS = new AtomicInteger();
+
+    private final class Task implements Runnable {
+        final CompletableFuture<MSSResult> future = new CompletableFuture<>();
+        final Clause kb;
+        final Clause softFormula;
+        final Clause hardFormula;
+        final MSSBudget budget;
+
+        Task(final Clause kb, final Clause softFormula, final Clause hardFormula, final MSSBudget budget) {
+            // the caller may change its formulas while the query waits
+            this.kb = (kb == null ? null : kb.clone());
+            this.softFormula = (softFormula == null ? null : softFormula.clone());
+            this.hardFormula = (hardFormula == null ? null : hardFormula.clone());
+            this.budget = budget;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(solver.call(kb, softFormula, hardFormula, budget));
+            } catch (Throwable e) {
+                // an error too, e.g. a StackOverflowError on a deeply nested formula, or else the future never completes
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * @param solver        solver of the queries, it may be shared with other threads
+     * @param threads       number of threads
+     * @param queueCapacity maximum number of queries waiting for a thread
+     */
+    public MSSExecutor(final MSSSolver solver, int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("the executor needs at least one thread and a queue");
+        }
+        this.solver = solver;
+        int pool = POOLS.incrementAndGet();
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, String.format("mss-%d-%d", pool, count.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), factory);
+    }
+
+    /**
+     * solve the query on a thread of the executor, see {@link MSSSolver#call(Clause, Clause, Clause, MSSBudget)}
+     *
+     * @param budget limits of the query, which start when it is submitted, null for none
+     * @return the future result, cancelling it stops the search
+     */
+    public CompletableFuture<MSSResult> submit(final Clause kb, final Clause softFormula, final Clause hardFormula, final MSSBudget budget) {
+        Task task = new Task(kb, softFormula, hardFormula, budget == null ? MSSBudget.unlimited() : budget);
+        tasks.add(task);
+        task.future.whenComplete((result, error) -> {
+            tasks.remove(task);
+            if (task.future.isCancelled()) {
+                task.budget.cancel();
+                // free its place in the queue if it did not start
+                executor.remove(task);
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(e);
+        }
+        return task.future;
+    }
+
+    /**
+     * solve the query with a time limit, which includes the time it waits in the queue
+     *
+     * @return the future result, incomplete if the time ran out
+     */
+    public CompletableFuture<MSSResult> submit(final Clause kb, final Clause softFormula, final Clause hardFormula, long timeout, final TimeUnit unit) {
+        return submit(kb, softFormula, hardFormula, MSSBudget.deadline(timeout, unit));
+    }
+
+    /**
+     * @return number of queries waiting for a thread
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return number of threads solving a query
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * stop accepting queries, the submitted ones are still solved
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, final TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * stop accepting queries and cancel the ones which are not done
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        List<Task> cancelled = new ArrayList<>(tasks);
+        for (Task task : cancelled) {
+            task.future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.BitSet;
+
+/**
+ * the maximum satisfiable subsets of a query, searched one at a time, see
+ * {@link MSSSolver#iterator(Clause, Clause, Clause, int)} and {@link MSSSession#iterator(Clause, Clause)}
+ * <p>
+ * with a {@link MSSBudget}, the search stops when the budget is exhausted instead of throwing a {@link Timeout}, and
+ * the iterator is incomplete, see {@link #isComplete()}.
+ * <p>
+ * each subset is returned as soon as the solver finds it, so the first answers do not wait for the whole enumeration.
+ * The iterator holds the solver until it is exhausted or closed, it must be closed when the caller stops early.
+ */
+public class MSSIterator implements AutoCloseable {
+    private final MSSSolver mssSolver;
+    private final MSSEnumerator enumerator;
+    private final PackedCNF softClauses;
+    private final Clause hardCNF;
+    private Runnable release;
+
+    /**
+     * @param enumerator  enumerator of the selected soft clauses
+     * @param softClauses encoded soft formula
+     * @param hardCNF     the hard formula in CNF, shared by all the subsets
+     * @param release     releases the resources of the query, run once
+     */
+    MSSIterator(final MSSSolver mssSolver, final MSSEnumerator enumerator, final PackedCNF softClauses, final Clause hardCNF, final Runnable release) {
+        this.mssSolver = mssSolver;
+        this.enumerator = enumerator;
+        this.softClauses = softClauses;
+        this.hardCNF = hardCNF;
+        this.release = release;
+    }
+
+    /**
+     * @return the next maximum satisfiable subset: the hard formula and the selected soft clauses, in CNF; null if
+     * there is none left
+     */
+    public Clause next() throws FormulaError, Timeout {
+        BitSet subset = nextSubset();
+        return subset == null ? null : decode(subset);
+    }
+
+    /**
+     * @param subset indexes of the soft clauses in a subset
+     * @return the hard formula and the soft clauses of the subset, in CNF
+     */
+    Clause decode(final BitSet subset) throws FormulaError {
+        return mssSolver.decodeSubset(subset, softClauses, hardCNF);
+    }
+
+    /**
+     * @return indexes of the soft clauses in the next subset, null if there is none left
+     */
+    BitSet nextSubset() throws Timeout {
+        if (release == null) {
+            return null;
+        }
+        try {
+            BitSet subset = enumerator.next();
+            if (subset == null) {
+                close();
+            }
+            return subset;
+        } catch (TimeoutException e) {
+            close();
+            throw new Timeout(e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if a subset was found so far, i.e. the knowledge base and the hard formula are consistent
+     */
+    public boolean isConsistent() {
+        return enumerator.isSatisfiable();
+    }
+
+    /**
+     * @return false if the search was stopped by its budget, the subsets found so far are maximal but there may be
+     * others
+     * @see MSSSolver#iterator(Clause, Clause, Clause, MSSBudget)
+     */
+    public boolean isComplete() {
+        return enumerator.getStop() == MSSBudget.Stop.NONE;
+    }
+
+    /**
+     * @return the limit of the budget which stopped the search, {@link MSSBudget.Stop#NONE} if it was not stopped
+     */
+    public MSSBudget.Stop getStop() {
+        return enumerator.getStop();
+    }
+
+    /**
+     * @return the counters of the search, they are final when the iterator is exhausted or closed
+     */
+    public MSSStatistics getStatistics() {
+        return enumerator.getStatistics();
+    }
+
+    MSSSolver getSolver() {
+        return mssSolver;
+    }
+
+    PackedCNF getSoftClauses() {
+        return softClauses;
+    }
+
+    /**
+     * stop the search and release the solver, the subsets found so far stay valid
+     */
+    @Override
+    public void close() {
+        if (release != null) {
+            enumerator.close();
+            release.run();
+            release = null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * a soft formula and a hard formula to ask against a knowledge base, see
+ * {@link MSSSolver#call(Clause, java.util.Collection, int)}
+ * <p>
+ * queries are equal when their formulas are equal. The formulas are copied, in constant time, so the query does not
+ * change with them.
+ */
+public final class MSSQuery {
+    private final Clause softFormula;
+    private final Clause hardFormula;
+
+    /**
+     * @param softFormula soft formula, or null
+     * @param hardFormula hard formula, or null
+     */
+    public MSSQuery(final Clause softFormula, final Clause hardFormula) {
+        this.softFormula = (softFormula == null ? null : softFormula.clone());
+        this.hardFormula = (hardFormula == null ? null : hardFormula.clone());
+    }
+
+    public Clause getSoftFormula() {
+        return softFormula;
+    }
+
+    public Clause getHardFormula() {
+        return hardFormula;
+    }
+
+    /**
+     * @return the distinct queries grouped by hard formula, in the order of their first occurrence
+     */
+    static LinkedHashMap<Clause, List<MSSQuery>> groupByHardFormula(final Collection<MSSQuery> queries) {
+        HashSet<MSSQuery> distinct = new HashSet<>();
+        LinkedHashMap<Clause, List<MSSQuery>> groups = new LinkedHashMap<>();
+        for (MSSQuery query : queries) {
+            if (distinct.add(query)) {
+                groups.computeIfAbsent(query.hardFormula, hard -> new ArrayList<>()).add(query);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * @return the answer of each query, in the order of the queries
+     */
+    static List<List<Clause>> answers(final Collection<MSSQuery> queries, final Map<MSSQuery, List<Clause>> answers) {
+        List<List<Clause>> results = new ArrayList<>(queries.size());
+        for (MSSQuery query : queries) {
+            results.add(answers.get(query));
+        }
+        return results;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof MSSQuery)) {
+            return false;
+        }
+        MSSQuery query = (MSSQuery) o;
+        return Objects.equals(softFormula, query.softFormula) && Objects.equals(hardFormula, query.hardFormula);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(softFormula) + Objects.hashCode(hardFormula);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MSSQuery{soft=%s, hard=%s}", softFormula, hardFormula);
+    }
+}
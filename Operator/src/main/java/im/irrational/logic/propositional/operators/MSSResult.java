@@ -0,0 +1,63 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+
+import java.util.List;
+
+/**
+ * the maximum satisfiable subsets found by a search with a {@link MSSBudget}, see
+ * {@link MSSSolver#call(Clause, Clause, Clause, MSSBudget)}
+ * <p>
+ * when the budget is exhausted the search stops, the subsets found so far are maximal but the result is incomplete.
+ */
+public class MSSResult {
+    private final List<Clause> subsets;
+    private final boolean consistent;
+    private final MSSBudget.Stop stop;
+    private final MSSStatistics statistics;
+
+    MSSResult(final List<Clause> subsets, boolean consistent, MSSBudget.Stop stop, final MSSStatistics statistics) {
+        this.subsets = subsets;
+        this.consistent = consistent;
+        this.stop = stop;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the maximum satisfiable subsets found, in the order they were found
+     */
+    public List<Clause> getSubsets() {
+        return subsets;
+    }
+
+    /**
+     * @return true if every maximum satisfiable subset was found
+     */
+    public boolean isComplete() {
+        return stop == MSSBudget.Stop.NONE;
+    }
+
+    /**
+     * @return the limit of the budget which stopped the search, {@link MSSBudget.Stop#NONE} if it was not stopped
+     */
+    public MSSBudget.Stop getStop() {
+        return stop;
+    }
+
+    /**
+     * @return true if a subset was found; false if the knowledge base and the hard formula are inconsistent, or, when
+     * the result is incomplete, if the search stopped before the first subset
+     */
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    public MSSStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MSSResult{subsets=%s, stop=%s}", subsets, stop);
+    }
+}
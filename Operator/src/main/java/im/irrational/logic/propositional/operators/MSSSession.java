@@ -0,0 +1,250 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import org.sat4j.core.VecInt;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * a knowledge base loaded into a long-lived solver, see {@link MSSSolver#openSession(Clause, int)}
+ * <p>
+ * the knowledge base is encoded and added once. The hard and soft formulas of each query are conditioned on an
+ * activation literal which is assumed during the query and retracted afterwards, so the encoding of the knowledge base
+ * and the clauses learnt from it are kept from one query to the next.
+ * <p>
+ * the variables of retracted queries stay reserved in the dictionary of the {@link MSSSolver} until the session is
+ * closed. A session is not thread safe.
+ */
+public class MSSSession implements AutoCloseable {
+    private final MSSSolver mssSolver;
+    private IPBSolver solver;
+    /**
+     * timeout of each call to the SAT solver in seconds, restored after a query with a budget
+     */
+    private final int solverTimeout;
+    /**
+     * temporary variables of this session
+     */
+    final BitSet scope = new BitSet();
+    /**
+     * literals assumed by every query, null if there are none
+     */
+    private IVecInt assumptions = null;
+
+    MSSSession(final MSSSolver mssSolver, final IPBSolver solver, int solverTimeout) {
+        this.mssSolver = mssSolver;
+        this.solver = solver;
+        this.solverTimeout = solverTimeout;
+    }
+
+    /**
+     * find all the maximum satisfiable subsets of the soft formula with the knowledge base and the hard formula
+     *
+     * @param softFormula soft formula, or null
+     * @param hardFormula hard formula, or null
+     * @return the maximum satisfiable subsets, or null if the knowledge base and the hard formula are inconsistent
+     */
+    public List<Clause> call(final Clause softFormula, final Clause hardFormula) throws FormulaError, Timeout {
+        try (MSSIterator iterator = iterator(softFormula, hardFormula)) {
+            return MSSSolver.collect(iterator);
+        }
+    }
+
+    /**
+     * find the maximum satisfiable subsets within a budget for the whole query, see
+     * {@link MSSSolver#call(Clause, Clause, Clause, MSSBudget)}
+     */
+    public MSSResult call(final Clause softFormula, final Clause hardFormula, final MSSBudget budget) throws FormulaError {
+        try (MSSIterator iterator = iterator(softFormula, hardFormula, budget)) {
+            return MSSSolver.result(iterator);
+        }
+    }
+
+    /**
+     * find the maximum satisfiable subsets one at a time, the consumer gets each subset as soon as it is found
+     *
+     * @param consumer receives the subsets, it returns false to stop the search
+     * @return false if the knowledge base and the hard formula are inconsistent
+     */
+    public boolean call(final Clause softFormula, final Clause hardFormula, final Predicate<Clause> consumer) throws FormulaError, Timeout {
+        try (MSSIterator iterator = iterator(softFormula, hardFormula)) {
+            for (Clause mss = iterator.next(); mss != null; mss = iterator.next()) {
+                if (!consumer.test(mss)) {
+                    break;
+                }
+            }
+            return iterator.isConsistent();
+        }
+    }
+
+    /**
+     * start the search of the maximum satisfiable subsets, the query is retracted when the iterator is exhausted or
+     * closed. The queries of a session are independent, but only one iterator should be open at a time.
+     *
+     * @return the iterator, which must be closed if it is not exhausted
+     */
+    public MSSIterator iterator(final Clause softFormula, final Clause hardFormula) throws FormulaError {
+        return iterator(softFormula, hardFormula, null);
+    }
+
+    /**
+     * start the search of the maximum satisfiable subsets within a budget, see {@link #iterator(Clause, Clause)}
+     *
+     * @param budget limits of the query, or null for the timeout of the session
+     * @return the iterator, which must be closed if it is not exhausted
+     */
+    public MSSIterator iterator(final Clause softFormula, final Clause hardFormula, final MSSBudget budget) throws FormulaError {
+        if (solver == null) {
+            throw new IllegalStateException("the session is closed");
+        }
+        MSSStatistics statistics = new MSSStatistics();
+        long start = System.nanoTime();
+        int activation = mssSolver.newTempVariable(scope);
+        try {
+            try {
+                mssSolver.addHardClauses(solver, hardFormula, scope, activation);
+            } catch (ContradictionException e) {
+                // cannot happen, the clauses are satisfied by -activation
+                throw new FormulaError(e.getMessage());
+            }
+            return iterator(softFormula, mssSolver.toCNF(hardFormula), activation, budget, statistics, start);
+        } catch (FormulaError | RuntimeException e) {
+            retract(activation, new int[0]);
+            throw e;
+        }
+    }
+
+    /**
+     * find the maximum satisfiable subsets of many queries, the answers are in the order of the queries
+     * <p>
+     * equal queries are solved once and share their answer. The queries with the same hard formula are solved
+     * together: the hard formula is added once, conditioned on an activation literal which the guard of each query
+     * implies, and converted to CNF once.
+     *
+     * @return the maximum satisfiable subsets of each query, null for a query whose hard formula is inconsistent with
+     * the knowledge base
+     */
+    public List<List<Clause>> call(final Collection<MSSQuery> queries) throws FormulaError, Timeout {
+        if (solver == null) {
+            throw new IllegalStateException("the session is closed");
+        }
+        HashMap<MSSQuery, List<Clause>> answers = new HashMap<>();
+        for (Map.Entry<Clause, List<MSSQuery>> group : MSSQuery.groupByHardFormula(queries).entrySet()) {
+            call(group.getKey(), group.getValue(), answers);
+        }
+        return MSSQuery.answers(queries, answers);
+    }
+
+    /**
+     * answer the queries which share a hard formula
+     *
+     * @param answers receives the answer of each query
+     */
+    void call(final Clause hardFormula, final List<MSSQuery> group, final Map<MSSQuery, List<Clause>> answers) throws FormulaError, Timeout {
+        int activation = mssSolver.newTempVariable(scope);
+        VecInt implication = new VecInt(2);
+        try {
+            mssSolver.addHardClauses(solver, hardFormula, scope, activation);
+            Clause hardCNF = mssSolver.toCNF(hardFormula);
+            for (MSSQuery query : group) {
+                MSSStatistics statistics = new MSSStatistics();
+                long start = System.nanoTime();
+                int guard = mssSolver.newTempVariable(scope);
+                implication.clear();
+                solver.addClause(implication.push(-guard).push(activation));
+                try (MSSIterator iterator = iterator(query.getSoftFormula(), hardCNF, guard, null, statistics, start)) {
+                    answers.put(query, MSSSolver.collect(iterator));
+                }
+            }
+        } catch (ContradictionException e) {
+            // cannot happen, the clauses are satisfied by -activation
+            throw new FormulaError(e.getMessage());
+        } finally {
+            retract(activation, new int[0]);
+        }
+    }
+
+    /**
+     * add the soft formula of a query whose hard formula is conditioned on the guard
+     *
+     * @param guard literal which enables the hard formula, it is retracted with the query
+     */
+    private MSSIterator iterator(final Clause softFormula, final Clause hardCNF, int guard, final MSSBudget budget, final MSSStatistics statistics, long start) throws FormulaError {
+        int[] selectors = new int[0];
+        try {
+            PackedCNF softClauses = (softFormula == null ? new PackedCNF() : mssSolver.encodePacked(softFormula));
+            selectors = mssSolver.addSoftClauses(solver, softClauses, softFormula, scope);
+            final int[] querySelectors = selectors;
+            MSSEnumerator enumerator = mssSolver.newEnumerator(solver, softClauses, selectors, guard, () -> mssSolver.newTempVariable(scope), mssSolver.getEnumeration(), statistics, start, budget);
+            if (assumptions != null) {
+                enumerator.assume(assumptions);
+            }
+            return new MSSIterator(mssSolver, enumerator, softClauses, hardCNF, () -> {
+                retract(guard, querySelectors);
+                if (budget != null && solver != null) {
+                    solver.setTimeout(solverTimeout);
+                }
+            });
+        } catch (FormulaError | RuntimeException e) {
+            retract(guard, selectors);
+            throw e;
+        }
+    }
+
+    /**
+     * disable the clauses of a query for good
+     */
+    private void retract(int activation, final int[] selectors) {
+        if (solver == null) {
+            // the session is closed
+            return;
+        }
+        VecInt unit = new VecInt(1);
+        try {
+            solver.addClause(unit.push(-activation));
+            for (int selector : selectors) {
+                unit.clear();
+                solver.addClause(unit.push(-selector));
+            }
+        } catch (ContradictionException e) {
+            // cannot happen, the variables are only used by the query
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param literals literals assumed by every query from now on, null for none
+     */
+    void assume(final IVecInt literals) {
+        assumptions = literals;
+    }
+
+    /**
+     * @return the solver of the session, null once it is closed
+     */
+    IPBSolver getSolver() {
+        return solver;
+    }
+
+    /**
+     * release the solver and the variables of the session
+     */
+    @Override
+    public void close() {
+        if (solver != null) {
+            solver.reset();
+            solver = null;
+            mssSolver.releaseTempVariables(scope);
+        }
+    }
+}
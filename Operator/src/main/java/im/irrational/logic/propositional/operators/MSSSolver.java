@@ -3,184 +3,724 @@ package im.irrational.logic.propositional.operators;
 import im.irrational.logic.propositional.*;
 import org.sat4j.core.Vec;
 import org.sat4j.core.VecInt;
+import org.sat4j.pb.IPBSolver;
 import org.sat4j.pb.SolverFactory;
 import org.sat4j.specs.*;
-import org.sat4j.tools.ModelIterator;
 
 import java.util.*;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
 
 import static java.lang.Math.abs;
 
 /**
  * find all the maximum satisfiable subsets
+ * <p>
+ * a solver is thread safe: its calls and sessions may run in several threads at once, they share one dictionary so a
+ * word has the same variable in all of them, and each call allocates its selectors and other temporary variables in a
+ * scope of its own. A setting applies to the calls which start after it is changed. An {@link MSSIterator} or a
+ * {@link MSSSession} must be used by one thread at a time.
  */
 public class MSSSolver {
-    private final HashMap<String, Integer> dictWord2Int = new HashMap<>();
-    private final HashMap<Integer, String> dictInt2Word = new HashMap<>();
-    private final HashSet<Integer> tempVariables = new HashSet<>();
-    private SAT4JSolverType solverType = SAT4JSolverType.DEFAULT;
+    /**
+     * dictionary between words and variables, shared by all the calls and sessions of this solver
+     */
+    private final VariableDictionary dictionary = new VariableDictionary();
+    private volatile SAT4JSolverType solverType = SAT4JSolverType.DEFAULT;
+    private volatile CNFEncoding cnfEncoding = CNFEncoding.DISTRIBUTIVE;
+    private volatile Enumeration enumeration = Enumeration.CORRECTION_SETS;
+    private volatile CNFCache cnfCache = null;
+    private volatile boolean preprocessing = true;
+    private volatile IMSSListener listener = NO_LISTENER;
 
-    public MSSSolver(SAT4JSolverType type) {
+    static final IMSSListener NO_LISTENER = new IMSSListener() {
+    };
+
+    public MSSSolver(SAT4JSolverType type, CNFEncoding encoding) {
         solverType = type;
+        cnfEncoding = encoding;
+    }
+
+    public MSSSolver(SAT4JSolverType type) {
+        this(type, CNFEncoding.DISTRIBUTIVE);
     }
 
     public MSSSolver(){
         this(SAT4JSolverType.DEFAULT);
     }
 
+    public CNFEncoding getCNFEncoding() {
+        return cnfEncoding;
+    }
+
+    /**
+     * select how the knowledge base and the hard formula are encoded, the soft formula is always distributed into CNF
+     * because its clauses are the units of the maximum satisfiable subsets
+     *
+     * @param encoding the encoding of the hard part
+     */
+    public void setCNFEncoding(CNFEncoding encoding) {
+        this.cnfEncoding = encoding;
+    }
+
+    /**
+     * @return how the maximum satisfiable subsets are enumerated, {@link Enumeration#CORRECTION_SETS} by default
+     */
+    public Enumeration getEnumeration() {
+        return enumeration;
+    }
+
+    /**
+     * select how the maximum satisfiable subsets are enumerated, both give the same subsets. The calls which return a
+     * list sort it in the same order either way, an {@link MSSIterator} returns the subsets in the order they are found
+     *
+     * @param enumeration the enumeration strategy
+     */
+    public void setEnumeration(Enumeration enumeration) {
+        this.enumeration = enumeration;
+    }
+
+    /**
+     * @return the cache of the CNF conversions of the formulas, null if there is none, which is the default
+     */
+    public CNFCache getCNFCache() {
+        return cnfCache;
+    }
+
+    /**
+     * use a cache for the CNF conversions of the formulas, knowledge bases included, which pays off when the same
+     * formulas are converted by many calls. The cache keeps each converted formula and its conversion, so it holds
+     * about twice maxWeight literals, see {@link CNFCache}
+     *
+     * @param cache cache of the CNF conversions of the formulas, null to convert them every time
+     */
+    public void setCNFCache(CNFCache cache) {
+        this.cnfCache = cache;
+    }
+
+    public boolean isPreprocessing() {
+        return preprocessing;
+    }
+
+    /**
+     * select whether the knowledge base and the hard formula are simplified by a {@link CNFPreprocessor} before they are
+     * added to the solver. A single call eliminates the variables which are not in the soft clauses, a session only
+     * applies the steps which keep the knowledge base equivalent, since its queries may use any variable. The subsets
+     * are the same either way.
+     *
+     * @param preprocessing true to simplify the hard part
+     */
+    public void setPreprocessing(boolean preprocessing) {
+        this.preprocessing = preprocessing;
+    }
+
+    public IMSSListener getListener() {
+        return (listener == NO_LISTENER ? null : listener);
+    }
+
+    /**
+     * @param listener listener of the progress of every search of this solver and of its sessions, null for none. It is
+     *                 called by the threads of the searches, possibly at the same time, with the statistics of
+     *                 each search, see {@link IMSSListener}
+     */
+    public void setListener(IMSSListener listener) {
+        this.listener = (listener == null ? NO_LISTENER : listener);
+    }
+
     public List<Clause> call(final Clause kb, final Clause softFormula, final Clause hardFormula, final int solverTimeout) throws FormulaError, Timeout {
-        // init solver
-        ISolver solver = null;
-        switch (this.solverType) {
-            case LIGHT:
-                solver = SolverFactory.newLight();
-                break;
-            case DEFAULT:
-            default:
-                solver = SolverFactory.newDefault();
+        try (MSSIterator iterator = iterator(kb, softFormula, hardFormula, solverTimeout)) {
+            return collect(iterator);
         }
+    }
+
+    /**
+     * find the maximum satisfiable subsets one at a time, the consumer gets each subset as soon as it is found
+     *
+     * @param consumer receives the subsets, it returns false to stop the search
+     * @return false if the knowledge base and the hard formula are inconsistent
+     */
+    public boolean call(final Clause kb, final Clause softFormula, final Clause hardFormula, final int solverTimeout, final Predicate<Clause> consumer) throws FormulaError, Timeout {
+        try (MSSIterator iterator = iterator(kb, softFormula, hardFormula, solverTimeout)) {
+            for (Clause mss = iterator.next(); mss != null; mss = iterator.next()) {
+                if (!consumer.test(mss)) {
+                    break;
+                }
+            }
+            return iterator.isConsistent();
+        }
+    }
+
+    /**
+     * find the maximum satisfiable subsets of many queries against the same knowledge base, which is encoded and
+     * simplified once
+     * <p>
+     * equal queries are solved once and share their answer. The queries with the same hard formula are solved together
+     * in a session of their own, see {@link MSSSession#call(Collection)}, so the solver does not grow with the other
+     * queries of the batch.
+     *
+     * @return the maximum satisfiable subsets of each query, in the order of the queries, null for a query whose hard
+     * formula is inconsistent with the knowledge base
+     */
+    public List<List<Clause>> call(final Clause kb, final Collection<MSSQuery> queries, final int solverTimeout) throws FormulaError, Timeout {
+        BitSet scope = new BitSet();
+        try {
+            PackedCNF encodedKB = preprocess(encodeHard(kb, scope), null, new MSSStatistics());
+            HashMap<MSSQuery, List<Clause>> answers = new HashMap<>();
+            for (Map.Entry<Clause, List<MSSQuery>> group : MSSQuery.groupByHardFormula(queries).entrySet()) {
+                try (MSSSession session = openSession(encodedKB, solverTimeout)) {
+                    session.call(group.getKey(), group.getValue(), answers);
+                }
+            }
+            return MSSQuery.answers(queries, answers);
+        } finally {
+            releaseTempVariables(scope);
+        }
+    }
+
+    /**
+     * find the maximum satisfiable subsets within a budget for the whole search, instead of a timeout of each call to
+     * the SAT solver. When the budget is exhausted the subsets found so far are returned, flagged as incomplete.
+     *
+     * @param budget limits of the search, it can be cancelled from another thread
+     */
+    public MSSResult call(final Clause kb, final Clause softFormula, final Clause hardFormula, final MSSBudget budget) throws FormulaError {
+        try (MSSIterator iterator = iterator(kb, softFormula, hardFormula, budget)) {
+            return result(iterator);
+        }
+    }
+
+    /**
+     * start the search of the maximum satisfiable subsets, see {@link MSSIterator}
+     *
+     * @return the iterator, which must be closed if it is not exhausted
+     */
+    public MSSIterator iterator(final Clause kb, final Clause softFormula, final Clause hardFormula, final int solverTimeout) throws FormulaError {
+        return iterator(kb, softFormula, hardFormula, solverTimeout, enumeration, null);
+    }
+
+    /**
+     * start the search of the maximum satisfiable subsets within a budget, see
+     * {@link #call(Clause, Clause, Clause, MSSBudget)}
+     *
+     * @return the iterator, which must be closed if it is not exhausted
+     */
+    public MSSIterator iterator(final Clause kb, final Clause softFormula, final Clause hardFormula, final MSSBudget budget) throws FormulaError {
+        return iterator(kb, softFormula, hardFormula, Integer.MAX_VALUE, enumeration, budget);
+    }
+
+    /**
+     * find all the maximum satisfiable subsets of encoded clauses, e.g. of a {@link DIMACSInstance}, without building
+     * formulas. The literals are variables of this solver, the ones which are not words are decoded as unnamed.
+     *
+     * @param kb          encoded knowledge base
+     * @param softClauses encoded soft clauses
+     * @return the subsets of the soft clauses, or null if the knowledge base is inconsistent
+     */
+    public List<Clause> call(final PackedCNF kb, final PackedCNF softClauses, final int solverTimeout) throws FormulaError, Timeout {
+        try (MSSIterator iterator = iterator(kb, softClauses, solverTimeout)) {
+            return collect(iterator);
+        }
+    }
+
+    /**
+     * start the search of the maximum satisfiable subsets of encoded clauses, see {@link #call(PackedCNF, PackedCNF, int)}
+     *
+     * @return the iterator, which must be closed if it is not exhausted
+     */
+    public MSSIterator iterator(final PackedCNF kb, final PackedCNF softClauses, final int solverTimeout) throws FormulaError {
+        IPBSolver solver = newSAT4JSolver();
         solver.setTimeout(solverTimeout);
-        // clear temporary variables
-        this.tempVariables.clear();
-        // add kb
+        BitSet scope = new BitSet();
+        Runnable release = () -> {
+            solver.reset();
+            releaseTempVariables(scope);
+        };
         try {
-            addHardClauses(solver, kb);
-        } catch (ContradictionException e) {
-            throw new FormulaError(String.format("Inconsistent Knowledge Base"));
+            MSSStatistics statistics = new MSSStatistics();
+            long start = System.nanoTime();
+            // the variables of the clauses may not be words, keep them from the temporary variables of this call
+            reserveVariables(scope, Math.max(kb.getMaxVariable(), softClauses.getMaxVariable()));
+            try {
+                PackedCNF hardClauses = preprocess(kb, softClauses, statistics);
+                statistics.hardClauses = hardClauses.size();
+                hardClauses.addTo(solver);
+            } catch (ContradictionException e) {
+                throw new FormulaError(String.format("Inconsistent Knowledge Base"));
+            }
+            int[] selectors = addSoftClauses(solver, softClauses, null, scope);
+            MSSEnumerator enumerator = newEnumerator(solver, softClauses, selectors, newTempVariable(scope), () -> newTempVariable(scope), enumeration, statistics, start, null);
+            return new MSSIterator(this, enumerator, softClauses, new Clause(eClauseType.CONJUNCTIVE), release);
+        } catch (FormulaError | RuntimeException e) {
+            release.run();
+            throw e;
         }
-        // add hard clauses
+    }
+
+    /**
+     * find all the minimal correction sets, i.e. the complements of the maximum satisfiable subsets: the minimal sets
+     * of soft clauses to give up to be consistent with the knowledge base and the hard formula
+     *
+     * @return the correction sets as conjunctions of soft clauses, or null if the knowledge base and the hard formula
+     * are inconsistent
+     */
+    public List<Clause> findAllCoMSSes(final Clause kb, final Clause softFormula, final Clause hardFormula, final int solverTimeout) throws FormulaError, Timeout {
+        try (MSSIterator iterator = iterator(kb, softFormula, hardFormula, solverTimeout, Enumeration.CORRECTION_SETS, null)) {
+            PackedCNF softClauses = iterator.getSoftClauses();
+            LinkedList<Clause> coMSSes = new LinkedList<>();
+            for (BitSet subset = iterator.nextSubset(); subset != null; subset = iterator.nextSubset()) {
+                Clause coMSS = new Clause(eClauseType.CONJUNCTIVE);
+                for (int clause = subset.nextClearBit(0); clause < softClauses.size(); clause = subset.nextClearBit(clause + 1)) {
+                    coMSS.add(decodeClause(softClauses, clause));
+                }
+                coMSSes.add(coMSS.toCNF());
+            }
+            return iterator.isConsistent() ? coMSSes : null;
+        }
+    }
+
+    private MSSIterator iterator(final Clause kb, final Clause softFormula, final Clause hardFormula, final int solverTimeout, Enumeration strategy,
+                                 final MSSBudget budget) throws FormulaError {
+        // init solver
+        IPBSolver solver = newSAT4JSolver();
+        solver.setTimeout(solverTimeout);
+        // temporary variables of this call
+        BitSet scope = new BitSet();
+        Runnable release = () -> {
+            solver.reset();
+            releaseTempVariables(scope);
+        };
         try {
-            addHardClauses(solver, hardFormula);
-        } catch (ContradictionException e) {
-            throw new FormulaError(e.getMessage());
+            MSSStatistics statistics = new MSSStatistics();
+            long start = System.nanoTime();
+            PackedCNF encodedKB = encodeHard(kb, scope);
+            PackedCNF encodedHardFormula = encodeHard(hardFormula, scope);
+            PackedCNF softClauses = (softFormula == null ? new PackedCNF() : encodePacked(softFormula));
+            PackedCNF simplified = null;
+            if (preprocessing) {
+                PackedCNF hardClauses = new PackedCNF(encodedKB.size() + encodedHardFormula.size(), encodedKB.numberOfLiterals() + encodedHardFormula.numberOfLiterals());
+                hardClauses.addAll(encodedKB);
+                hardClauses.addAll(encodedHardFormula);
+                simplified = preprocess(hardClauses, softClauses, statistics);
+                if (simplified == hardClauses) {
+                    simplified = null;
+                }
+            }
+            if (simplified != null) {
+                statistics.hardClauses = simplified.size();
+                try {
+                    simplified.addTo(solver);
+                } catch (ContradictionException e) {
+                    throw new FormulaError(e.getMessage());
+                }
+            } else {
+                statistics.hardClauses = encodedKB.size() + encodedHardFormula.size();
+                // without preprocessing, or inconsistent: add kb
+                try {
+                    encodedKB.addTo(solver);
+                } catch (ContradictionException e) {
+                    throw new FormulaError(String.format("Inconsistent Knowledge Base"));
+                }
+                // add hard clauses
+                try {
+                    encodedHardFormula.addTo(solver);
+                } catch (ContradictionException e) {
+                    throw new FormulaError(e.getMessage());
+                }
+            }
+            // add soft clauses
+            int[] selectors = addSoftClauses(solver, softClauses, softFormula, scope);
+            // find maximum subsat
+            MSSEnumerator enumerator = newEnumerator(solver, softClauses, selectors, newTempVariable(scope), () -> newTempVariable(scope), strategy, statistics, start, budget);
+            return new MSSIterator(this, enumerator, softClauses, toCNF(hardFormula), release);
+        } catch (FormulaError | RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    /**
+     * make the enumerator of a search whose formulas are added to the solver, and notify the listener
+     *
+     * @param start  start of the encoding, in nanoseconds
+     * @param budget limits of the search, or null
+     */
+    MSSEnumerator newEnumerator(final IPBSolver solver, final PackedCNF softClauses, final int[] selectors, int guard, final IntSupplier newVariable,
+                                Enumeration strategy, final MSSStatistics statistics, long start, final MSSBudget budget) {
+        statistics.softClauses = softClauses.size();
+        statistics.encodingTime = System.nanoTime() - start - statistics.preprocessingTime;
+        IMSSListener listener = this.listener;
+        MSSEnumerator enumerator = new MSSEnumerator(solver, softClauses, selectors, guard, newVariable, strategy, statistics, listener, budget);
+        listener.onStart(statistics);
+        return enumerator;
+    }
+
+    /**
+     * exhaust the iterator
+     *
+     * @return the subsets in the order of {@link #sort(PackedCNF, List)}, null if the knowledge base and the hard formula
+     * are inconsistent
+     */
+    static List<Clause> collect(final MSSIterator iterator) throws FormulaError, Timeout {
+        ArrayList<BitSet> subsets = new ArrayList<>();
+        for (BitSet subset = iterator.nextSubset(); subset != null; subset = iterator.nextSubset()) {
+            subsets.add(subset);
         }
-        // add soft clauses
-        HashMap<Integer, VecInt> selectorClauseMap = addSoftClauses(solver, softFormula);
-        // create selector vector
-        VecInt selectors = new VecInt();
-        for (Integer selector : selectorClauseMap.keySet()){
-            selectors.push(selector);
+        return iterator.isConsistent() ? decode(iterator, subsets) : null;
+    }
+
+    /**
+     * exhaust the iterator of a search with a budget, the subsets are in the order of {@link #sort(PackedCNF, List)}
+     */
+    static MSSResult result(final MSSIterator iterator) throws FormulaError {
+        ArrayList<BitSet> subsets = new ArrayList<>();
+        try {
+            for (BitSet subset = iterator.nextSubset(); subset != null; subset = iterator.nextSubset()) {
+                subsets.add(subset);
+            }
+        } catch (Timeout e) {
+            // cannot happen, the budget stops the search instead
+            throw new IllegalStateException(e);
         }
+        return new MSSResult(decode(iterator, subsets), iterator.isConsistent(), iterator.getStop(), iterator.getStatistics());
+    }
+
+    private static List<Clause> decode(final MSSIterator iterator, final List<BitSet> subsets) throws FormulaError {
         LinkedList<Clause> MSSes = new LinkedList<>();
-        boolean unsat = true;
-        // find maximum subsat
+        for (BitSet subset : iterator.getSolver().sort(iterator.getSoftClauses(), subsets)) {
+            MSSes.add(iterator.decode(subset));
+        }
+        return MSSes;
+    }
+
+    /**
+     * sort the subsets in the same order whatever the {@link Enumeration}: by decreasing size, then the subset which
+     * lacks the first soft clause in the {@link CanonicalOrder} where they differ first
+     *
+     * @param softClauses encoded soft clauses
+     * @param subsets     indexes of the soft clauses in each subset
+     * @return the sorted subsets
+     */
+    List<BitSet> sort(final PackedCNF softClauses, final List<BitSet> subsets) throws FormulaError {
+        if (subsets.size() < 2) {
+            return subsets;
+        }
+        Clause[] clauses = new Clause[softClauses.size()];
+        Integer[] order = new Integer[clauses.length];
+        for (int clause = 0; clause < clauses.length; clause++) {
+            clauses[clause] = decodeClause(softClauses, clause);
+            order[clause] = clause;
+        }
+        Arrays.sort(order, (a, b) -> CanonicalOrder.INSTANCE.compare(clauses[a], clauses[b]));
+        // the subsets over the ranks of their clauses in the canonical order
+        IdentityHashMap<BitSet, BitSet> ranked = new IdentityHashMap<>();
+        for (BitSet subset : subsets) {
+            BitSet ranks = new BitSet(clauses.length);
+            for (int rank = 0; rank < order.length; rank++) {
+                if (subset.get(order[rank])) {
+                    ranks.set(rank);
+                }
+            }
+            ranked.put(subset, ranks);
+        }
+        subsets.sort((a, b) -> {
+            if (a.cardinality() != b.cardinality()) {
+                return b.cardinality() - a.cardinality();
+            }
+            BitSet x = ranked.get(a);
+            BitSet difference = (BitSet) x.clone();
+            difference.xor(ranked.get(b));
+            return difference.isEmpty() ? 0 : (x.get(difference.nextSetBit(0)) ? 1 : -1);
+        });
+        return subsets;
+    }
+
+    /**
+     * open a session which keeps the knowledge base in a solver, to answer many queries against it
+     *
+     * @param kb            knowledge base
+     * @param solverTimeout timeout of each call to the SAT solver in seconds
+     * @return the session, which must be closed after use
+     */
+    public MSSSession openSession(final Clause kb, final int solverTimeout) throws FormulaError {
+        IPBSolver solver = newSAT4JSolver();
+        solver.setTimeout(solverTimeout);
+        MSSSession session = new MSSSession(this, solver, solverTimeout);
         try {
-            for (int bound = selectorClauseMap.size(); bound>=0; bound--){
-                try{
-                    IConstr selectionConstraint = solver.addAtLeast(selectors, bound);
-                    ModelIterator mi = new ModelIterator(solver);
-                    while (mi.isSatisfiable()){
-                        unsat = false;
-                        int[] model = mi.model();
-                        // create maxsat subset according to the model
-                        Clause mss = (hardFormula == null? new Clause(eClauseType.CONJUNCTIVE) : hardFormula.toCNF());
-                        VecInt blocking = new VecInt();
-                        for (int value : model){
-                            if (selectorClauseMap.containsKey(value)){
-                                blocking.push(-value);
-                                VecInt clause = selectorClauseMap.get(value);
-                                Clause disjunctiveClause = new Clause(eClauseType.DISJUNCTIVE);
-                                for (IteratorInt it = clause.iterator(); it.hasNext();){
-                                    int literal = it.next();
-                                    disjunctiveClause.add(decode(literal));
-                                    blocking.push(-literal);
-                                }
-                                mss.add(disjunctiveClause);
-                            }
-                        }
-                        try{
-                            solver.addBlockingClause(blocking);
-                        } catch (ContradictionException e){
-                            // removing constraint if it has been added?
-                        }
-                        // this is a hack
-                        // to keep the maximum sets
-                        mss = mss.toCNF();
-                        boolean isMaximum = true;
-                        LinkedList<Clause> redundant = new LinkedList<>();
-                        for (Clause existingMSS: MSSes){
-                            if (existingMSS.containsAll(mss)){
-                                isMaximum = false;
-                                break;
-                            } else if (mss.containsAll(existingMSS)){
-                                redundant.push(existingMSS);
-                            }
-                        }
-                        if (isMaximum) {
-                            // add maximum set
-                            MSSes.add(mss);
-                        }
-                        // remove sets that are no longer maximum
-                        for (Clause toRemove : redundant){
-                            MSSes.remove(toRemove);
-                        }
-                    }
-                    // backtrack
-                    solver.removeConstr(selectionConstraint);
-                } catch (ContradictionException e){
+            preprocess(encodeHard(kb, session.scope), null, new MSSStatistics()).addTo(solver);
+        } catch (ContradictionException e) {
+            session.close();
+            throw new FormulaError(String.format("Inconsistent Knowledge Base"));
+        } catch (FormulaError | RuntimeException e) {
+            session.close();
+            throw e;
+        }
+        return session;
+    }
+
+    /**
+     * open an empty knowledge base to which formulas are added and from which they are retracted between queries
+     *
+     * @param solverTimeout timeout of each call to the SAT solver in seconds
+     * @return the knowledge base, which must be closed after use
+     */
+    public IncrementalKB openIncrementalKB(final int solverTimeout) {
+        return new IncrementalKB(this, solverTimeout);
+    }
 
+    /**
+     * encode the knowledge base for {@link KBSnapshot#write(java.nio.file.Path)}, with the whole dictionary of this
+     * solver
+     *
+     * @param kb knowledge base
+     * @return the snapshot
+     */
+    public KBSnapshot snapshot(final Clause kb) throws FormulaError {
+        BitSet scope = new BitSet();
+        try {
+            PackedCNF encodedKB = (cnfEncoding == CNFEncoding.DEFINITIONAL ? encodeDefinitional(kb, scope) : encodePacked(kb));
+            int[] dictWords = dictionary.words();
+            String[] words = new String[Math.max(dictWords.length - 1, encodedKB.getMaxVariable()) + 1];
+            for (int var = 1; var < dictWords.length; var++) {
+                if (dictWords[var] != 0) {
+                    words[var] = SymbolTable.getGlobal().getName(dictWords[var] - 1);
                 }
             }
-        } catch (TimeoutException e){
-            throw new Timeout(e.getMessage());
+            return new KBSnapshot(encodedKB, words);
         } finally {
-            if (unsat){
-                MSSes = null;
-            }
+            // the auxiliary variables are only names in the snapshot
+            releaseTempVariables(scope);
         }
-        return MSSes;
     }
 
     /**
-     * you are not expected to understand this
+     * add the dictionary of the snapshot to this solver. A word which is new to this solver keeps its variable if the
+     * variable is free, so a new solver gets the same dictionary as the one which made the snapshot and the knowledge
+     * base is used as it is. Otherwise the knowledge base is copied with its variables renamed.
+     * <p>
+     * the variables which are not words are not reserved once this returns, so a later word may take one of them:
+     * {@link #openSession(KBSnapshot, int)} reserves them for the session.
      *
-     * @return
-     * @param solver
+     * @return the knowledge base in the variables of this solver, the ones which are not words are decoded as unnamed
      */
-//    private HashSet<HashSet<VecInt>> findAllCoMSSes(ISolver solver) {
-//        int bound = 1;
-//        HashSet<HashSet<VecInt>> comsses = new HashSet<>();
-//
-//
-//    }
+    public PackedCNF restore(final KBSnapshot snapshot) {
+        BitSet scope = new BitSet();
+        try {
+            return restore(snapshot, scope);
+        } finally {
+            releaseTempVariables(scope);
+        }
+    }
 
-    private void addHardClauses(final ISolver solver, final Clause formula) throws FormulaError, ContradictionException {
-        if (formula != null) {
-            Vec<VecInt> encodedHardFormula = encode(formula);
-            for (Iterator<VecInt> it = encodedHardFormula.iterator(); it.hasNext(); ) {
-                solver.addClause(it.next());
+    /**
+     * @param scope temporary variables of the caller, which hold the variables of the knowledge base that are not words
+     */
+    private PackedCNF restore(final KBSnapshot snapshot, final BitSet scope) {
+        int numberOfVariables = snapshot.getNumberOfVariables();
+        int[] words = new int[numberOfVariables + 1];
+        for (int var = 1; var <= numberOfVariables; var++) {
+            String name = snapshot.getWord(var);
+            words[var] = (name != null ? SymbolTable.getGlobal().intern(name) : -1);
+        }
+        // the words are bound and the other variables reserved under one lock of the dictionary
+        int[] variables = dictionary.restore(words, scope);
+        boolean renamed = false;
+        for (int var = 1; var <= numberOfVariables; var++) {
+            renamed |= (variables[var] != var);
+        }
+        PackedCNF kb = snapshot.getKnowledgeBase();
+        if (!renamed) {
+            return kb;
+        }
+        PackedCNF renamedKB = new PackedCNF(kb.size(), kb.numberOfLiterals());
+        for (int clause = 0; clause < kb.size(); clause++) {
+            renamedKB.startClause();
+            for (int i = 0; i < kb.clauseSize(clause); i++) {
+                int literal = kb.get(clause, i);
+                renamedKB.addLiteral(literal > 0 ? variables[literal] : -variables[-literal]);
             }
+            renamedKB.endClause();
+        }
+        return renamedKB;
+    }
+
+    /**
+     * open a session on a knowledge base restored from a snapshot, without converting it again; the variables of the
+     * knowledge base which are not words stay reserved as long as the session
+     *
+     * @see #restore(KBSnapshot)
+     * @see #openSession(Clause, int)
+     */
+    public MSSSession openSession(final KBSnapshot snapshot, final int solverTimeout) throws FormulaError {
+        IPBSolver solver = newSAT4JSolver();
+        solver.setTimeout(solverTimeout);
+        MSSSession session = new MSSSession(this, solver, solverTimeout);
+        try {
+            preprocess(restore(snapshot, session.scope), null, new MSSStatistics()).addTo(solver);
+        } catch (ContradictionException e) {
+            session.close();
+            throw new FormulaError(String.format("Inconsistent Knowledge Base"));
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
         }
+        return session;
     }
 
-    private HashMap<Integer, VecInt> addSoftClauses(final ISolver solver, final Clause formula) throws FormulaError {
-        HashMap<Integer, VecInt> selectorClauseMap = new HashMap<>();
+    /**
+     * open a session on an encoded knowledge base, whose auxiliary variables stay reserved as long as the session
+     */
+    private MSSSession openSession(final PackedCNF kb, final int solverTimeout) throws FormulaError {
+        IPBSolver solver = newSAT4JSolver();
+        solver.setTimeout(solverTimeout);
+        MSSSession session = new MSSSession(this, solver, solverTimeout);
+        try {
+            reserveVariables(session.scope, kb.getMaxVariable());
+            kb.addTo(solver);
+        } catch (ContradictionException e) {
+            session.close();
+            throw new FormulaError(String.format("Inconsistent Knowledge Base"));
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+        return session;
+    }
+
+    IPBSolver newSAT4JSolver() {
+        switch (this.solverType) {
+            case LIGHT:
+                return SolverFactory.newLight();
+            case DEFAULT:
+            default:
+                return SolverFactory.newDefault();
+        }
+    }
+
+    /**
+     * @return the hard formula in CNF, it is the same in every subset so it is converted once
+     */
+    Clause toCNF(final Clause hardFormula) throws FormulaError {
+        return (hardFormula == null ? new Clause(eClauseType.CONJUNCTIVE) : convertToCNF(hardFormula));
+    }
+
+    /**
+     * convert the formula through the cache, if any
+     */
+    private Clause convertToCNF(final Clause formula) throws FormulaError {
+        CNFCache cache = cnfCache;
+        return (cache == null ? formula.toCNF() : cache.toCNF(formula));
+    }
+
+    /**
+     * build a maximum satisfiable subset: the hard formula and the selected soft clauses, in CNF
+     *
+     * @param subset      indexes of the selected soft clauses
+     * @param softClauses encoded soft formula
+     * @param hardCNF     hard formula in CNF
+     */
+    Clause decodeSubset(final BitSet subset, final PackedCNF softClauses, final Clause hardCNF) throws FormulaError {
+        Clause mss = hardCNF.clone();
+        for (int clause = subset.nextSetBit(0); clause >= 0; clause = subset.nextSetBit(clause + 1)) {
+            mss.add(decodeClause(softClauses, clause));
+        }
+        return mss.toCNF();
+    }
+
+    private Clause decodeClause(final PackedCNF cnfFormula, int clause) throws FormulaError {
+        Clause disjunctiveClause = new Clause(eClauseType.DISJUNCTIVE);
+        for (int i = 0; i < cnfFormula.clauseSize(clause); i++) {
+            disjunctiveClause.add(decode(cnfFormula.get(clause, i)));
+        }
+        return disjunctiveClause;
+    }
+
+    /**
+     * @param guard literal to condition the clauses on, 0 to add them unconditionally
+     */
+    void addHardClauses(final ISolver solver, final Clause formula, final BitSet scope, int guard) throws FormulaError, ContradictionException {
         if (formula != null) {
-            Vec<VecInt> encodedSoftFormula = encode(formula);
-            // generate selector variables
-            int var = dictInt2Word.size() + tempVariables.size() + 1;
+            PackedCNF encodedHardFormula = encodeHard(formula, scope);
+            VecInt buffer = new VecInt();
+            for (int i = 0; i < encodedHardFormula.size(); i++) {
+                encodedHardFormula.addClauseTo(solver, i, -guard, buffer);
+            }
+        }
+    }
 
-            for (Iterator<VecInt> it = encodedSoftFormula.iterator(); it.hasNext();) {
-                while (dictInt2Word.containsKey(var) || tempVariables.contains(var)) {
-                    var++;
-                }
-                tempVariables.add(var);
-                // add soft clause with selector variable
-                VecInt sWithY = new VecInt();
-                VecInt clause = it.next();
-                sWithY.pushAll(clause);
-                sWithY.push(-var); //deselect the clause by default
+    /**
+     * encode a hard formula with the encoding of this solver
+     *
+     * @return the encoded formula, empty if the formula is null
+     */
+    PackedCNF encodeHard(final Clause formula, final BitSet scope) throws FormulaError {
+        if (formula == null) {
+            return new PackedCNF();
+        }
+        return (cnfEncoding == CNFEncoding.DEFINITIONAL ? encodeDefinitional(formula, scope) : encodePacked(formula));
+    }
 
-                selectorClauseMap.put(var, clause);
+    /**
+     * simplify the hard clauses if the preprocessing is enabled
+     *
+     * @param softClauses soft clauses whose variables are kept, null to keep the clauses equivalent
+     * @return the simplified clauses, or the given ones if they are inconsistent, so that the inconsistency is reported
+     * as without preprocessing
+     */
+    private PackedCNF preprocess(final PackedCNF hardClauses, final PackedCNF softClauses, final MSSStatistics statistics) {
+        if (!preprocessing) {
+            return hardClauses;
+        }
+        long start = System.nanoTime();
+        CNFPreprocessor preprocessor = new CNFPreprocessor(softClauses != null);
+        if (softClauses != null) {
+            preprocessor.freeze(softClauses);
+        }
+        PackedCNF simplified = preprocessor.simplify(hardClauses);
+        statistics.preprocessingTime += System.nanoTime() - start;
+        return (simplified.size() == 1 && simplified.clauseSize(0) == 0 ? hardClauses : simplified);
+    }
 
-                try {
-                    solver.addClause(sWithY);
-                } catch (ContradictionException e) {
-                    throw new FormulaError(String.format("Unexpected Error with the soft formula: %s", formula.toString()));
-                }
+    /**
+     * add every soft clause together with a new selector variable
+     *
+     * @return the selector of each soft clause, in increasing order
+     */
+    int[] addSoftClauses(final ISolver solver, final PackedCNF encodedSoftFormula, final Clause formula, final BitSet scope) throws FormulaError {
+        int[] selectors = new int[encodedSoftFormula.size()];
+        VecInt buffer = new VecInt();
+        for (int i = 0; i < encodedSoftFormula.size(); i++) {
+            // generate selector variables
+            selectors[i] = newTempVariable(scope);
+            try {
+                //deselect the clause by default
+                encodedSoftFormula.addClauseTo(solver, i, -selectors[i], buffer);
+            } catch (ContradictionException e) {
+                throw new FormulaError(String.format("Unexpected Error with the soft formula: %s", formula == null ? encodedSoftFormula : formula));
             }
         }
-        return selectorClauseMap;
+        return selectors;
+    }
+
+    /**
+     * allocate a variable that is not in the dictionary, it will never be decoded to a named literal.
+     * it stays reserved until the scope is released, so new words never take it.
+     *
+     * @param scope temporary variables of the caller
+     * @return the new variable
+     */
+    int newTempVariable(final BitSet scope) {
+        return dictionary.newTemporary(scope);
+    }
+
+    /**
+     * reserve the variables up to maxVariable which are neither words nor temporary variables
+     */
+    private void reserveVariables(final BitSet scope, int maxVariable) {
+        dictionary.reserve(scope, maxVariable);
+    }
+
+    void releaseTempVariables(final BitSet scope) {
+        dictionary.release(scope);
     }
 
     enum SAT4JSolverType {
@@ -188,20 +728,30 @@ public class MSSSolver {
         DEFAULT
     }
 
+    public enum Enumeration {
+        /**
+         * enumerate the minimal correction sets by increasing size, every model is a new maximal subset. The default
+         */
+        CORRECTION_SETS,
+        /**
+         * enumerate every satisfiable subset by decreasing size, and keep the maximal ones
+         */
+        DESCENDING_BOUNDS
+    }
+
+    public enum CNFEncoding {
+        /**
+         * distribute disjunctions over conjunctions, see {@link Clause#convertToCNF(Clause)}
+         */
+        DISTRIBUTIVE,
+        /**
+         * name sub-formulas with auxiliary variables (Tseitin / Plaisted-Greenbaum), linear in the size of the formula
+         */
+        DEFINITIONAL
+    }
+
     public int encode(final Literal literal) {
-        String word = literal.getName();
-        int value = 0;
-        if (dictWord2Int.containsKey(word)) {
-            value = dictWord2Int.get(word);
-        } else {
-            // new value
-            value = dictWord2Int.size() + 1;
-            while (dictInt2Word.containsKey(value)) {
-                value += 1;
-            }
-            dictWord2Int.put(word, value);
-            dictInt2Word.put(value, word);
-        }
+        int value = dictionary.encode(literal.getId());
         if (literal.getValue()) {
             return value;
         } else {
@@ -214,34 +764,198 @@ public class MSSSolver {
     }
 
     public Vec<VecInt> encode(final Clause formula) throws FormulaError {
-        Clause cnfFormula = formula.toCNF();
+        return encodePacked(formula).toVec();
+    }
+
+    /**
+     * encode the formula into a packed CNF, see {@link Clause#convertToCNF(Clause)}
+     *
+     * @param formula formula to encode
+     * @return encoded CNF formula
+     */
+    public PackedCNF encodePacked(final Clause formula) throws FormulaError {
+        return encodePacked(formula, new PackedCNF());
+    }
+
+    /**
+     * encode the formula and append its clauses to the given packed CNF
+     *
+     * @return the given packed CNF
+     */
+    public PackedCNF encodePacked(final Clause formula, PackedCNF encodedFormula) throws FormulaError {
+        Clause cnfFormula = convertToCNF(formula);
         if (!cnfFormula.isCNF()) {
             // formula is not in conjunctive normal form
             throw new FormulaError(String.format("failed to convert formula to CNF: formula=%s, cnf=%s", formula.toString(), cnfFormula.toString()));
         }
-        Vec<VecInt> encodedFormula = new Vec<>();
         for (ILogicFormula disjunctiveClause : cnfFormula) {
-            VecInt encodedClause = new VecInt();
+            encodedFormula.startClause();
             if (disjunctiveClause instanceof Literal) {
-                encodedClause.push(encode((Literal) disjunctiveClause));
+                encodedFormula.addLiteral(encode((Literal) disjunctiveClause));
             } else if (disjunctiveClause instanceof Clause) {
                 for (ILogicFormula element : (Clause) disjunctiveClause) {
-                    encodedClause.push(encode((Literal) element));
+                    encodedFormula.addLiteral(encode((Literal) element));
                 }
             }
-            encodedFormula.push(encodedClause);
+            encodedFormula.endClause();
         }
         return encodedFormula;
     }
 
+    /**
+     * encode the formula into an equisatisfiable CNF without distributing disjunctions over conjunctions.
+     * every nested sub-formula is named by an auxiliary variable which only implies the sub-formula (Plaisted-Greenbaum),
+     * which is enough as the formula is asserted and all the sub-formulas occur positively.
+     * the auxiliary variables are temporary variables, structurally equal sub-formulas share the same one.
+     * they stay reserved so that they never clash with the words encoded later.
+     *
+     * @param formula formula to encode
+     * @return encoded CNF formula
+     */
+    public PackedCNF encodeDefinitional(final Clause formula) throws FormulaError {
+        return encodeDefinitional(formula, new BitSet());
+    }
+
+    PackedCNF encodeDefinitional(final Clause formula, final BitSet scope) throws FormulaError {
+        DefinitionalEncoder encoder = new DefinitionalEncoder(scope);
+        encoder.assertFormula(formula);
+        return encoder.encodedFormula;
+    }
+
+    /**
+     * Plaisted-Greenbaum encoding of a formula, hash-consed by a {@link UniqueTable} so that the structurally equal
+     * sub-formulas are the same node, which is defined once. The sub-formulas are normalized as {@link
+     * Clause#add(ILogicFormula)} does, which drops an empty sub-formula, and an empty formula is true.
+     */
+    private class DefinitionalEncoder {
+        private final PackedCNF encodedFormula = new PackedCNF();
+        private final UniqueTable table = new UniqueTable();
+        /**
+         * auxiliary variable of each defined node, the nodes are compared by reference
+         */
+        private final HashMap<FormulaNode, Integer> definitions = new HashMap<>();
+        private final BitSet scope;
+
+        DefinitionalEncoder(final BitSet scope) {
+            this.scope = scope;
+        }
+
+        void assertFormula(final Clause formula) throws FormulaError {
+            FormulaNode node = table.of(formula);
+            if (node.getType() == eClauseType.CONJUNCTIVE) {
+                conjuncts(node, encodedFormula);
+            } else {
+                VecInt encodedClause = disjunction(node);
+                if (encodedClause != null) {
+                    encodedFormula.addClause(encodedClause);
+                }
+            }
+        }
+
+        /**
+         * encode the conjuncts of a conjunction into clauses
+         */
+        private void conjuncts(final FormulaNode formula, PackedCNF clauses) {
+            for (int i = 0; i < formula.size(); i++) {
+                FormulaNode element = formula.get(i);
+                if (element.isLiteral()) {
+                    clauses.addClause(encode(element.getLiteral()));
+                } else if (element.getType() == eClauseType.CONJUNCTIVE) {
+                    conjuncts(element, clauses);
+                } else {
+                    VecInt encodedClause = disjunction(element);
+                    if (encodedClause != null) {
+                        clauses.addClause(encodedClause);
+                    }
+                }
+            }
+        }
+
+        /**
+         * collect the literals of a disjunction, nested conjunctions are replaced by their definitions
+         *
+         * @return the clause, or null if the disjunction is trivially true
+         */
+        private VecInt disjunction(final FormulaNode formula) {
+            VecInt encodedClause = new VecInt();
+            return collect(formula, encodedClause) ? encodedClause : null;
+        }
+
+        private boolean collect(final FormulaNode formula, VecInt encodedClause) {
+            if (formula.size() == 0) {
+                return false;
+            }
+            for (int i = 0; i < formula.size(); i++) {
+                FormulaNode element = formula.get(i);
+                if (element.getType() == eClauseType.DISJUNCTIVE) {
+                    if (!collect(element, encodedClause)) {
+                        return false;
+                    }
+                } else {
+                    int literal = define(element);
+                    if (literal == 0) {
+                        return false;
+                    }
+                    encodedClause.push(literal);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * get a literal which implies the given sub-formula
+         *
+         * @return the literal, or 0 if the sub-formula is trivially true
+         */
+        private int define(final FormulaNode element) {
+            if (element.isLiteral()) {
+                return encode(element.getLiteral());
+            } else if (element.size() == 0) {
+                return 0;
+            } else if (element.size() == 1) {
+                return define(element.get(0));
+            }
+            Integer defined = definitions.get(element);
+            if (defined != null) {
+                return defined;
+            }
+            PackedCNF clauses = new PackedCNF();
+            if (element.getType() == eClauseType.CONJUNCTIVE) {
+                conjuncts(element, clauses);
+                if (clauses.size() == 0) {
+                    return 0;
+                }
+            } else {
+                VecInt encodedClause = disjunction(element);
+                if (encodedClause == null) {
+                    return 0;
+                }
+                clauses.addClause(encodedClause);
+            }
+            // aux -> sub-formula
+            int aux = newTempVariable(scope);
+            for (int i = 0; i < clauses.size(); i++) {
+                encodedFormula.startClause();
+                for (int j = 0; j < clauses.clauseSize(i); j++) {
+                    encodedFormula.addLiteral(clauses.get(i, j));
+                }
+                encodedFormula.addLiteral(-aux);
+                encodedFormula.endClause();
+            }
+            definitions.put(element, aux);
+            return aux;
+        }
+    }
+
     public Literal decode(final int value) throws FormulaError {
         if (value == 0) {
             throw new FormulaError("0 is not a valid value to decode.");
         }
 
         int abs = abs(value);
-        if (dictInt2Word.containsKey(abs)) {
-            return new Literal(dictInt2Word.get(abs), value > 0);
+        int word = dictionary.word(abs);
+        if (word >= 0) {
+            return new Literal(word, value > 0);
         } else {
             return new Literal(String.format("Unnamed%d", abs), value>0);
         }
@@ -256,6 +970,14 @@ public class MSSSolver {
         return clause;
     }
 
+    public Clause decode(final PackedCNF cnfFormula) throws FormulaError {
+        Clause clause = new Clause(eClauseType.CONJUNCTIVE);
+        for (int i = 0; i < cnfFormula.size(); i++) {
+            clause.add(decodeClause(cnfFormula, i));
+        }
+        return clause;
+    }
+
     public Clause decode(final Vec<VecInt> cnfFormula) throws FormulaError {
         Clause clause = new Clause(eClauseType.CONJUNCTIVE);
         for (Iterator<VecInt> it = cnfFormula.iterator(); it.hasNext(); ) {
@@ -0,0 +1,160 @@
+package im.irrational.logic.propositional.operators;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * counters of a search of the maximum satisfiable subsets, see {@link MSSIterator#getStatistics()} and
+ * {@link IMSSListener#onFinish(MSSStatistics)}
+ * <p>
+ * the times are in nanoseconds. The counters of the SAT solver are copied when the search is finished, in a session
+ * they are counted since the session was opened.
+ */
+public class MSSStatistics {
+    long encodingTime = 0;
+    long preprocessingTime = 0;
+    long solvingTime = 0;
+    long satCalls = 0;
+    long models = 0;
+    long subsets = 0;
+    long nonMaximalModels = 0;
+    long blockingClauses = 0;
+    long bounds = 0;
+    long boundTime = 0;
+    long maxBoundTime = 0;
+    int hardClauses = 0;
+    int softClauses = 0;
+    private Map<String, Number> solverStatistics = Collections.emptyMap();
+
+    /**
+     * @return time to encode the formulas and to add them to the solver
+     */
+    public long getEncodingTime() {
+        return encodingTime;
+    }
+
+    /**
+     * @return time to simplify the hard clauses, see {@link MSSSolver#setPreprocessing(boolean)}
+     */
+    public long getPreprocessingTime() {
+        return preprocessingTime;
+    }
+
+    /**
+     * @return time in the SAT solver
+     */
+    public long getSolvingTime() {
+        return solvingTime;
+    }
+
+    public long getSatCalls() {
+        return satCalls;
+    }
+
+    /**
+     * @return number of models, i.e. satisfiable calls
+     */
+    public long getModels() {
+        return models;
+    }
+
+    /**
+     * @return number of maximum satisfiable subsets found
+     */
+    public long getSubsets() {
+        return subsets;
+    }
+
+    /**
+     * @return number of models discarded because they are contained in a subset found before
+     */
+    public long getNonMaximalModels() {
+        return nonMaximalModels;
+    }
+
+    public long getBlockingClauses() {
+        return blockingClauses;
+    }
+
+    /**
+     * @return number of bounds on the size of the subsets which were searched to the end
+     */
+    public long getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return total time of the bounds which were searched to the end
+     */
+    public long getBoundTime() {
+        return boundTime;
+    }
+
+    /**
+     * @return time of the slowest bound
+     */
+    public long getMaxBoundTime() {
+        return maxBoundTime;
+    }
+
+    /**
+     * @return number of hard clauses added to the solver, after preprocessing
+     */
+    public int getHardClauses() {
+        return hardClauses;
+    }
+
+    public int getSoftClauses() {
+        return softClauses;
+    }
+
+    /**
+     * @return the counters of the SAT solver ({@code ISolver.getStat()}), empty until the search is finished
+     */
+    public Map<String, Number> getSolverStatistics() {
+        return solverStatistics;
+    }
+
+    void setSolverStatistics(final Map<String, Number> statistics) {
+        this.solverStatistics = Collections.unmodifiableMap(new LinkedHashMap<>(statistics));
+    }
+
+    /**
+     * @return all the counters by name, those of the SAT solver prefixed by "solver."
+     */
+    public Map<String, Number> toMap() {
+        LinkedHashMap<String, Number> map = new LinkedHashMap<>();
+        map.put("encodingTime", encodingTime);
+        map.put("preprocessingTime", preprocessingTime);
+        map.put("solvingTime", solvingTime);
+        map.put("satCalls", satCalls);
+        map.put("models", models);
+        map.put("subsets", subsets);
+        map.put("nonMaximalModels", nonMaximalModels);
+        map.put("blockingClauses", blockingClauses);
+        map.put("bounds", bounds);
+        map.put("boundTime", boundTime);
+        map.put("maxBoundTime", maxBoundTime);
+        map.put("hardClauses", hardClauses);
+        map.put("softClauses", softClauses);
+        for (Map.Entry<String, Number> entry : solverStatistics.entrySet()) {
+            map.put("solver." + entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MSSStatistics{");
+        boolean first = true;
+        for (Map.Entry<String, Number> entry : toMap().entrySet()) {
+            if (!first) {
+                builder.append(", ");
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+            first = false;
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,682 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.AssignmentBatches;
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.ILogicFormula;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static java.lang.Math.abs;
+
+/**
+ * exact model counting (#SAT) of formulas, optionally projected on a subset of their variables
+ * <p>
+ * the formula is encoded into CNF by a {@link MSSSolver}, by default with the definitional encoding: the auxiliary
+ * variables are not counted, so the count is the number of assignments of the variables of the formula which satisfy
+ * it. The counter is a DPLL search with unit propagation which branches on the counted variables only: after each
+ * decision the remaining clauses are split into connected components, which are counted separately and multiplied,
+ * and the count of each component is cached by its remaining clauses. A component whose counted variables are all
+ * assigned is only checked for satisfiability, by a DPLL search without recursion, and a component of few variables
+ * is counted from its truth table, 64 assignments at a time. The cache is bounded both by its number of components and
+ * by the number of ints of their clauses.
+ * <p>
+ * a ModelCounter is not thread safe.
+ */
+public class ModelCounter {
+    private static final int MAX_TRUTH_TABLE_VARIABLES = 20;
+
+    private final MSSSolver solver;
+    private int cacheSize = 1 << 16;
+    private long cacheInts = 1 << 22;
+    private int truthTableVariables = 10;
+    private long decisions = 0;
+    private long cacheHits = 0;
+
+    /**
+     * a counter with the definitional encoding, linear in the size of the formulas
+     */
+    public ModelCounter() {
+        this(new MSSSolver(MSSSolver.SAT4JSolverType.DEFAULT, MSSSolver.CNFEncoding.DEFINITIONAL));
+    }
+
+    /**
+     * a counter which encodes the formulas with the given solver, and shares its variables
+     */
+    public ModelCounter(final MSSSolver solver) {
+        this.solver = solver;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param cacheSize maximum number of components whose count is kept, 0 disables the cache
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("the size of the cache must not be negative");
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    public long getCacheInts() {
+        return cacheInts;
+    }
+
+    /**
+     * @param ints maximum number of ints in the clauses of the components whose count is kept, 4 bytes each
+     */
+    public void setCacheInts(long ints) {
+        if (ints < 0) {
+            throw new IllegalArgumentException("the size of the cache must not be negative");
+        }
+        this.cacheInts = ints;
+    }
+
+    public int getTruthTableVariables() {
+        return truthTableVariables;
+    }
+
+    /**
+     * @param variables number of variables up to which a component is counted from its truth table, 0 disables the
+     *                  truth tables
+     */
+    public void setTruthTableVariables(int variables) {
+        if (variables < 0 || variables > MAX_TRUTH_TABLE_VARIABLES) {
+            throw new IllegalArgumentException(String.format("the truth tables have 0 to %d variables", MAX_TRUTH_TABLE_VARIABLES));
+        }
+        this.truthTableVariables = variables;
+    }
+
+    /**
+     * @return number of decisions of the last count
+     */
+    public long getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * @return number of components of the last count which were found in the cache
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return number of models of the formula over its variables, 1 if it is null
+     */
+    public BigInteger count(final Clause formula) throws FormulaError {
+        Set<String> variables = new LinkedHashSet<>();
+        if (formula != null) {
+            collect(formula, variables);
+        }
+        return count(formula, variables);
+    }
+
+    /**
+     * @return number of models of the knowledge base and the hard formula over their variables
+     */
+    public BigInteger count(final Clause kb, final Clause hardFormula) throws FormulaError {
+        Clause formula = new Clause(eClauseType.CONJUNCTIVE);
+        if (kb != null) {
+            formula.add(kb);
+        }
+        if (hardFormula != null) {
+            formula.add(hardFormula);
+        }
+        return count(formula);
+    }
+
+    /**
+     * count the models projected on the given variables
+     *
+     * @param variables names of the counted variables, those which are not in the formula are free
+     * @return number of assignments of the variables which extend to a model of the formula
+     */
+    public BigInteger count(final Clause formula, final Collection<String> variables) throws FormulaError {
+        BitSet scope = new BitSet();
+        try {
+            PackedCNF clauses = solver.encodeHard(formula, scope);
+            BitSet projection = new BitSet();
+            for (String name : variables) {
+                projection.set(solver.encode(new Literal(name, true)));
+            }
+            return count(clauses, projection);
+        } finally {
+            solver.releaseTempVariables(scope);
+        }
+    }
+
+    /**
+     * count the models of encoded clauses projected on the given variables
+     *
+     * @param projection the counted variables, those which are not in the clauses are free
+     * @return number of assignments of the variables which extend to a model of the clauses
+     */
+    public BigInteger count(final PackedCNF clauses, final BitSet projection) {
+        decisions = 0;
+        cacheHits = 0;
+        int maxVariable = Math.max(projection.length() - 1, 0);
+        for (int i = 0; i < clauses.size(); i++) {
+            for (int j = 0; j < clauses.clauseSize(i); j++) {
+                maxVariable = Math.max(maxVariable, abs(clauses.get(i, j)));
+            }
+        }
+        // number the variables densely from 1
+        int[] dense = new int[maxVariable + 1];
+        int variables = 0;
+        int[][] cnf = new int[clauses.size()][];
+        for (int i = 0; i < clauses.size(); i++) {
+            if (clauses.clauseSize(i) == 0) {
+                return BigInteger.ZERO;
+            }
+            cnf[i] = clauses.getClause(i);
+            for (int j = 0; j < cnf[i].length; j++) {
+                int variable = abs(cnf[i][j]);
+                if (dense[variable] == 0) {
+                    dense[variable] = ++variables;
+                }
+                cnf[i][j] = (cnf[i][j] > 0 ? dense[variable] : -dense[variable]);
+            }
+        }
+        for (int variable = projection.nextSetBit(1); variable >= 0; variable = projection.nextSetBit(variable + 1)) {
+            if (dense[variable] == 0) {
+                dense[variable] = ++variables;
+            }
+        }
+        boolean[] projected = new boolean[variables + 1];
+        for (int variable = projection.nextSetBit(1); variable >= 0; variable = projection.nextSetBit(variable + 1)) {
+            projected[dense[variable]] = true;
+        }
+        return new Search(cnf, variables, projected).count();
+    }
+
+    private static void collect(final Clause formula, final Set<String> variables) throws FormulaError {
+        for (ILogicFormula element : formula) {
+            if (element instanceof Literal) {
+                variables.add(((Literal) element).getName());
+            } else if (element instanceof Clause) {
+                collect((Clause) element, variables);
+            } else {
+                throw new FormulaError(String.format("Unknown logic element type: %s", element.getClass().getName()));
+            }
+        }
+    }
+
+    /**
+     * the remaining clauses of a component: the id of each clause in increasing order followed by its unassigned
+     * literals, and 0
+     */
+    private static final class Key {
+        final int[] clauses;
+        final int hash;
+
+        Key(final int[] clauses) {
+            this.clauses = clauses;
+            this.hash = Arrays.hashCode(clauses);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(clauses, ((Key) obj).clauses);
+        }
+    }
+
+    private final class Search {
+        final int[][] clauses;
+        final int variables;
+        final boolean[] projected;
+        /**
+         * clauses of each variable
+         */
+        final int[][] occurrences;
+        /**
+         * 1 if the variable is true, -1 if false, 0 if unassigned
+         */
+        final byte[] values;
+        final int[] trail;
+        int trailSize = 0;
+        /**
+         * marks of the clauses and variables of the current residual formula, and of its components
+         */
+        final int[] activeClauses;
+        final int[] activeVariables;
+        final int[] visitedClauses;
+        final int[] visitedVariables;
+        int epoch = 0;
+        final int[] scores;
+        final int[] local;
+        /**
+         * the decisions of {@link #isSatisfiable(int[])}: literal, trail size before it, and whether it is the second
+         * branch
+         */
+        final int[] decided;
+        final int[] decidedMarks;
+        final boolean[] flipped;
+        final LinkedHashMap<Key, BigInteger> cache = new LinkedHashMap<>(16, 0.75f, true);
+        /**
+         * number of ints in the keys of the cache
+         */
+        long cachedInts = 0;
+
+        Search(final int[][] clauses, int variables, final boolean[] projected) {
+            this.clauses = clauses;
+            this.variables = variables;
+            this.projected = projected;
+            int[] sizes = new int[variables + 1];
+            for (int[] clause : clauses) {
+                for (int literal : clause) {
+                    sizes[abs(literal)]++;
+                }
+            }
+            this.occurrences = new int[variables + 1][];
+            for (int v = 0; v <= variables; v++) {
+                occurrences[v] = new int[sizes[v]];
+                sizes[v] = 0;
+            }
+            for (int c = 0; c < clauses.length; c++) {
+                for (int literal : clauses[c]) {
+                    int v = abs(literal);
+                    // a variable twice in a clause has the clause once
+                    if (sizes[v] == 0 || occurrences[v][sizes[v] - 1] != c) {
+                        occurrences[v][sizes[v]++] = c;
+                    }
+                }
+            }
+            for (int v = 0; v <= variables; v++) {
+                if (sizes[v] < occurrences[v].length) {
+                    occurrences[v] = Arrays.copyOf(occurrences[v], sizes[v]);
+                }
+            }
+            this.values = new byte[variables + 1];
+            this.trail = new int[variables];
+            this.activeClauses = new int[clauses.length];
+            this.visitedClauses = new int[clauses.length];
+            this.activeVariables = new int[variables + 1];
+            this.visitedVariables = new int[variables + 1];
+            this.scores = new int[variables + 1];
+            this.local = new int[variables + 1];
+            this.decided = new int[variables];
+            this.decidedMarks = new int[variables];
+            this.flipped = new boolean[variables];
+        }
+
+        BigInteger count() {
+            for (int[] clause : clauses) {
+                if (clause.length == 1 && !propagate(clause[0])) {
+                    return BigInteger.ZERO;
+                }
+            }
+            int[] all = new int[clauses.length];
+            for (int c = 0; c < all.length; c++) {
+                all[c] = c;
+            }
+            int[] vars = new int[variables];
+            for (int v = 0; v < variables; v++) {
+                vars[v] = v + 1;
+            }
+            return residual(all, vars);
+        }
+
+        /**
+         * count the models of the clauses under the current assignment, over the given variables
+         */
+        BigInteger residual(final int[] clauseIds, final int[] vars) {
+            int mark = ++epoch;
+            int size = 0;
+            int[] active = new int[clauseIds.length];
+            for (int c : clauseIds) {
+                if (!isSatisfied(c)) {
+                    active[size++] = c;
+                    activeClauses[c] = mark;
+                    for (int literal : clauses[c]) {
+                        activeVariables[abs(literal)] = mark;
+                    }
+                }
+            }
+            // the counted variables which are in no remaining clause are free
+            int free = 0;
+            for (int v : vars) {
+                if (values[v] == 0 && activeVariables[v] != mark && projected[v]) {
+                    free++;
+                }
+            }
+            // split the remaining clauses before counting the components, which moves the epoch
+            ArrayList<int[][]> components = new ArrayList<>();
+            int[] queue = new int[size];
+            int[] componentVars = new int[vars.length];
+            for (int i = 0; i < size; i++) {
+                if (visitedClauses[active[i]] == mark) {
+                    continue;
+                }
+                int head = 0;
+                int tail = 0;
+                int variableCount = 0;
+                queue[tail++] = active[i];
+                visitedClauses[active[i]] = mark;
+                while (head < tail) {
+                    for (int literal : clauses[queue[head++]]) {
+                        int v = abs(literal);
+                        if (values[v] != 0 || visitedVariables[v] == mark) {
+                            continue;
+                        }
+                        visitedVariables[v] = mark;
+                        componentVars[variableCount++] = v;
+                        for (int c : occurrences[v]) {
+                            if (activeClauses[c] == mark && visitedClauses[c] != mark) {
+                                visitedClauses[c] = mark;
+                                queue[tail++] = c;
+                            }
+                        }
+                    }
+                }
+                components.add(new int[][]{Arrays.copyOf(queue, tail), Arrays.copyOf(componentVars, variableCount)});
+            }
+            BigInteger count = BigInteger.ONE.shiftLeft(free);
+            for (int[][] component : components) {
+                BigInteger componentCount = component(component[0], component[1]);
+                if (componentCount.signum() == 0) {
+                    return BigInteger.ZERO;
+                }
+                count = count.multiply(componentCount);
+            }
+            return count;
+        }
+
+        /**
+         * count a connected component of remaining clauses, every clause has an unassigned literal
+         */
+        BigInteger component(final int[] clauseIds, final int[] vars) {
+            Key key = null;
+            if (cacheSize > 0) {
+                key = key(clauseIds);
+                BigInteger cached = cache.get(key);
+                if (cached != null) {
+                    cacheHits++;
+                    return cached;
+                }
+            }
+            BigInteger count;
+            if (vars.length <= truthTableVariables) {
+                count = BigInteger.valueOf(truthTable(clauseIds, vars));
+            } else {
+                int variable = choose(clauseIds, vars);
+                if (variable == 0) {
+                    count = (isSatisfiable(clauseIds) ? BigInteger.ONE : BigInteger.ZERO);
+                } else {
+                    count = BigInteger.ZERO;
+                    for (int literal : new int[]{variable, -variable}) {
+                        decisions++;
+                        int mark = trailSize;
+                        if (propagate(literal)) {
+                            count = count.add(residual(clauseIds, vars));
+                        }
+                        undo(mark);
+                    }
+                }
+            }
+            if (key != null) {
+                cache(key, count);
+            }
+            return count;
+        }
+
+        /**
+         * keep the count, the least recently used components are evicted beyond the bounds of the cache
+         */
+        void cache(final Key key, final BigInteger count) {
+            if (cache.put(key, count) == null) {
+                cachedInts += key.clauses.length;
+            }
+            Iterator<Key> eldest = cache.keySet().iterator();
+            while ((cache.size() > cacheSize || cachedInts > cacheInts) && eldest.hasNext()) {
+                cachedInts -= eldest.next().clauses.length;
+                eldest.remove();
+            }
+        }
+
+        Key key(final int[] clauseIds) {
+            int[] sorted = clauseIds.clone();
+            Arrays.sort(sorted);
+            int length = 0;
+            for (int c : sorted) {
+                length += clauses[c].length + 2;
+            }
+            int[] key = new int[length];
+            int i = 0;
+            for (int c : sorted) {
+                key[i++] = c;
+                for (int literal : clauses[c]) {
+                    if (values[abs(literal)] == 0) {
+                        key[i++] = literal;
+                    }
+                }
+                key[i++] = 0;
+            }
+            return new Key(Arrays.copyOf(key, i));
+        }
+
+        /**
+         * @return the counted variable which occurs in the most clauses of the component, 0 if there is none
+         */
+        int choose(final int[] clauseIds, final int[] vars) {
+            for (int c : clauseIds) {
+                for (int literal : clauses[c]) {
+                    scores[abs(literal)]++;
+                }
+            }
+            int best = 0;
+            for (int v : vars) {
+                if (projected[v] && (best == 0 || scores[v] > scores[best])) {
+                    best = v;
+                }
+            }
+            for (int c : clauseIds) {
+                for (int literal : clauses[c]) {
+                    scores[abs(literal)] = 0;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * decide the clauses under the current assignment, a decision at a time with chronological backtracking; the
+         * assignment is the same afterwards
+         */
+        boolean isSatisfiable(final int[] clauseIds) {
+            int start = trailSize;
+            int depth = 0;
+            boolean conflict = false;
+            while (true) {
+                if (!conflict) {
+                    int decision = branch(clauseIds);
+                    if (decision == 0) {
+                        undo(start);
+                        return true;
+                    }
+                    decided[depth] = decision;
+                    decidedMarks[depth] = trailSize;
+                    flipped[depth] = false;
+                    depth++;
+                } else {
+                    // the last decision whose other branch is left
+                    while (depth > 0 && flipped[depth - 1]) {
+                        depth--;
+                    }
+                    if (depth == 0) {
+                        undo(start);
+                        return false;
+                    }
+                    undo(decidedMarks[depth - 1]);
+                    decided[depth - 1] = -decided[depth - 1];
+                    flipped[depth - 1] = true;
+                }
+                decisions++;
+                conflict = !propagate(decided[depth - 1]);
+            }
+        }
+
+        /**
+         * @return an unassigned literal of the first clause which is not satisfied, 0 if they all are
+         */
+        int branch(final int[] clauseIds) {
+            for (int c : clauseIds) {
+                if (!isSatisfied(c)) {
+                    for (int literal : clauses[c]) {
+                        if (values[abs(literal)] == 0) {
+                            return literal;
+                        }
+                    }
+                    return 0;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * count the models of a component of few variables, 64 assignments at a time. The counted variables take the
+         * low bits of an assignment, so the projection ORs the words and the bits of the other variables together.
+         */
+        long truthTable(final int[] clauseIds, final int[] vars) {
+            int k = vars.length;
+            int counted = 0;
+            for (int v : vars) {
+                if (projected[v]) {
+                    local[v] = counted++;
+                }
+            }
+            int other = counted;
+            for (int v : vars) {
+                if (!projected[v]) {
+                    local[v] = other++;
+                }
+            }
+            int words = (int) AssignmentBatches.batches(k);
+            long mask = AssignmentBatches.mask(k);
+            long[] models = new long[words];
+            long[] columns = new long[k];
+            for (int w = 0; w < words; w++) {
+                AssignmentBatches.columns(w, columns);
+                long value = mask;
+                for (int c : clauseIds) {
+                    long clause = 0;
+                    for (int literal : clauses[c]) {
+                        int v = abs(literal);
+                        if (values[v] == 0) {
+                            clause |= (literal > 0 ? columns[local[v]] : ~columns[local[v]]);
+                        }
+                    }
+                    value &= clause;
+                    if (value == 0) {
+                        break;
+                    }
+                }
+                models[w] = value;
+            }
+            if (counted == k) {
+                long count = 0;
+                for (long word : models) {
+                    count += Long.bitCount(word);
+                }
+                return count;
+            } else if (counted >= 6) {
+                int slice = 1 << (counted - 6);
+                long[] projection = new long[slice];
+                for (int w = 0; w < words; w++) {
+                    projection[w & (slice - 1)] |= models[w];
+                }
+                long count = 0;
+                for (long word : projection) {
+                    count += Long.bitCount(word);
+                }
+                return count;
+            }
+            long word = 0;
+            for (long model : models) {
+                word |= model;
+            }
+            for (int shift = 32; shift >= (1 << counted); shift >>>= 1) {
+                word |= word >>> shift;
+            }
+            return Long.bitCount(word & ((1L << (1 << counted)) - 1));
+        }
+
+        boolean isSatisfied(int c) {
+            for (int literal : clauses[c]) {
+                if (value(literal) > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int value(int literal) {
+            return (literal > 0 ? values[literal] : -values[-literal]);
+        }
+
+        /**
+         * assign the literal and propagate the unit clauses
+         *
+         * @return false on a conflict, the assignments stay on the trail until they are undone
+         */
+        boolean propagate(int literal) {
+            if (value(literal) != 0) {
+                return value(literal) > 0;
+            }
+            assign(literal);
+            for (int head = trailSize - 1; head < trailSize; head++) {
+                for (int c : occurrences[trail[head]]) {
+                    int unassigned = 0;
+                    int unit = 0;
+                    boolean satisfied = false;
+                    for (int l : clauses[c]) {
+                        int value = value(l);
+                        if (value > 0) {
+                            satisfied = true;
+                            break;
+                        } else if (value == 0 && l != unit) {
+                            unassigned++;
+                            unit = l;
+                        }
+                    }
+                    if (satisfied) {
+                        continue;
+                    } else if (unassigned == 0) {
+                        return false;
+                    } else if (unassigned == 1) {
+                        assign(unit);
+                    }
+                }
+            }
+            return true;
+        }
+
+        void assign(int literal) {
+            values[abs(literal)] = (byte) (literal > 0 ? 1 : -1);
+            trail[trailSize++] = abs(literal);
+        }
+
+        void undo(int mark) {
+            while (trailSize > mark) {
+                values[trail[--trailSize]] = 0;
+            }
+        }
+    }
+}
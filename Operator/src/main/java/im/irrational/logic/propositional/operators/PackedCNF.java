@@ -0,0 +1,267 @@
+package im.irrational.logic.propositional.operators;
+
+import org.sat4j.core.Vec;
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+
+import java.util.Arrays;
+
+import static java.lang.Math.abs;
+
+/**
+ * a CNF formula packed into a flat array of DIMACS literals
+ * <p>
+ * clause i consists of the literals from offset(i) (inclusive) to offset(i + 1) (exclusive), a literal is a signed
+ * variable as in {@link MSSSolver#encode(im.irrational.logic.propositional.Literal)}. A three literal clause costs
+ * four ints.
+ */
+public class PackedCNF {
+    private int[] literals;
+    private int[] offsets;
+    private int size = 0;
+    private int maxVariable = 0;
+    /**
+     * start of the clause which is being built by {@link #addLiteral(int)}, -1 if there is none
+     */
+    private int open = -1;
+
+    public PackedCNF() {
+        this(16, 64);
+    }
+
+    /**
+     * @param expectedClauses  initial capacity for clauses
+     * @param expectedLiterals initial capacity for literals
+     */
+    public PackedCNF(int expectedClauses, int expectedLiterals) {
+        literals = new int[Math.max(expectedLiterals, 1)];
+        offsets = new int[Math.max(expectedClauses, 1) + 1];
+    }
+
+    /**
+     * a packed CNF over the given arrays, which are not copied
+     *
+     * @param size        number of clauses
+     * @param maxVariable the largest variable in the clauses
+     */
+    PackedCNF(final int[] literals, final int[] offsets, int size, int maxVariable) {
+        this.literals = literals;
+        this.offsets = offsets;
+        this.size = size;
+        this.maxVariable = maxVariable;
+    }
+
+    /**
+     * @return the arena of the literals, valid up to {@link #numberOfLiterals()}
+     */
+    int[] literalArena() {
+        return literals;
+    }
+
+    /**
+     * @return the offsets of the clauses, valid up to {@link #size()} (inclusive)
+     */
+    int[] offsetArena() {
+        return offsets;
+    }
+
+    /**
+     * @return number of clauses
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return total number of literals in all the clauses
+     */
+    public int numberOfLiterals() {
+        return offsets[size];
+    }
+
+    /**
+     * @return the largest variable in the formula, 0 if there is none
+     */
+    public int getMaxVariable() {
+        return maxVariable;
+    }
+
+    /**
+     * @param clause index of the clause
+     * @return position of the first literal of the clause in the arena
+     */
+    public int offset(int clause) {
+        return offsets[clause];
+    }
+
+    public int clauseSize(int clause) {
+        return offsets[clause + 1] - offsets[clause];
+    }
+
+    /**
+     * @param clause index of the clause
+     * @param i      index of the literal in the clause
+     * @return the literal
+     */
+    public int get(int clause, int i) {
+        return literals[offsets[clause] + i];
+    }
+
+    /**
+     * @return a copy of the literals of the clause
+     */
+    public int[] getClause(int clause) {
+        return Arrays.copyOfRange(literals, offsets[clause], offsets[clause + 1]);
+    }
+
+    /**
+     * @return index of the new clause
+     */
+    public int addClause(int... clause) {
+        return addClause(clause, 0, clause.length);
+    }
+
+    /**
+     * @return index of the new clause
+     */
+    public int addClause(final int[] clause, int from, int to) {
+        startClause();
+        ensureLiterals(to - from);
+        for (int i = from; i < to; i++) {
+            addLiteral(clause[i]);
+        }
+        return endClause();
+    }
+
+    /**
+     * @return index of the new clause
+     */
+    public int addClause(final IVecInt clause) {
+        startClause();
+        ensureLiterals(clause.size());
+        for (int i = 0; i < clause.size(); i++) {
+            addLiteral(clause.get(i));
+        }
+        return endClause();
+    }
+
+    /**
+     * append all the clauses of another formula
+     */
+    public void addAll(final PackedCNF other) {
+        for (int i = 0; i < other.size; i++) {
+            addClause(other.literals, other.offsets[i], other.offsets[i + 1]);
+        }
+    }
+
+    /**
+     * start a new clause, literals are added by {@link #addLiteral(int)} until {@link #endClause()}
+     */
+    public void startClause() {
+        if (open >= 0) {
+            throw new IllegalStateException("the previous clause is not ended");
+        }
+        open = offsets[size];
+    }
+
+    public void addLiteral(int literal) {
+        if (open < 0) {
+            throw new IllegalStateException("no clause is started");
+        } else if (literal == 0) {
+            throw new IllegalArgumentException("0 is not a valid literal");
+        }
+        ensureLiterals(1);
+        literals[open++] = literal;
+        int var = abs(literal);
+        if (var > maxVariable) {
+            maxVariable = var;
+        }
+    }
+
+    /**
+     * @return index of the ended clause
+     */
+    public int endClause() {
+        if (open < 0) {
+            throw new IllegalStateException("no clause is started");
+        }
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length << 1);
+        }
+        offsets[size + 1] = open;
+        open = -1;
+        return size++;
+    }
+
+    private void ensureLiterals(int more) {
+        int required = (open < 0 ? offsets[size] : open) + more;
+        if (required > literals.length) {
+            literals = Arrays.copyOf(literals, Math.max(required, literals.length << 1));
+        }
+    }
+
+    /**
+     * remove all the clauses, the capacity is kept
+     */
+    public void clear() {
+        size = 0;
+        maxVariable = 0;
+        open = -1;
+    }
+
+    /**
+     * add all the clauses to the solver
+     */
+    public void addTo(final ISolver solver) throws ContradictionException {
+        VecInt buffer = new VecInt(16);
+        for (int i = 0; i < size; i++) {
+            addClauseTo(solver, i, 0, buffer);
+        }
+    }
+
+    /**
+     * add a clause to the solver, sat4j copies the literals so the buffer can be reused
+     *
+     * @param solver sat4j solver
+     * @param clause index of the clause
+     * @param extra  literal to add to the clause (e.g. a selector), 0 for none
+     * @param buffer reusable buffer
+     * @return the constraint created by the solver
+     */
+    public IConstr addClauseTo(final ISolver solver, int clause, int extra, VecInt buffer) throws ContradictionException {
+        buffer.clear();
+        for (int i = offsets[clause]; i < offsets[clause + 1]; i++) {
+            buffer.push(literals[i]);
+        }
+        if (extra != 0) {
+            buffer.push(extra);
+        }
+        return solver.addClause(buffer);
+    }
+
+    /**
+     * @return the formula as sat4j vectors
+     */
+    public Vec<VecInt> toVec() {
+        Vec<VecInt> vec = new Vec<>(Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            vec.push(new VecInt(getClause(i)));
+        }
+        return vec;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                builder.append(literals[j]).append(' ');
+            }
+            builder.append("0\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,200 @@
+package im.irrational.logic.propositional.operators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * a set-trie of sets of non negative ints, which answers subset and superset queries without scanning all the sets
+ * <p>
+ * a set is stored as the path of its elements in increasing order. Looking for a superset of a query only follows the
+ * children which are smaller than the next element of the query, or equal to it, and looking for the subsets of a
+ * query only follows the children which are in the query. The sets are kept in the order they are added.
+ * <p>
+ * the sets are copied when added, a SubsetIndex is not thread safe.
+ */
+public class SubsetIndex {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private final Node root = new Node(-1);
+    private final LinkedHashSet<BitSet> sets = new LinkedHashSet<>();
+
+    /**
+     * @return number of sets
+     */
+    public int size() {
+        return sets.size();
+    }
+
+    public boolean isEmpty() {
+        return sets.isEmpty();
+    }
+
+    /**
+     * @return copies of the sets in the order they were added
+     */
+    public List<BitSet> toList() {
+        List<BitSet> list = new ArrayList<>(sets.size());
+        for (BitSet set : sets) {
+            list.add((BitSet) set.clone());
+        }
+        return list;
+    }
+
+    public boolean contains(final BitSet set) {
+        return sets.contains(set);
+    }
+
+    /**
+     * @return false if the set was already in the index
+     */
+    public boolean add(final BitSet set) {
+        if (sets.contains(set)) {
+            return false;
+        }
+        BitSet copy = (BitSet) set.clone();
+        Node node = root;
+        for (int element = copy.nextSetBit(0); element >= 0; element = copy.nextSetBit(element + 1)) {
+            node = node.getOrAddChild(element);
+        }
+        node.set = copy;
+        sets.add(copy);
+        return true;
+    }
+
+    /**
+     * @return true if a set of the index contains all the elements of the query (or is equal to it)
+     */
+    public boolean hasSuperset(final BitSet query) {
+        return hasSuperset(root, query, query.nextSetBit(0));
+    }
+
+    /**
+     * @param element smallest element of the query which is not on the path yet, -1 if there is none
+     */
+    private static boolean hasSuperset(final Node node, final BitSet query, int element) {
+        if (element < 0) {
+            // every node but an empty root is on the path of a set
+            return node.set != null || node.size > 0;
+        }
+        for (int i = 0; i < node.size; i++) {
+            Node child = node.children[i];
+            if (child.element > element) {
+                // element can no longer be on the path
+                break;
+            }
+            int next = (child.element == element ? query.nextSetBit(element + 1) : element);
+            if (hasSuperset(child, query, next)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a set of the index is contained in the query (or is equal to it)
+     */
+    public boolean hasSubset(final BitSet query) {
+        return hasSubset(root, query);
+    }
+
+    private static boolean hasSubset(final Node node, final BitSet query) {
+        if (node.set != null) {
+            return true;
+        }
+        for (int i = 0; i < node.size; i++) {
+            Node child = node.children[i];
+            if (query.get(child.element) && hasSubset(child, query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * remove all the sets which are contained in the query, including the query itself
+     *
+     * @return number of removed sets
+     */
+    public int removeSubsets(final BitSet query) {
+        int before = sets.size();
+        removeSubsets(root, query);
+        return before - sets.size();
+    }
+
+    private void removeSubsets(final Node node, final BitSet query) {
+        if (node.set != null) {
+            sets.remove(node.set);
+            node.set = null;
+        }
+        int kept = 0;
+        for (int i = 0; i < node.size; i++) {
+            Node child = node.children[i];
+            if (query.get(child.element)) {
+                removeSubsets(child, query);
+            }
+            if (child.set != null || child.size > 0) {
+                node.children[kept++] = child;
+            }
+        }
+        Arrays.fill(node.children, kept, node.size, null);
+        node.size = kept;
+    }
+
+    /**
+     * remove all the sets
+     */
+    public void clear() {
+        sets.clear();
+        root.set = null;
+        root.children = NO_CHILDREN;
+        root.size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return sets.toString();
+    }
+
+    private static final class Node {
+        private final int element;
+        /**
+         * children sorted by element
+         */
+        private Node[] children = NO_CHILDREN;
+        private int size = 0;
+        /**
+         * the set which ends at this node, null if there is none
+         */
+        private BitSet set;
+
+        private Node(int element) {
+            this.element = element;
+        }
+
+        private Node getOrAddChild(int element) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleElement = children[middle].element;
+                if (middleElement < element) {
+                    low = middle + 1;
+                } else if (middleElement > element) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+            if (size == children.length) {
+                children = Arrays.copyOf(children, Math.max(2, size << 1));
+            }
+            System.arraycopy(children, low, children, low + 1, size - low);
+            Node child = new Node(element);
+            children[low] = child;
+            size++;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package im.irrational.logic.propositional.operators;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * the variables of a {@link MSSSolver}: words, i.e. ids in the global {@link im.irrational.logic.propositional.SymbolTable},
+ * bound to variables, and the temporary variables reserved by the calls and the sessions of the solver
+ * <p>
+ * a word keeps its variable for good, so the lookups read the tables without locking, as {@link
+ * im.irrational.logic.propositional.SymbolTable} does: the tables are written under the lock of the dictionary and
+ * published by a volatile write. A binding is written in place when the tables do not grow, so a lookup which reads it
+ * may still miss the other half of it: a lookup which finds nothing reads again under the lock, and a lookup sees
+ * every binding made before it starts. Only the allocations and the misses take the lock. The temporary variables of
+ * a caller are recorded in a scope of its own, which must not be shared between threads.
+ * <p>
+ * a variable may be held by several scopes, e.g. the variables reserved for the clauses of a caller which another
+ * caller took as temporary variables: a temporary variable counts the scopes which hold it, and it is free again when
+ * the last one is released, so a word never takes a variable which a caller still uses.
+ */
+final class VariableDictionary {
+    /**
+     * word to variable, 0 if the word is not bound
+     */
+    private volatile int[] word2Var = new int[64];
+    /**
+     * variable to word + 1, 0 if the variable is not a word
+     */
+    private volatile int[] var2Word = new int[64];
+    private volatile int size = 0;
+    /**
+     * number of scopes which hold each variable as a temporary variable, guarded by this
+     */
+    private int[] references = new int[64];
+    /**
+     * number of temporary variables, i.e. held by at least one scope, guarded by this
+     */
+    private int temporaries = 0;
+
+    /**
+     * @return the variable of the word, a new one if the word is not bound yet
+     */
+    int encode(int word) {
+        int var = get(word2Var, word);
+        return (var != 0 ? var : bind(word));
+    }
+
+    /**
+     * @return the variable of the word, 0 if the word is not bound
+     */
+    int lookup(int word) {
+        int var = get(word2Var, word);
+        if (var == 0) {
+            synchronized (this) {
+                var = get(word2Var, word);
+            }
+        }
+        return var;
+    }
+
+    /**
+     * @return the word of the variable, -1 if the variable is not a word
+     */
+    int word(int var) {
+        int word = get(var2Word, var);
+        if (word == 0) {
+            synchronized (this) {
+                word = get(var2Word, var);
+            }
+        }
+        return word - 1;
+    }
+
+    private static int get(final int[] table, int index) {
+        return (index < table.length ? table[index] : 0);
+    }
+
+    boolean isWord(int var) {
+        return word(var) >= 0;
+    }
+
+    /**
+     * @return number of words
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * bind the word to the given variable if the word is not bound yet and the variable is free, or else to a new
+     * variable if the word is not bound yet
+     *
+     * @return the variable of the word
+     */
+    synchronized int bind(int word, int var) {
+        int value = get(word2Var, word);
+        if (value == 0) {
+            value = (isFree(var) ? var : nextFree(size + 1));
+            put(word, value);
+        }
+        return value;
+    }
+
+    private synchronized int bind(int word) {
+        int var = get(word2Var, word);
+        if (var == 0) {
+            var = nextFree(size + 1);
+            put(word, var);
+        }
+        return var;
+    }
+
+    /**
+     * @return the first variable from the given one which is neither a word nor a temporary variable
+     */
+    synchronized int nextFree(int var) {
+        while (!isFree(var)) {
+            var++;
+        }
+        return var;
+    }
+
+    /**
+     * allocate a variable that is not a word, it stays reserved until the scope is released
+     *
+     * @param scope temporary variables of the caller
+     */
+    synchronized int newTemporary(final BitSet scope) {
+        int var = nextFree(size + temporaries + 1);
+        hold(var, scope);
+        return var;
+    }
+
+    /**
+     * reserve the variables up to maxVariable which are not words, including those which other scopes hold: no word
+     * takes them until the scope is released
+     */
+    synchronized void reserve(final BitSet scope, int maxVariable) {
+        for (int var = 1; var <= maxVariable; var++) {
+            if (get(var2Word, var) == 0) {
+                hold(var, scope);
+            }
+        }
+    }
+
+    /**
+     * bind the words of a knowledge base and reserve its other variables at once, so that no other caller takes them
+     * in between: a word keeps its variable as {@link #bind(int, int)} does, a variable which is not a word keeps its
+     * number if it is not a word of this dictionary, or else it is renamed to a new temporary variable
+     *
+     * @param words word of each variable of the knowledge base, -1 if the variable is not a word
+     * @param scope temporary variables of the caller, which hold the variables that are not words
+     * @return the variable of this dictionary of each variable of the knowledge base
+     */
+    synchronized int[] restore(final int[] words, final BitSet scope) {
+        int[] variables = new int[words.length];
+        for (int var = 1; var < words.length; var++) {
+            if (words[var] >= 0) {
+                variables[var] = bind(words[var], var);
+            }
+        }
+        // hold the variables which keep their numbers before the new ones are taken
+        for (int var = 1; var < words.length; var++) {
+            if (words[var] < 0 && get(var2Word, var) == 0) {
+                hold(var, scope);
+                variables[var] = var;
+            }
+        }
+        for (int var = 1; var < words.length; var++) {
+            if (words[var] < 0 && variables[var] == 0) {
+                variables[var] = newTemporary(scope);
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * release the temporary variables of the scope, the scope is empty afterwards
+     */
+    synchronized void release(final BitSet scope) {
+        for (int var = scope.nextSetBit(0); var >= 0; var = scope.nextSetBit(var + 1)) {
+            if (--references[var] == 0) {
+                temporaries--;
+            }
+        }
+        scope.clear();
+    }
+
+    /**
+     * add the variable to the scope, if it is not there yet
+     */
+    private void hold(int var, final BitSet scope) {
+        if (scope.get(var)) {
+            return;
+        }
+        if (var >= references.length) {
+            references = Arrays.copyOf(references, Math.max(var + 1, references.length << 1));
+        }
+        if (references[var]++ == 0) {
+            temporaries++;
+        }
+        scope.set(var);
+    }
+
+    /**
+     * @return the word + 1 of each variable, 0 for the variables which are not words, up to the largest word
+     */
+    synchronized int[] words() {
+        int max = var2Word.length - 1;
+        while (max > 0 && var2Word[max] == 0) {
+            max--;
+        }
+        return Arrays.copyOf(var2Word, max + 1);
+    }
+
+    private boolean isFree(int var) {
+        return get(var2Word, var) == 0 && get(references, var) == 0;
+    }
+
+    private void put(int word, int var) {
+        int[] w2v = word2Var;
+        if (word >= w2v.length) {
+            w2v = Arrays.copyOf(w2v, Math.max(word + 1, w2v.length << 1));
+        }
+        int[] v2w = var2Word;
+        if (var >= v2w.length) {
+            v2w = Arrays.copyOf(v2w, Math.max(var + 1, v2w.length << 1));
+        }
+        w2v[word] = var;
+        v2w[var] = word + 1;
+        // publish the bindings, even if the tables did not grow
+        word2Var = w2v;
+        var2Word = v2w;
+        size++;
+    }
+}
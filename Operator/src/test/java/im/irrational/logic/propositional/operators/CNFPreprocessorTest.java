@@ -0,0 +1,111 @@
+package im.irrational.logic.propositional.operators;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CNFPreprocessorTest {
+    private static PackedCNF cnf(int[]... clauses) {
+        PackedCNF formula = new PackedCNF();
+        for (int[] clause : clauses) {
+            formula.addClause(clause);
+        }
+        return formula;
+    }
+
+    @Test
+    void simplify_equivalent() {
+        CNFPreprocessor preprocessor = new CNFPreprocessor(false);
+        PackedCNF simplified = preprocessor.simplify(cnf(
+                new int[]{1, -1, 2},     // tautology
+                new int[]{2, 3, 2},      // duplicate literal
+                new int[]{3, 2},         // duplicate clause
+                new int[]{2, 3, 4},      // subsumed
+                new int[]{5},            // unit
+                new int[]{-5, 6},        // propagated to a unit
+                new int[]{-6, 7, 8},     // shortened
+                new int[]{5, 9}));       // satisfied
+        assertEquals("5 0\n6 0\n2 3 0\n7 8 0\n", simplified.toString());
+        assertEquals(1, preprocessor.getTautologies());
+        assertEquals(2, preprocessor.getSubsumed());
+        assertEquals(2, preprocessor.getFixedVariables());
+        assertEquals(0, preprocessor.getEliminatedVariables());
+    }
+
+    @Test
+    void simplify_inconsistent() {
+        CNFPreprocessor preprocessor = new CNFPreprocessor(false);
+        assertEquals("0\n", preprocessor.simplify(cnf(new int[]{1}, new int[]{-1, 2}, new int[]{-2})).toString());
+        assertEquals("0\n", new CNFPreprocessor(true).simplify(cnf(new int[]{1, 2}, new int[]{-1, 2}, new int[]{1, -2}, new int[]{-1, -2})).toString());
+    }
+
+    @Test
+    void simplify_eliminate() {
+        CNFPreprocessor preprocessor = new CNFPreprocessor(true);
+        preprocessor.freeze(1);
+        preprocessor.freeze(3);
+        // 2 is a pure literal, 4 is eliminated: (1|4) & (~4|3) -> (1|3)
+        PackedCNF simplified = preprocessor.simplify(cnf(
+                new int[]{1, 2},
+                new int[]{2, 3},
+                new int[]{1, 4},
+                new int[]{-4, 3}));
+        assertEquals("1 3 0\n", simplified.toString());
+        assertEquals(1, preprocessor.getPureLiterals());
+        assertEquals(1, preprocessor.getEliminatedVariables());
+    }
+
+    /**
+     * @return the assignments of the frozen variables (bits of the mask) which extend to a model
+     */
+    private static BitSet projectedModels(final PackedCNF formula, int variables, int frozenMask) {
+        BitSet models = new BitSet();
+        for (int assignment = 0; assignment < (1 << variables); assignment++) {
+            boolean satisfied = true;
+            for (int clause = 0; clause < formula.size() && satisfied; clause++) {
+                satisfied = false;
+                for (int i = 0; i < formula.clauseSize(clause) && !satisfied; i++) {
+                    int literal = formula.get(clause, i);
+                    boolean value = (assignment & (1 << (Math.abs(literal) - 1))) != 0;
+                    satisfied = (literal > 0) == value;
+                }
+            }
+            if (satisfied) {
+                models.set(assignment & frozenMask);
+            }
+        }
+        return models;
+    }
+
+    @Test
+    void simplify_random() {
+        Random random = new Random(3);
+        int variables = 8;
+        for (int round = 0; round < 300; round++) {
+            PackedCNF formula = new PackedCNF();
+            int clauses = 4 + random.nextInt(16);
+            for (int i = 0; i < clauses; i++) {
+                int[] clause = new int[1 + random.nextInt(3)];
+                for (int j = 0; j < clause.length; j++) {
+                    clause[j] = (random.nextInt(variables) + 1) * (random.nextBoolean() ? 1 : -1);
+                }
+                formula.addClause(clause);
+            }
+            int frozenMask = random.nextInt(1 << variables);
+            CNFPreprocessor preprocessor = new CNFPreprocessor(true);
+            for (int var = 1; var <= variables; var++) {
+                if ((frozenMask & (1 << (var - 1))) != 0) {
+                    preprocessor.freeze(var);
+                }
+            }
+            PackedCNF eliminated = preprocessor.simplify(formula);
+            assertEquals(projectedModels(formula, variables, frozenMask), projectedModels(eliminated, variables, frozenMask), formula.toString());
+            PackedCNF equivalent = new CNFPreprocessor(false).simplify(formula);
+            int all = (1 << variables) - 1;
+            assertEquals(projectedModels(formula, variables, all), projectedModels(equivalent, variables, all), formula.toString());
+        }
+    }
+}
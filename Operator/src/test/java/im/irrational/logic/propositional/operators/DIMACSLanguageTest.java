@@ -0,0 +1,156 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.LanguageFormatException;
+import im.irrational.logic.propositional.Literal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DIMACSLanguageTest {
+    DIMACSLanguage language;
+
+    @BeforeEach
+    void setUp() {
+        language = new DIMACSLanguage();
+    }
+
+    @Test
+    void parse_cnf() {
+        try {
+            DIMACSInstance instance = language.parse("c a comment\np cnf 4 3\n1 -2 0\n-3\n 4 0 2 0\n");
+            assertFalse(instance.isWeighted());
+            assertEquals(4, instance.getNumberOfVariables());
+            assertEquals("1 -2 0\n-3 4 0\n2 0\n", instance.getHardClauses().toString());
+            assertEquals(0, instance.getSoftClauses().size());
+            assertEquals("p cnf 4 3\n1 -2 0\n-3 4 0\n2 0\n", language.toString(instance));
+        } catch (LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void parse_wcnf() {
+        try {
+            DIMACSInstance instance = language.parse("p wcnf 3 4 10\n10 1 2 0\n3 -1 0\n4 -2 0\n 2 3 0\n");
+            assertTrue(instance.isWeighted());
+            assertEquals("1 2 0\n", instance.getHardClauses().toString());
+            assertEquals("-1 0\n-2 0\n3 0\n", instance.getSoftClauses().toString());
+            assertEquals(4, instance.getWeight(1));
+            assertEquals(10, instance.getTop());
+            assertEquals("p wcnf 3 4 10\n10 1 2 0\n3 -1 0\n4 -2 0\n2 3 0\n", language.toString(instance));
+            // without top every clause is soft
+            instance = language.parse("p wcnf 2 2\n10 1 2 0\n3 -1 0\n");
+            assertEquals(0, instance.getHardClauses().size());
+            assertEquals(2, instance.getSoftClauses().size());
+            // new format without header
+            instance = language.parse("c new format\nh 1 2 0\n3 -1 0\n4 -2 0\n");
+            assertTrue(instance.isWeighted());
+            assertEquals("1 2 0\n", instance.getHardClauses().toString());
+            assertEquals("-1 0\n-2 0\n", instance.getSoftClauses().toString());
+            assertEquals(3, instance.getWeight(0));
+            assertEquals(language.toString(instance), language.toString(language.parse(language.toString(instance))));
+            // the largest numbers
+            instance = new DIMACSInstance(true);
+            instance.addSoftClause(Long.MAX_VALUE - 1, Integer.MIN_VALUE + 1, Integer.MAX_VALUE);
+            assertEquals("p wcnf 2147483647 1 9223372036854775807\n9223372036854775806 -2147483647 2147483647 0\n", language.toString(instance));
+        } catch (LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void parse_errors() {
+        LanguageFormatException e = assertThrows(LanguageFormatException.class, () -> language.parse("p cnf 2 1\n1 x 0\n"));
+        assertEquals(12, e.getPosition());
+        assertEquals("a number is expected, found 'x' at offset 12", e.getMessage());
+        assertThrows(LanguageFormatException.class, () -> language.parse("p cnf 2 1\n1 2"));
+        assertThrows(LanguageFormatException.class, () -> language.parse("p dnf 2 1\n1 2 0\n"));
+        assertThrows(LanguageFormatException.class, () -> language.parse("p cnf 2 1\np cnf 2 1\n"));
+        assertThrows(LanguageFormatException.class, () -> language.parse("p cnf 2 1\n1 2- 0\n"));
+        assertThrows(LanguageFormatException.class, () -> language.parse("p cnf 2 1\n1 3000000000 0\n"));
+        e = assertThrows(LanguageFormatException.class, () -> language.parse("p wcnf 2 1\n0 1 0\n"));
+        assertEquals(11, e.getPosition());
+        // a literal which is not a variable of the header
+        e = assertThrows(LanguageFormatException.class, () -> language.parse("p cnf 2 1\n1 -3 0\n"));
+        assertEquals(12, e.getPosition());
+        assertEquals("literal -3 is not a variable of the header at offset 12", e.getMessage());
+        assertThrows(LanguageFormatException.class, () -> language.parse("p cnf -2 1\n1 0\n"));
+        // the sum of the weights leaves no top weight
+        e = assertThrows(LanguageFormatException.class, () -> language.parse("p wcnf 2 2\n9223372036854775000 1 0\n1000 2 0\n"));
+        assertEquals(35, e.getPosition());
+        DIMACSInstance instance = new DIMACSInstance(true);
+        instance.addSoftClause(Long.MAX_VALUE - 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> instance.addSoftClause(1, 2));
+        assertEquals(1, instance.getSoftClauses().size());
+        assertEquals(Long.MAX_VALUE, instance.getTop());
+    }
+
+    @Test
+    void parse_satlib() {
+        try {
+            // the SATLIB benchmarks end with a % line and a 0 line
+            DIMACSInstance instance = language.parse("c uf3\np cnf 3 2\n 1 -2 3 0\n-1 2 0\n%\n0\n\n");
+            assertEquals("1 -2 3 0\n-1 2 0\n", instance.getHardClauses().toString());
+        } catch (LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void read_write() {
+        try {
+            DIMACSInstance instance = new DIMACSInstance(true);
+            for (int i = 1; i <= 1000; i++) {
+                instance.addHardClause(-i, i + 1, -(i + 2));
+                instance.addSoftClause(i, i);
+            }
+            Path path = Files.createTempFile("instance", ".wcnf");
+            path.toFile().deleteOnExit();
+            language.write(instance, path);
+            // small regions, so that the numbers span regions
+            DIMACSInstance read = new DIMACSLanguage(7).read(path);
+            assertEquals(1002, read.getNumberOfVariables());
+            assertEquals(1000, read.getHardClauses().size());
+            assertEquals(1000, read.getSoftClauses().size());
+            assertEquals(instance.getHardClauses().toString(), read.getHardClauses().toString());
+            assertEquals(instance.getSoftClauses().toString(), read.getSoftClauses().toString());
+            assertEquals(500, read.getWeight(499));
+            assertEquals(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII), language.toString(read));
+            assertEquals(1000, language.read(path).getSoftClauses().size());
+        } catch (IOException | LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void call() {
+        // KB = ~1|~2|~3, 3
+        // soft = 1 & 2
+        try {
+            DIMACSInstance instance = language.parse("p wcnf 3 4 5\n5 -1 -2 -3 0\n5 3 0\n1 1 0\n1 2 0\n");
+            MSSSolver solver = new MSSSolver();
+            List<Clause> solutions = solver.call(instance.getHardClauses(), instance.getSoftClauses(), 10);
+            assertEquals(2, solutions.size());
+            assertTrue(solutions.toString().contains("(Unnamed1)"));
+            assertTrue(solutions.toString().contains("(Unnamed2)"));
+            // the variables of the instance are released after the call
+            assertEquals(1, solver.encode(new Literal("A", true)));
+        } catch (LanguageFormatException | FormulaError | Timeout e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+}
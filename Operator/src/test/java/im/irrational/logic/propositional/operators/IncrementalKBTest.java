@@ -0,0 +1,129 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalKBTest {
+    MSSSolver solver;
+    Clause soft;
+    Clause hard;
+
+    @BeforeEach
+    void setUp() {
+        solver = new MSSSolver();
+        soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true),
+                new Literal("S", true));
+        hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+    }
+
+    @Test
+    void add_retract() {
+        Clause rule1 = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", false),
+                new Literal("P", false),
+                new Literal("Q", false),
+                new Literal("S", false));
+        Clause rule2 = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("P", false),
+                new Literal("Q", true));
+        try (IncrementalKB kb = solver.openIncrementalKB(10)) {
+            assertEquals("[(P&Q&R&S)]", kb.call(soft, hard).toString());
+            assertTrue(kb.add(rule1));
+            assertFalse(kb.add(rule1.clone()));
+            assertTrue(kb.add(rule2));
+            assertEquals(2, kb.size());
+            assertEquals("[(Q&R&S), (P&Q&R)]", kb.call(soft, hard).toString());
+            assertTrue(kb.retract(rule1));
+            assertFalse(kb.retract(rule1));
+            assertFalse(kb.contains(rule1));
+            assertEquals("[(P&Q&R&S)]", kb.call(soft, hard).toString());
+            // an inconsistent knowledge base, until the formula is retracted
+            Clause notR = new Clause(eClauseType.CONJUNCTIVE, new Literal("R", false));
+            kb.add(notR);
+            assertNull(kb.call(soft, hard));
+            kb.retract(notR);
+            assertEquals("[(P&Q&R&S)]", kb.call(soft, hard).toString());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void compact() {
+        // random updates, every answer is the same as a call with the whole knowledge base
+        Random random = new Random(7);
+        String[] words = {"P", "Q", "R", "S", "T", "U"};
+        try (IncrementalKB kb = solver.openIncrementalKB(10)) {
+            Clause soft = new Clause(eClauseType.CONJUNCTIVE);
+            for (String word : words) {
+                soft.add(new Literal(word, true));
+            }
+            List<Clause> live = new ArrayList<>();
+            for (int step = 0; step < 300; step++) {
+                if (!live.isEmpty() && random.nextBoolean()) {
+                    assertTrue(kb.retract(live.remove(random.nextInt(live.size()))));
+                } else {
+                    Clause formula = new Clause(eClauseType.DISJUNCTIVE);
+                    for (int i = 0; i < 2; i++) {
+                        formula.add(new Literal(words[random.nextInt(words.length)], random.nextBoolean()));
+                    }
+                    if (kb.add(formula)) {
+                        live.add(formula);
+                    }
+                }
+                if (step % 20 == 19) {
+                    List<Clause> expected;
+                    try {
+                        expected = new MSSSolver().call(kb.toClause(), soft, null, 10);
+                    } catch (FormulaError e) {
+                        // inconsistent by propagation alone, the incremental knowledge base answers null
+                        expected = null;
+                    }
+                    List<Clause> solutions = kb.call(soft, null);
+                    if (expected == null) {
+                        assertNull(solutions);
+                    } else {
+                        assertEquals(new HashSet<>(expected), new HashSet<>(solutions));
+                    }
+                }
+            }
+            assertEquals(live.size(), kb.size());
+            assertTrue(kb.getCompactions() > 0);
+            kb.compact();
+            assertEquals(0, kb.getRetractedClauses());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void close() {
+        try {
+            IncrementalKB kb = solver.openIncrementalKB(10);
+            kb.add(new Clause(eClauseType.DISJUNCTIVE, new Literal("P", true), new Literal("Q", true)));
+            kb.close();
+            kb.close();
+            assertThrows(IllegalStateException.class, () -> kb.call(null, null));
+            assertThrows(IllegalStateException.class, () -> kb.add(new Clause(eClauseType.DISJUNCTIVE)));
+        } catch (FormulaError error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+}
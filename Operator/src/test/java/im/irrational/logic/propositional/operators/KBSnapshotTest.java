@@ -0,0 +1,226 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.LanguageFormatException;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KBSnapshotTest {
+    Clause kb;
+    Clause soft;
+    Clause hard;
+
+    @BeforeEach
+    void setUp() {
+        // KB = (~P|~Q|~R|~S) & (~P|Q)
+        kb = new Clause(eClauseType.CONJUNCTIVE,
+                new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("R", false),
+                        new Literal("P", false),
+                        new Literal("Q", false),
+                        new Literal("S", false)),
+                new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("P", false),
+                        new Literal("Q", true)));
+        soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true),
+                new Literal("S", true));
+        hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+    }
+
+    private List<Clause> expected() throws FormulaError, Timeout {
+        try (MSSSession session = new MSSSolver().openSession(kb, 10)) {
+            return session.call(soft, hard);
+        }
+    }
+
+    @Test
+    void write_read() {
+        Path path = null;
+        try {
+            MSSSolver solver = new MSSSolver();
+            KBSnapshot snapshot = solver.snapshot(kb);
+            assertEquals(2, snapshot.getKnowledgeBase().size());
+            assertEquals(4, snapshot.getNumberOfVariables());
+            path = Files.createTempFile("kb", ".snapshot");
+            snapshot.write(path);
+            KBSnapshot read = KBSnapshot.read(path);
+            assertEquals(snapshot.getKnowledgeBase().toString(), read.getKnowledgeBase().toString());
+            for (int var = 1; var <= 4; var++) {
+                assertEquals(snapshot.getWord(var), read.getWord(var));
+            }
+            // a new solver gets the same dictionary, the knowledge base is not copied
+            MSSSolver restored = new MSSSolver();
+            assertSame(read.getKnowledgeBase(), restored.restore(read));
+            try (MSSSession session = restored.openSession(read, 10)) {
+                assertEquals(expected(), session.call(soft, hard));
+            }
+        } catch (FormulaError | Timeout | IOException | LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        } finally {
+            if (path != null) {
+                path.toFile().delete();
+            }
+        }
+    }
+
+    @Test
+    void restore_renamed() {
+        try {
+            KBSnapshot snapshot = new MSSSolver().snapshot(kb);
+            // the variables of the snapshot are taken by other words
+            MSSSolver solver = new MSSSolver();
+            solver.encode(new Literal("S", true));
+            solver.encode(new Literal("other", true));
+            PackedCNF restored = solver.restore(snapshot);
+            assertNotSame(snapshot.getKnowledgeBase(), restored);
+            assertEquals(kb.toCNF(), solver.decode(restored));
+            try (MSSSession session = solver.openSession(snapshot, 10)) {
+                // the same subsets, in the order of the new variables
+                assertEquals(new HashSet<>(expected()), new HashSet<>(session.call(soft, hard)));
+            }
+        } catch (FormulaError | Timeout e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void definitional() {
+        try {
+            MSSSolver solver = new MSSSolver(MSSSolver.SAT4JSolverType.DEFAULT, MSSSolver.CNFEncoding.DEFINITIONAL);
+            KBSnapshot snapshot = KBSnapshot.read(writeToBuffer(solver.snapshot(kb)));
+            MSSSolver restored = new MSSSolver(MSSSolver.SAT4JSolverType.DEFAULT, MSSSolver.CNFEncoding.DEFINITIONAL);
+            try (MSSSession session = restored.openSession(snapshot, 10)) {
+                assertEquals(expected(), session.call(soft, hard));
+            }
+        } catch (FormulaError | Timeout | IOException | LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void openSession_concurrent() {
+        // the auxiliary variables of the snapshot stay out of the words bound by the calls which run at the same time
+        Clause nested = new Clause(eClauseType.CONJUNCTIVE,
+                new Clause(eClauseType.DISJUNCTIVE,
+                        new Clause(eClauseType.CONJUNCTIVE, new Literal("P", true), new Literal("Q", true)),
+                        new Clause(eClauseType.CONJUNCTIVE, new Literal("R", true), new Literal("S", true))),
+                new Clause(eClauseType.DISJUNCTIVE, new Literal("P", false), new Literal("R", false)));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            KBSnapshot snapshot = new MSSSolver(MSSSolver.SAT4JSolverType.DEFAULT, MSSSolver.CNFEncoding.DEFINITIONAL).snapshot(nested);
+            MSSSolver solver = new MSSSolver();
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                final int task = t;
+                results.add(pool.submit(() -> {
+                    if (task % 2 == 0) {
+                        try (MSSSession session = solver.openSession(snapshot, 10)) {
+                            for (int i = 0; i < 20; i++) {
+                                // a new word per query, which must not take a variable of the knowledge base
+                                Clause query = new Clause(eClauseType.CONJUNCTIVE,
+                                        new Literal("P", true),
+                                        new Literal("R", true),
+                                        new Literal("Z" + task + "_" + i, false));
+                                List<Clause> expected = new MSSSolver().call(nested, query, null, 10);
+                                if (!new HashSet<>(expected).equals(new HashSet<>(session.call(query, null)))) {
+                                    return false;
+                                }
+                            }
+                        }
+                    } else {
+                        for (int i = 0; i < 20; i++) {
+                            solver.call(kb, new Clause(eClauseType.CONJUNCTIVE,
+                                    new Literal("Y" + task + "_" + i, true),
+                                    new Literal("P", true),
+                                    new Literal("Q", true)), null, 10);
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void read_errors() {
+        assertThrows(LanguageFormatException.class, () -> KBSnapshot.read(ByteBuffer.wrap(new byte[]{1, 2, 3})));
+        assertThrows(LanguageFormatException.class, () -> KBSnapshot.read(ByteBuffer.allocate(64).putInt(0, 42)));
+        ByteBuffer wrongVersion = ByteBuffer.allocate(64).putInt(KBSnapshot.MAGIC).putInt(KBSnapshot.VERSION + 1);
+        wrongVersion.rewind();
+        LanguageFormatException e = assertThrows(LanguageFormatException.class, () -> KBSnapshot.read(wrongVersion));
+        assertEquals("unsupported snapshot version 2", e.getMessage());
+        try {
+            ByteBuffer truncated = writeToBuffer(new MSSSolver().snapshot(kb));
+            truncated.limit(truncated.limit() - 4);
+            assertThrows(LanguageFormatException.class, () -> KBSnapshot.read(truncated));
+            // corrupt headers, offsets and literals
+            ByteBuffer snapshot = writeToBuffer(new MSSSolver().snapshot(kb));
+            int size = snapshot.getInt(16);
+            int numberOfLiterals = snapshot.getInt(20);
+            int maxVariable = snapshot.getInt(24);
+            int offsets = snapshot.limit() - 4 * (size + 1 + numberOfLiterals);
+            assertTrue(size >= 2);
+            assertCorrupt(snapshot, 8, Integer.MAX_VALUE);
+            assertCorrupt(snapshot, 16, Integer.MAX_VALUE);
+            assertCorrupt(snapshot, offsets + 4, snapshot.getInt(offsets + 8) + 1);
+            assertCorrupt(snapshot, snapshot.limit() - 4, 0);
+            assertCorrupt(snapshot, snapshot.limit() - 4, maxVariable + 1);
+            assertCorrupt(snapshot, snapshot.limit() - 4, -maxVariable - 1);
+            assertCorrupt(snapshot, snapshot.limit() - 4, Integer.MIN_VALUE);
+            assertNotNull(KBSnapshot.read(snapshot));
+        } catch (FormulaError | IOException | LanguageFormatException ex) {
+            ex.printStackTrace();
+            fail(ex);
+        }
+    }
+
+    /**
+     * check that the snapshot with the int at the index replaced by the value is rejected, and restore the int
+     */
+    private static void assertCorrupt(final ByteBuffer snapshot, int index, int value) {
+        int original = snapshot.getInt(index);
+        snapshot.putInt(index, value);
+        assertThrows(LanguageFormatException.class, () -> KBSnapshot.read(snapshot.duplicate()), String.format("%d at %d", value, index));
+        snapshot.putInt(index, original);
+    }
+
+    private static ByteBuffer writeToBuffer(final KBSnapshot snapshot) throws IOException {
+        Path path = Files.createTempFile("kb", ".snapshot");
+        try {
+            snapshot.write(path);
+            return ByteBuffer.wrap(Files.readAllBytes(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MSSExecutorTest {
+    MSSSolver solver;
+    Clause kb;
+    Clause soft;
+    Clause hard;
+
+    @BeforeEach
+    void setUp() {
+        solver = new MSSSolver();
+        // KB = ~R | ~P | ~Q
+        kb = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", false),
+                new Literal("P", false),
+                new Literal("Q", false));
+        soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true));
+        hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+    }
+
+    @Test
+    void submit() {
+        try (MSSExecutor executor = new MSSExecutor(solver, 4, 16)) {
+            List<CompletableFuture<MSSResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(kb, soft, hard, MSSBudget.unlimited()));
+            }
+            for (CompletableFuture<MSSResult> future : futures) {
+                MSSResult result = future.get(10, TimeUnit.SECONDS);
+                assertTrue(result.isComplete());
+                assertEquals(2, result.getSubsets().size());
+            }
+            // the time limit includes the time in the queue
+            MSSResult result = executor.submit(kb, soft, hard, 0, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+            assertFalse(result.isComplete());
+            assertEquals(MSSBudget.Stop.DEADLINE, result.getStop());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void submit_rejected_and_cancelled() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<MSSStatistics> finished = new ArrayList<>();
+        // the first query holds the only thread until it is released
+        solver.setListener(new IMSSListener() {
+            @Override
+            public void onStart(MSSStatistics statistics) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onFinish(MSSStatistics statistics) {
+                synchronized (finished) {
+                    finished.add(statistics);
+                }
+            }
+        });
+        try (MSSExecutor executor = new MSSExecutor(solver, 1, 1)) {
+            CompletableFuture<MSSResult> running = executor.submit(kb, soft, hard, MSSBudget.unlimited());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<MSSResult> queued = executor.submit(kb, soft, hard, MSSBudget.unlimited());
+            assertEquals(1, executor.getQueueSize());
+            // the queue is full
+            CompletableFuture<MSSResult> rejected = executor.submit(kb, soft, hard, MSSBudget.unlimited());
+            ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+            assertTrue(error.getCause() instanceof RejectedExecutionException);
+
+            // a query cancelled in the queue is never solved, and frees its place
+            assertTrue(queued.cancel(true));
+            assertEquals(0, executor.getQueueSize());
+            // the running query is cancelled before its first call to the SAT solver
+            assertTrue(running.cancel(true));
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(1, finished.size());
+            assertEquals(0, finished.get(0).getSatCalls());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void submit_error() {
+        // an error in a query fails its future instead of leaving it pending
+        solver.setListener(new IMSSListener() {
+            @Override
+            public void onStart(MSSStatistics statistics) {
+                throw new StackOverflowError();
+            }
+        });
+        try (MSSExecutor executor = new MSSExecutor(solver, 1, 4)) {
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> executor.submit(kb, soft, hard, MSSBudget.unlimited()).get(10, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof StackOverflowError);
+            // the thread is still there for the next query
+            solver.setListener(null);
+            assertTrue(executor.submit(kb, soft, hard, MSSBudget.unlimited()).get(10, TimeUnit.SECONDS).isComplete());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void submit_without_budget() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (MSSExecutor executor = new MSSExecutor(solver, 1, 4)) {
+            MSSResult result = executor.submit(kb, soft, hard, null).get(10, TimeUnit.SECONDS);
+            assertTrue(result.isComplete());
+            assertEquals(2, result.getSubsets().size());
+            // a query without a budget which is cancelled in the queue frees its place
+            solver.setListener(new IMSSListener() {
+                @Override
+                public void onStart(MSSStatistics statistics) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            CompletableFuture<MSSResult> running = executor.submit(kb, soft, hard, null);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<MSSResult> queued = executor.submit(kb, soft, hard, null);
+            assertEquals(1, executor.getQueueSize());
+            assertTrue(queued.cancel(true));
+            assertEquals(0, executor.getQueueSize());
+            release.countDown();
+            assertTrue(running.get(10, TimeUnit.SECONDS).isComplete());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MSSSessionTest {
+    MSSSolver solver;
+    Clause kb;
+
+    @BeforeEach
+    void setUp() {
+        solver = new MSSSolver();
+        // KB = (~P|~Q|~R|~S) & (~P|Q)
+        kb = new Clause(eClauseType.CONJUNCTIVE,
+                new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("R", false),
+                        new Literal("P", false),
+                        new Literal("Q", false),
+                        new Literal("S", false)),
+                new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("P", false),
+                        new Literal("Q", true)));
+    }
+
+    @Test
+    void call() {
+        try (MSSSession session = solver.openSession(kb, 10)) {
+            Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", true),
+                    new Literal("S", true));
+            Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", true));
+            // the same query gives the same answer as a single call, every time
+            List<Clause> expected = new MSSSolver().call(kb, soft, hard, 10);
+            assertEquals("[(Q&R&S), (P&Q&R)]", expected.toString());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected, session.call(soft, hard));
+            }
+
+            // the hard formula of the previous queries is retracted
+            List<Clause> solutions = session.call(soft, new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", false)));
+            assertEquals(1, solutions.size());
+            assertEquals("[(P&Q&S&~R)]", solutions.toString());
+
+            // and so are the soft clauses
+            solutions = session.call(new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", false)), null);
+            assertEquals(2, solutions.size());
+            assertTrue(solutions.toString().contains("(P)"));
+            assertTrue(solutions.toString().contains("(~Q)"));
+
+            solutions = session.call(null, hard);
+            assertEquals("[(R)]", solutions.toString());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void call_consumer() {
+        try (MSSSession session = solver.openSession(kb, 10)) {
+            Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", true),
+                    new Literal("S", true));
+            Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", true));
+            // stop after the first subset
+            List<Clause> solutions = new ArrayList<>();
+            assertTrue(session.call(soft, hard, solutions::add));
+            assertEquals("[(Q&R&S), (P&Q&R)]", solutions.toString());
+            solutions.clear();
+            assertTrue(session.call(soft, hard, mss -> solutions.add(mss) && false));
+            assertEquals("[(Q&R&S)]", solutions.toString());
+            // the stopped query is retracted
+            assertEquals("[(P&Q&S&~R)]", session.call(soft, new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", false))).toString());
+            // an open iterator is retracted when closed
+            try (MSSIterator iterator = session.iterator(soft, hard)) {
+                assertEquals("(Q&R&S)", iterator.next().toString());
+            }
+            assertEquals("[(P&Q&S&~R)]", session.call(soft, new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", false))).toString());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void call_inconsistent_hard_clauses() {
+        try (MSSSession session = solver.openSession(kb, 10)) {
+            // KB & P & ~Q is inconsistent
+            assertNull(session.call(new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("S", true)), new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", false))));
+            // the session is still usable
+            assertEquals("[(P&S)]", session.call(new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("S", true)), new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true))).toString());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void call_budget() {
+        try (MSSSession session = solver.openSession(kb, 10)) {
+            Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", true),
+                    new Literal("S", true));
+            Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", true));
+            MSSBudget budget = MSSBudget.unlimited();
+            budget.cancel();
+            MSSResult result = session.call(soft, hard, budget);
+            assertFalse(result.isComplete());
+            assertTrue(result.getSubsets().isEmpty());
+            // a stopped query is retracted like any other
+            result = session.call(soft, hard, MSSBudget.deadline(1, TimeUnit.HOURS));
+            assertTrue(result.isComplete());
+            assertEquals("[(Q&R&S), (P&Q&R)]", result.getSubsets().toString());
+            assertEquals(result.getSubsets(), session.call(soft, hard));
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void call_batch() {
+        try (MSSSession session = solver.openSession(kb, 10)) {
+            Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", true),
+                    new Literal("S", true));
+            Clause soft2 = new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", false));
+            Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", true));
+            Clause notR = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", false));
+            Clause inconsistent = new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", false));
+            List<MSSQuery> queries = new ArrayList<>();
+            queries.add(new MSSQuery(soft, hard));
+            queries.add(new MSSQuery(soft, notR));
+            queries.add(new MSSQuery(soft2, hard));
+            queries.add(new MSSQuery(soft, inconsistent));
+            queries.add(new MSSQuery(null, hard));
+            queries.add(new MSSQuery(soft, hard.clone()));
+            queries.add(new MSSQuery(soft2, null));
+            List<List<Clause>> answers = session.call(queries);
+            assertEquals(queries.size(), answers.size());
+            // the same answers as one query at a time, in the order of the queries
+            MSSSolver single = new MSSSolver();
+            for (int i = 0; i < queries.size(); i++) {
+                List<Clause> expected = single.call(kb, queries.get(i).getSoftFormula(), queries.get(i).getHardFormula(), 10);
+                if (expected == null) {
+                    assertNull(answers.get(i));
+                } else {
+                    assertEquals(new HashSet<>(expected), new HashSet<>(answers.get(i)));
+                }
+            }
+            assertNull(answers.get(3));
+            assertEquals("[(Q&R&S), (P&Q&R)]", answers.get(0).toString());
+            // duplicates are solved once
+            assertSame(answers.get(0), answers.get(5));
+            // the session is still usable
+            assertEquals(answers.get(0), session.call(soft, hard));
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void openSession_inconsistent_kb() {
+        Clause inconsistent = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("P", false));
+        assertThrows(FormulaError.class, () -> solver.openSession(inconsistent, 10));
+    }
+
+    @Test
+    void close() {
+        try {
+            MSSSession session = solver.openSession(kb, 10);
+            session.call(new Clause(eClauseType.CONJUNCTIVE, new Literal("P", true)), null);
+            BitSet temporary = (BitSet) session.scope.clone();
+            assertFalse(temporary.isEmpty());
+            // variables of an open session (activation, selector and bound literals) are not given to new words
+            assertFalse(temporary.get(solver.encode(new Literal("T", true))));
+            session.close();
+            session.close();
+            assertThrows(IllegalStateException.class, () -> session.call(null, null));
+            // the variables of a closed session are free again, and a new word reuses one of them
+            assertTrue(temporary.get(solver.encode(new Literal("U", true))));
+            // and so does a new session
+            try (MSSSession other = solver.openSession(kb, 10)) {
+                other.call(new Clause(eClauseType.CONJUNCTIVE, new Literal("P", true)), null);
+                assertTrue(other.scope.intersects(temporary));
+                assertFalse(other.scope.get(solver.encode(new Literal("T", true))));
+            }
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+}
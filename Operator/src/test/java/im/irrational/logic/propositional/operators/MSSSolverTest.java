@@ -1,5 +1,6 @@
 package im.irrational.logic.propositional.operators;
 
+import im.irrational.logic.propositional.CNFCache;
 import im.irrational.logic.propositional.Clause;
 import im.irrational.logic.propositional.FormulaError;
 import im.irrational.logic.propositional.Literal;
@@ -9,8 +10,15 @@ import org.junit.jupiter.api.Test;
 import org.sat4j.core.Vec;
 import org.sat4j.core.VecInt;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -181,6 +189,29 @@ class MSSSolverTest {
         }
     }
 
+    @Test
+    void MaxSat_cnfCache(){
+        // KB = (P&Q) | (R&S)
+        // soft = P & R
+        try {
+            assertNull(solver.getCNFCache());
+            CNFCache cache = new CNFCache(16, 1000);
+            solver.setCNFCache(cache);
+            Clause kb = new Clause(eClauseType.DISJUNCTIVE,
+                    new Clause(eClauseType.CONJUNCTIVE, new Literal("P", true), new Literal("Q", true)),
+                    new Clause(eClauseType.CONJUNCTIVE, new Literal("R", true), new Literal("S", true)));
+            Clause soft = new Clause(eClauseType.CONJUNCTIVE, new Literal("P", true), new Literal("R", true));
+            List<Clause> solutions = solver.call(kb, soft, null, 10);
+            assertEquals(solutions, solver.call(kb, soft, null, 10));
+            assertEquals("[(P&R)]", solutions.toString());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getHits());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
     @Test
     void MaxSat_eliminate_soft_clauses(){
         // KB = (~Q|~R) & (~P|~R)
@@ -458,6 +489,92 @@ class MSSSolverTest {
         }
     }
 
+    @Test
+    void encode_definitional() {
+        try {
+            // (a1&b1)|(a2&b2)|...|(a8&b8) distributes into 2^8 clauses
+            Clause formula = new Clause(eClauseType.DISJUNCTIVE);
+            for (int i = 1; i <= 8; i++) {
+                formula.add(new Clause(eClauseType.CONJUNCTIVE,
+                        new Literal("a" + i, true),
+                        new Literal("b" + i, true)));
+            }
+            assertEquals(256, solver.encode(formula).size());
+            // one clause for the disjunction and two for every conjunction
+            PackedCNF encoded = solver.encodeDefinitional(formula);
+            assertEquals(17, encoded.size());
+            // the auxiliary variables are never decoded to named literals
+            for (int i = 0; i < encoded.size(); i++) {
+                for (int j = 0; j < encoded.clauseSize(i); j++) {
+                    Literal literal = solver.decode(encoded.get(i, j));
+                    assertTrue(literal.getName().matches("[ab][1-8]|Unnamed\\d+"));
+                }
+            }
+
+            // CNF formulas are encoded as they are
+            encoded = solver.encodeDefinitional(
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Clause(eClauseType.DISJUNCTIVE,
+                                    new Literal("a1", false),
+                                    new Literal("b1", true)),
+                            new Literal("a2", true)));
+            assertEquals(2, encoded.size());
+        } catch (FormulaError formulaError) {
+            formulaError.printStackTrace();
+            fail(formulaError);
+        }
+    }
+
+    @Test
+    void MaxSat_definitional() {
+        // KB = (~R|~P|~Q) & ((P&S)|(Q&S)|~R)
+        // soft = P & Q
+        // hard = R
+        solver.setCNFEncoding(MSSSolver.CNFEncoding.DEFINITIONAL);
+        try {
+            List<Clause> solutions = solver.call(
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Clause(eClauseType.DISJUNCTIVE,
+                                    new Literal("R", false),
+                                    new Literal("P", false),
+                                    new Literal("Q", false)),
+                            new Clause(eClauseType.DISJUNCTIVE,
+                                    new Clause(eClauseType.CONJUNCTIVE,
+                                            new Literal("P", true),
+                                            new Literal("S", true)),
+                                    new Clause(eClauseType.CONJUNCTIVE,
+                                            new Literal("Q", true),
+                                            new Literal("S", true)),
+                                    new Literal("R", false))),
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Literal("P", true),
+                            new Literal("Q", true)),
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", true)), 10);
+            assertEquals(2, solutions.size());
+            assertTrue(solutions.toString().contains("(Q&R)"));
+            assertTrue(solutions.toString().contains("(P&R)"));
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void MaxSat_exhaustive_definitional() {
+        // the same subsets with the definitional encoding of the hard part
+        solver.setCNFEncoding(MSSSolver.CNFEncoding.DEFINITIONAL);
+        this.MaxSat_exhaustive();
+    }
+
+    @Test
+    void MaxSat_exhaustive_descending_bounds() {
+        // the same subsets, in the same order, as with the default enumeration of the correction sets
+        assertEquals(MSSSolver.Enumeration.CORRECTION_SETS, solver.getEnumeration());
+        solver.setEnumeration(MSSSolver.Enumeration.DESCENDING_BOUNDS);
+        this.MaxSat_exhaustive();
+    }
+
     @Test
     void decode_integer() {
         try {
@@ -502,6 +619,27 @@ class MSSSolverTest {
         }
     }
 
+    @Test
+    void decode_PackedCNF() {
+        try {
+            Clause formula = new Clause(eClauseType.CONJUNCTIVE,
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("a", false),
+                            new Literal("b", true)),
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("c", true),
+                            new Literal("a", true)));
+            PackedCNF encoded = solver.encodePacked(formula);
+            assertEquals(2, encoded.size());
+            assertEquals(4, encoded.numberOfLiterals());
+            assertEquals(3, encoded.getMaxVariable());
+            assertEquals(formula, solver.decode(encoded));
+        } catch (FormulaError formulaError) {
+            formulaError.printStackTrace();
+            fail(formulaError);
+        }
+    }
+
     @Test
     void decode_VecVecInt() {
         solver.encode(new Literal("a", false));
@@ -532,6 +670,395 @@ class MSSSolverTest {
         }
     }
 
+    @Test
+    void MaxSat_correction_sets() {
+        // KB = ~P|~Q|~R|~S
+        // soft = P & Q & S
+        // hard = R
+        solver.setEnumeration(MSSSolver.Enumeration.CORRECTION_SETS);
+        try {
+            List<Clause> solutions = solver.call(
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", false),
+                            new Literal("P", false),
+                            new Literal("Q", false),
+                            new Literal("S", false)),
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Literal("P", true),
+                            new Literal("Q", true),
+                            new Literal("S", true)),
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", true)), 10);
+            assertEquals(3, solutions.size());
+            assertTrue(solutions.toString().contains("(Q&R&S)"));
+            assertTrue(solutions.toString().contains("(P&R&S)"));
+            assertTrue(solutions.toString().contains("(P&Q&R)"));
+            // consistent soft clauses
+            solutions = solver.call(
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", false),
+                            new Literal("P", false)),
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Literal("P", true),
+                            new Literal("Q", true)),
+                    null, 10);
+            assertEquals("[(P&Q)]", solutions.toString());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void findAllCoMSSes() {
+        // KB = ~P|~Q|~R
+        // soft = P & Q & S
+        // hard = R
+        try {
+            List<Clause> solutions = solver.findAllCoMSSes(
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", false),
+                            new Literal("P", false),
+                            new Literal("Q", false)),
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Literal("P", true),
+                            new Literal("Q", true),
+                            new Literal("S", true)),
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", true)), 10);
+            assertEquals(2, solutions.size());
+            assertTrue(solutions.contains(new Clause(eClauseType.CONJUNCTIVE, new Literal("P", true)).toCNF()));
+            assertTrue(solutions.contains(new Clause(eClauseType.CONJUNCTIVE, new Literal("Q", true)).toCNF()));
+            // no correction needed
+            solutions = solver.findAllCoMSSes(null,
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Literal("P", true)),
+                    null, 10);
+            assertEquals(1, solutions.size());
+            assertEquals(0, solutions.get(0).size());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void iterator() {
+        // KB = ~P|~Q|~R|~S
+        // soft = P & Q & S
+        // hard = R
+        Clause kb = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", false),
+                new Literal("P", false),
+                new Literal("Q", false),
+                new Literal("S", false));
+        Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true),
+                new Literal("S", true));
+        Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+        for (MSSSolver.Enumeration enumeration : MSSSolver.Enumeration.values()) {
+            solver.setEnumeration(enumeration);
+            try (MSSIterator iterator = solver.iterator(kb, soft, hard, 10)) {
+                List<Clause> solutions = new ArrayList<>();
+                for (Clause mss = iterator.next(); mss != null; mss = iterator.next()) {
+                    solutions.add(mss);
+                }
+                assertTrue(iterator.isConsistent());
+                assertNull(iterator.next());
+                assertEquals(3, solutions.size());
+                assertTrue(solutions.toString().contains("(Q&R&S)"));
+                assertTrue(solutions.toString().contains("(P&R&S)"));
+                assertTrue(solutions.toString().contains("(P&Q&R)"));
+            } catch (FormulaError | Timeout error) {
+                error.printStackTrace();
+                fail(error);
+            }
+        }
+    }
+
+    @Test
+    void statistics() {
+        // KB = ~P|~Q|~R|~S
+        // soft = P & Q & S
+        // hard = R
+        Clause kb = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", false),
+                new Literal("P", false),
+                new Literal("Q", false),
+                new Literal("S", false));
+        Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true),
+                new Literal("S", true));
+        Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+        List<String> events = new ArrayList<>();
+        List<MSSStatistics> finished = new ArrayList<>();
+        List<MSSStatistics> searches = new ArrayList<>();
+        solver.setListener(new IMSSListener() {
+            @Override
+            public void onSubset(MSSStatistics search, BitSet subset) {
+                events.add("subset " + subset);
+                searches.add(search);
+            }
+
+            @Override
+            public void onBound(MSSStatistics search, int bound, long nanos) {
+                events.add("bound " + bound);
+                searches.add(search);
+            }
+
+            @Override
+            public void onFinish(MSSStatistics statistics) {
+                finished.add(statistics);
+            }
+        });
+        try (MSSIterator iterator = solver.iterator(kb, soft, hard, 10)) {
+            assertEquals(3, MSSSolver.collect(iterator).size());
+            MSSStatistics statistics = iterator.getStatistics();
+            assertEquals(3, statistics.getSubsets());
+            assertEquals(3, statistics.getSoftClauses());
+            assertEquals(statistics.getModels(), statistics.getSubsets() + statistics.getNonMaximalModels());
+            assertEquals(statistics.getSatCalls(), statistics.getModels() + statistics.getBounds());
+            assertEquals(statistics.getModels(), statistics.getBlockingClauses());
+            // from 3 soft clauses down to 0
+            assertEquals(4, statistics.getBounds());
+            assertEquals(7, events.size());
+            assertEquals(3, events.stream().filter(event -> event.startsWith("subset")).count());
+            assertEquals("bound 3", events.get(0));
+            assertEquals("bound 0", events.get(events.size() - 1));
+            assertEquals(1, finished.size());
+            assertSame(statistics, finished.get(0));
+            // every callback is given the statistics of its search
+            assertEquals(7, searches.size());
+            assertTrue(searches.stream().allMatch(search -> search == statistics));
+            assertFalse(statistics.getSolverStatistics().isEmpty());
+            assertTrue(statistics.toMap().containsKey("satCalls"));
+            assertTrue(statistics.toString().startsWith("MSSStatistics{"));
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+        solver.setListener(null);
+        assertNull(solver.getListener());
+    }
+
+    @Test
+    void call_consumer() {
+        // KB = ~R|~P|~Q
+        // soft = P & Q
+        // hard = R
+        Clause kb = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", false),
+                new Literal("P", false),
+                new Literal("Q", false));
+        Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true));
+        Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+        try {
+            List<Clause> solutions = new ArrayList<>();
+            assertTrue(solver.call(kb, soft, hard, 10, solutions::add));
+            assertEquals("[(Q&R), (P&R)]", solutions.toString());
+            // stop after the first subset
+            solutions.clear();
+            assertTrue(solver.call(kb, soft, hard, 10, mss -> solutions.add(mss) && false));
+            assertEquals("[(Q&R)]", solutions.toString());
+            // the variables of the stopped call are released
+            assertEquals(4, solver.encode(new Literal("T", true)));
+            // inconsistent kb and hard clauses
+            assertFalse(solver.call(new Clause(eClauseType.CONJUNCTIVE,
+                            new Clause(eClauseType.DISJUNCTIVE,
+                                    new Literal("R", false),
+                                    new Literal("P", false)),
+                            new Clause(eClauseType.DISJUNCTIVE,
+                                    new Literal("R", false),
+                                    new Literal("P", true))),
+                    soft, hard, 10, solutions::add));
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void call_batch() {
+        Clause kb = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", false),
+                new Literal("P", false),
+                new Literal("Q", false));
+        Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true));
+        Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+        Clause inconsistent = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true),
+                new Literal("R", true));
+        try {
+            List<MSSQuery> queries = new ArrayList<>();
+            queries.add(new MSSQuery(soft, hard));
+            queries.add(new MSSQuery(soft, null));
+            queries.add(new MSSQuery(soft, inconsistent));
+            queries.add(new MSSQuery(soft, hard));
+            List<List<Clause>> answers = solver.call(kb, queries, 10);
+            assertEquals(4, answers.size());
+            assertEquals("[(Q&R), (P&R)]", answers.get(0).toString());
+            assertEquals("[(P&Q)]", answers.get(1).toString());
+            assertNull(answers.get(2));
+            assertSame(answers.get(0), answers.get(3));
+            assertTrue(solver.call(kb, new ArrayList<>(), 10).isEmpty());
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void call_concurrent() {
+        // KB = (~P|~Q|~R) & (~S|~T), every thread asks with its own soft formula
+        Clause kb = new Clause(eClauseType.CONJUNCTIVE,
+                new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("P", false),
+                        new Literal("Q", false),
+                        new Literal("R", false)),
+                new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("S", false),
+                        new Literal("T", false)));
+        String[] words = {"P", "Q", "R", "S", "T"};
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Clause> softFormulas = new ArrayList<>();
+            List<Future<List<Clause>>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                Clause soft = new Clause(eClauseType.CONJUNCTIVE);
+                for (int j = 0; j < 4; j++) {
+                    soft.add(new Literal(words[(i + j) % words.length], true));
+                }
+                soft.add(new Literal("X" + i, true));
+                softFormulas.add(soft);
+                results.add(pool.submit(() -> solver.call(kb, soft, null, 10)));
+            }
+            // the same subsets as a solver of its own, and one variable per word
+            for (int i = 0; i < results.size(); i++) {
+                List<Clause> expected = new MSSSolver().call(kb, softFormulas.get(i), null, 10);
+                assertEquals(new HashSet<>(expected), new HashSet<>(results.get(i).get()));
+            }
+            HashSet<Integer> variables = new HashSet<>();
+            for (String word : words) {
+                variables.add(solver.encode(new Literal(word, true)));
+            }
+            for (int i = 0; i < 16; i++) {
+                variables.add(solver.encode(new Literal("X" + i, true)));
+            }
+            assertEquals(21, variables.size());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void call_budget() {
+        Clause kb = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", false),
+                new Literal("P", false),
+                new Literal("Q", false));
+        Clause soft = new Clause(eClauseType.CONJUNCTIVE,
+                new Literal("P", true),
+                new Literal("Q", true));
+        Clause hard = new Clause(eClauseType.DISJUNCTIVE,
+                new Literal("R", true));
+        try {
+            // without limits, the same subsets as with a timeout
+            MSSResult result = solver.call(kb, soft, hard, MSSBudget.unlimited());
+            assertTrue(result.isComplete());
+            assertTrue(result.isConsistent());
+            assertEquals(MSSBudget.Stop.NONE, result.getStop());
+            assertEquals("[(Q&R), (P&R)]", result.getSubsets().toString());
+            assertTrue(result.getStatistics().getSatCalls() > 0);
+
+            // a cancelled search stops before the first call to the SAT solver
+            MSSBudget budget = MSSBudget.unlimited();
+            budget.cancel();
+            result = solver.call(kb, soft, hard, budget);
+            assertFalse(result.isComplete());
+            assertFalse(result.isConsistent());
+            assertEquals(MSSBudget.Stop.CANCELLED, result.getStop());
+            assertTrue(result.getSubsets().isEmpty());
+            assertEquals(0, result.getStatistics().getSatCalls());
+
+            result = solver.call(kb, soft, hard, MSSBudget.deadline(0, TimeUnit.SECONDS));
+            assertFalse(result.isComplete());
+            assertEquals(MSSBudget.Stop.DEADLINE, result.getStop());
+            assertTrue(result.getSubsets().isEmpty());
+
+            // cancelled after the first subset, which is kept
+            MSSBudget cancelled = MSSBudget.deadline(1, TimeUnit.HOURS);
+            try (MSSIterator iterator = solver.iterator(kb, soft, hard, cancelled)) {
+                assertEquals("(Q&R)", iterator.next().toString());
+                cancelled.cancel();
+                assertNull(iterator.next());
+                assertFalse(iterator.isComplete());
+                assertEquals(MSSBudget.Stop.CANCELLED, iterator.getStop());
+                assertTrue(iterator.isConsistent());
+            }
+        } catch (FormulaError | Timeout error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void call_conflict_budget() {
+        // 5 pigeons in 4 holes: each soft clause puts a pigeon in a hole, each hard clause keeps two pigeons apart
+        Clause soft = new Clause(eClauseType.CONJUNCTIVE);
+        Clause hard = new Clause(eClauseType.CONJUNCTIVE);
+        try {
+            for (int p = 0; p < 5; p++) {
+                Clause pigeon = new Clause(eClauseType.DISJUNCTIVE);
+                for (int h = 0; h < 4; h++) {
+                    pigeon.add(new Literal("P" + p + "H" + h, true));
+                    for (int q = p + 1; q < 5; q++) {
+                        hard.add(new Clause(eClauseType.DISJUNCTIVE,
+                                new Literal("P" + p + "H" + h, false),
+                                new Literal("P" + q + "H" + h, false)));
+                    }
+                }
+                soft.add(pigeon);
+            }
+            MSSResult complete = solver.call(null, soft, hard, MSSBudget.unlimited());
+            assertTrue(complete.isComplete());
+            assertEquals(5, complete.getSubsets().size());
+
+            // the search runs out of conflicts, and stops at the same point every time
+            MSSResult partial = solver.call(null, soft, hard, MSSBudget.conflicts(1));
+            assertFalse(partial.isComplete());
+            assertEquals(MSSBudget.Stop.CONFLICTS, partial.getStop());
+            assertEquals(partial.getSubsets(), solver.call(null, soft, hard, MSSBudget.conflicts(1)).getSubsets());
+            assertTrue(complete.getSubsets().containsAll(partial.getSubsets()));
+        } catch (FormulaError error) {
+            error.printStackTrace();
+            fail(error);
+        }
+    }
+
+    @Test
+    void MaxSat_no_preprocessing() {
+        // the same subsets, in the same order, without simplifying the hard part
+        assertTrue(solver.isPreprocessing());
+        solver.setPreprocessing(false);
+        this.MaxSat_exhaustive();
+        solver.setCNFEncoding(MSSSolver.CNFEncoding.DEFINITIONAL);
+        this.MaxSat_exhaustive();
+    }
+
     @Test
     void MaxSat_exhaustive(){
         this.MaxSat_classic();
@@ -0,0 +1,175 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.CompiledFormula;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelCounterTest {
+    ModelCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new ModelCounter();
+    }
+
+    /**
+     * number of assignments of the first counted variables which extend to a model, by enumeration
+     */
+    static long enumerate(final Clause formula, final List<String> counted) throws FormulaError {
+        CompiledFormula compiled = new CompiledFormula(formula, counted);
+        HashSet<Long> projections = new HashSet<>();
+        for (long assignment = 0; assignment < (1L << compiled.getVariableCount()); assignment++) {
+            if (compiled.evaluate(new long[]{assignment})) {
+                projections.add(assignment & ((1L << counted.size()) - 1));
+            }
+        }
+        return projections.size();
+    }
+
+    @Test
+    void count() {
+        try {
+            Clause formula = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("P", true),
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Literal("Q", true),
+                            new Literal("R", false)));
+            assertEquals(BigInteger.valueOf(5), counter.count(formula));
+            assertEquals(BigInteger.valueOf(3), counter.count(formula, new Clause(eClauseType.DISJUNCTIVE, new Literal("Q", true))));
+            assertEquals(BigInteger.ONE, counter.count(null));
+            assertEquals(BigInteger.ZERO, counter.count(new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("P", false))));
+            // the tautology keeps its variable
+            assertEquals(BigInteger.valueOf(2), counter.count(new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("P", false))));
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void count_random() {
+        Random random = new Random(5);
+        ModelCounter distributive = new ModelCounter(new MSSSolver());
+        try {
+            for (int test = 0; test < 100; test++) {
+                Clause formula = RandomFormulas.alternating(random, 14, 12);
+                long expected = new CompiledFormula(formula).countModels();
+                // with and without truth tables and cache, and with both encodings
+                counter.setTruthTableVariables(test % 2 == 0 ? 0 : 6);
+                counter.setCacheSize(test % 3 == 0 ? 0 : 1024);
+                assertEquals(BigInteger.valueOf(expected), counter.count(formula), formula.toString());
+                assertEquals(BigInteger.valueOf(expected), distributive.count(formula), formula.toString());
+            }
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void count_projected() {
+        Random random = new Random(9);
+        try {
+            for (int test = 0; test < 100; test++) {
+                Clause formula = RandomFormulas.alternating(random, 12, 12);
+                List<String> counted = new ArrayList<>();
+                for (int v = 0; v < 12; v++) {
+                    if (random.nextInt(3) == 0) {
+                        counted.add("V" + v);
+                    }
+                }
+                counter.setTruthTableVariables(test % 2 == 0 ? 0 : 8);
+                // a cache of a few clauses evicts all the time
+                counter.setCacheInts(test % 3 == 0 ? 32 : 1 << 22);
+                assertEquals(BigInteger.valueOf(enumerate(formula, counted)), counter.count(formula, counted), formula + " " + counted);
+            }
+            // a counted variable which is not in the formula is free
+            Clause formula = new Clause(eClauseType.DISJUNCTIVE, new Literal("P", true), new Literal("Q", true));
+            assertEquals(BigInteger.valueOf(4), counter.count(formula, Arrays.asList("P", "S")));
+            assertEquals(BigInteger.ONE, counter.count(formula, new ArrayList<>()));
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void count_components() {
+        // 100 independent pairs (P_i | Q_i) have 3^100 models, counted as separate components
+        try {
+            Clause formula = new Clause(eClauseType.CONJUNCTIVE);
+            for (int i = 0; i < 100; i++) {
+                formula.add(new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("P" + i, true),
+                        new Literal("Q" + i, true)));
+            }
+            counter.setTruthTableVariables(0);
+            assertEquals(BigInteger.valueOf(3).pow(100), counter.count(formula));
+            // both branches of one decision per pair
+            assertEquals(200, counter.getDecisions());
+            // a chain is split into two components by each decision, equal tails come from the cache
+            Clause chain = new Clause(eClauseType.CONJUNCTIVE);
+            for (int i = 0; i < 60; i++) {
+                chain.add(new Clause(eClauseType.DISJUNCTIVE,
+                        new Literal("X" + i, false),
+                        new Literal("X" + (i + 1), true),
+                        new Literal("Y" + i, true)));
+            }
+            BigInteger count = counter.count(chain);
+            assertTrue(counter.getCacheHits() > 0);
+            counter.setTruthTableVariables(10);
+            assertEquals(count, counter.count(chain));
+            assertThrows(IllegalArgumentException.class, () -> counter.setCacheInts(-1));
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void count_unsatisfiable() {
+        // 5 pigeons in 4 holes
+        try {
+            Clause formula = new Clause(eClauseType.CONJUNCTIVE);
+            for (int p = 0; p < 5; p++) {
+                Clause hole = new Clause(eClauseType.DISJUNCTIVE);
+                for (int h = 0; h < 4; h++) {
+                    hole.add(new Literal(String.format("p%dh%d", p, h), true));
+                }
+                formula.add(hole);
+            }
+            for (int h = 0; h < 4; h++) {
+                for (int p = 0; p < 5; p++) {
+                    for (int q = p + 1; q < 5; q++) {
+                        formula.add(new Clause(eClauseType.DISJUNCTIVE,
+                                new Literal(String.format("p%dh%d", p, h), false),
+                                new Literal(String.format("p%dh%d", q, h), false)));
+                    }
+                }
+            }
+            assertEquals(BigInteger.ZERO, counter.count(formula));
+            // and so is every projection
+            assertEquals(BigInteger.ZERO, counter.count(formula, Arrays.asList("p0h0", "p1h1")));
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package im.irrational.logic.propositional.operators;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sat4j.core.Vec;
+import org.sat4j.core.VecInt;
+import org.sat4j.pb.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedCNFTest {
+    PackedCNF cnf;
+
+    @BeforeEach
+    void setUp() {
+        cnf = new PackedCNF(1, 1);
+    }
+
+    @Test
+    void addClause() {
+        assertEquals(0, cnf.addClause(1, -2, 3));
+        assertEquals(1, cnf.addClause(new VecInt(new int[]{-1})));
+        assertEquals(2, cnf.addClause(new int[]{4, 5, -6, 7}, 1, 3));
+        assertEquals(3, cnf.size());
+        assertEquals(6, cnf.numberOfLiterals());
+        assertEquals(6, cnf.getMaxVariable());
+        assertEquals(3, cnf.clauseSize(0));
+        assertEquals(1, cnf.clauseSize(1));
+        assertEquals(-2, cnf.get(0, 1));
+        assertArrayEquals(new int[]{5, -6}, cnf.getClause(2));
+        assertEquals("1 -2 3 0\n-1 0\n5 -6 0\n", cnf.toString());
+        assertThrows(IllegalStateException.class, () -> cnf.addLiteral(1));
+        cnf.startClause();
+        assertThrows(IllegalArgumentException.class, () -> cnf.addLiteral(0));
+    }
+
+    @Test
+    void streaming() {
+        for (int i = 1; i <= 1000; i++) {
+            cnf.startClause();
+            for (int j = 0; j < i % 7; j++) {
+                cnf.addLiteral(i + j);
+            }
+            cnf.endClause();
+        }
+        assertEquals(1000, cnf.size());
+        assertEquals(1005, cnf.getMaxVariable());
+        assertEquals(0, cnf.clauseSize(6));
+        assertEquals(6, cnf.clauseSize(5));
+        assertEquals(999, cnf.get(997, 1));
+        assertThrows(IllegalStateException.class, () -> cnf.endClause());
+
+        PackedCNF copy = new PackedCNF();
+        copy.addAll(cnf);
+        assertEquals(cnf.toString(), copy.toString());
+        cnf.clear();
+        assertEquals(0, cnf.size());
+        assertEquals(0, cnf.numberOfLiterals());
+    }
+
+    @Test
+    void addTo() {
+        // (a|b) & (~a|b) & (a|~b)
+        cnf.addClause(1, 2);
+        cnf.addClause(-1, 2);
+        cnf.addClause(1, -2);
+        ISolver solver = SolverFactory.newDefault();
+        try {
+            cnf.addTo(solver);
+            assertTrue(solver.isSatisfiable());
+            assertArrayEquals(new int[]{1, 2}, solver.model());
+            cnf.addClauseTo(solver, 0, -1, new VecInt());
+            cnf.addClause(-1, -2);
+            cnf.addClauseTo(solver, 3, 0, new VecInt());
+            assertFalse(solver.isSatisfiable());
+        } catch (ContradictionException | TimeoutException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void toVec() {
+        cnf.addClause(1, -2);
+        cnf.addClause(3);
+        Vec<VecInt> vec = cnf.toVec();
+        assertEquals(2, vec.size());
+        assertEquals(new VecInt(new int[]{1, -2}), vec.get(0));
+        assertEquals(new VecInt(new int[]{3}), vec.get(1));
+    }
+}
@@ -0,0 +1,38 @@
+package im.irrational.logic.propositional.operators;
+
+import im.irrational.logic.propositional.Clause;
+import im.irrational.logic.propositional.FormulaError;
+import im.irrational.logic.propositional.Literal;
+import im.irrational.logic.propositional.eClauseType;
+
+import java.util.Random;
+
+/**
+ * random formulas of the tests of the operators, over the variables V0, V1, ...; the same random generator gives the
+ * same formulas
+ */
+final class RandomFormulas {
+    private RandomFormulas() {
+    }
+
+    /**
+     * @param width maximum number of elements of the root, a sub-formula has at most 3
+     * @return a formula which alternates conjunctions and disjunctions down to depth 3, starting with a conjunction
+     */
+    static Clause alternating(final Random random, int variables, int width) throws FormulaError {
+        return alternating(random, variables, width, 0);
+    }
+
+    private static Clause alternating(final Random random, int variables, int width, int depth) throws FormulaError {
+        Clause clause = new Clause(depth % 2 == 0 ? eClauseType.CONJUNCTIVE : eClauseType.DISJUNCTIVE);
+        int size = 1 + random.nextInt(depth == 0 ? width : 3);
+        for (int i = 0; i < size; i++) {
+            if (depth < 3 && random.nextInt(3) > 0) {
+                clause.add(alternating(random, variables, width, depth + 1));
+            } else {
+                clause.add(new Literal("V" + random.nextInt(variables), random.nextBoolean()));
+            }
+        }
+        return clause;
+    }
+}
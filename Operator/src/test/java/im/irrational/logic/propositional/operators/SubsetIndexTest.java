@@ -0,0 +1,137 @@
+package im.irrational.logic.propositional.operators;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubsetIndexTest {
+    SubsetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SubsetIndex();
+    }
+
+    private static BitSet set(int... elements) {
+        BitSet set = new BitSet();
+        for (int element : elements) {
+            set.set(element);
+        }
+        return set;
+    }
+
+    @Test
+    void add() {
+        assertTrue(index.isEmpty());
+        assertTrue(index.add(set(1, 3, 5)));
+        assertTrue(index.add(set(0, 3)));
+        assertFalse(index.add(set(5, 3, 1)));
+        assertTrue(index.add(set()));
+        assertEquals(3, index.size());
+        assertTrue(index.contains(set(0, 3)));
+        assertFalse(index.contains(set(3)));
+        assertEquals("[{1, 3, 5}, {0, 3}, {}]", index.toString());
+    }
+
+    @Test
+    void hasSuperset() {
+        assertFalse(index.hasSuperset(set()));
+        index.add(set(1, 3, 5));
+        index.add(set(0, 2, 4));
+        assertTrue(index.hasSuperset(set()));
+        assertTrue(index.hasSuperset(set(1, 5)));
+        assertTrue(index.hasSuperset(set(0, 2, 4)));
+        assertTrue(index.hasSuperset(set(4)));
+        assertFalse(index.hasSuperset(set(1, 2)));
+        assertFalse(index.hasSuperset(set(1, 3, 5, 6)));
+        assertFalse(index.hasSuperset(set(7)));
+    }
+
+    @Test
+    void hasSubset() {
+        assertFalse(index.hasSubset(set(1)));
+        index.add(set(1, 3, 5));
+        index.add(set(2, 4));
+        assertTrue(index.hasSubset(set(1, 2, 3, 5)));
+        assertTrue(index.hasSubset(set(0, 2, 4)));
+        assertFalse(index.hasSubset(set(1, 2, 3)));
+        index.add(set());
+        assertTrue(index.hasSubset(set()));
+    }
+
+    @Test
+    void removeSubsets() {
+        index.add(set(1, 3, 5));
+        index.add(set(1, 3));
+        index.add(set(3));
+        index.add(set(2, 3));
+        index.add(set(6));
+        assertEquals(3, index.removeSubsets(set(1, 3, 5)));
+        assertEquals("[{2, 3}, {6}]", index.toString());
+        assertFalse(index.hasSuperset(set(1)));
+        assertTrue(index.hasSuperset(set(3)));
+        assertEquals(0, index.removeSubsets(set(1, 3, 5)));
+        // the removed paths can be added again
+        assertTrue(index.add(set(1, 3)));
+        assertTrue(index.hasSuperset(set(1)));
+        assertEquals("[{2, 3}, {6}, {1, 3}]", index.toString());
+        index.clear();
+        assertTrue(index.isEmpty());
+        assertFalse(index.hasSuperset(set()));
+    }
+
+    @Test
+    void toList() {
+        BitSet set = set(1, 2);
+        index.add(set);
+        set.set(3);
+        List<BitSet> list = index.toList();
+        assertEquals(1, list.size());
+        assertEquals(set(1, 2), list.get(0));
+        list.get(0).clear();
+        assertTrue(index.contains(set(1, 2)));
+    }
+
+    @Test
+    void maximal_sets() {
+        // same maximal sets as a scan of a list
+        Random random = new Random(42);
+        List<BitSet> expected = new ArrayList<>();
+        for (int n = 0; n < 2000; n++) {
+            BitSet set = new BitSet();
+            for (int i = 0; i < 12; i++) {
+                if (random.nextInt(3) == 0) {
+                    set.set(i);
+                }
+            }
+            boolean isMaximum = true;
+            for (BitSet existing : expected) {
+                BitSet rest = (BitSet) set.clone();
+                rest.andNot(existing);
+                if (rest.isEmpty()) {
+                    isMaximum = false;
+                    break;
+                }
+            }
+            if (isMaximum) {
+                expected.removeIf(existing -> {
+                    BitSet rest = (BitSet) existing.clone();
+                    rest.andNot(set);
+                    return rest.isEmpty();
+                });
+                expected.add(set);
+            }
+            if (!index.hasSuperset(set)) {
+                index.removeSubsets(set);
+                index.add(set);
+            }
+        }
+        assertEquals(expected, index.toList());
+    }
+}
@@ -0,0 +1,176 @@
+package im.irrational.logic.propositional.operators;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariableDictionaryTest {
+    VariableDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new VariableDictionary();
+    }
+
+    @Test
+    void encode() {
+        assertEquals(0, dictionary.lookup(7));
+        assertEquals(1, dictionary.encode(7));
+        assertEquals(2, dictionary.encode(3));
+        assertEquals(1, dictionary.encode(7));
+        assertEquals(1, dictionary.lookup(7));
+        assertEquals(7, dictionary.word(1));
+        assertEquals(-1, dictionary.word(3));
+        assertEquals(2, dictionary.size());
+        // the tables grow
+        assertEquals(3, dictionary.encode(1000));
+        assertEquals(1000, dictionary.word(3));
+        assertArrayEquals(new int[]{0, 8, 4, 1001}, dictionary.words());
+    }
+
+    @Test
+    void temporary() {
+        BitSet scope = new BitSet();
+        dictionary.encode(5);
+        assertEquals(2, dictionary.newTemporary(scope));
+        assertEquals(3, dictionary.newTemporary(scope));
+        // words never take a temporary variable
+        assertEquals(4, dictionary.encode(6));
+        assertFalse(dictionary.isWord(2));
+        dictionary.release(scope);
+        assertEquals(3, dictionary.encode(8));
+        // reserve the free variables up to 6
+        BitSet reserved = new BitSet();
+        dictionary.reserve(reserved, 6);
+        assertEquals("{2, 5, 6}", reserved.toString());
+        assertEquals(7, dictionary.encode(9));
+        assertEquals(8, dictionary.nextFree(7));
+    }
+
+    @Test
+    void reserve_held() {
+        BitSet call = new BitSet();
+        assertEquals(1, dictionary.newTemporary(call));
+        // a variable held by another scope is reserved too
+        BitSet session = new BitSet();
+        dictionary.reserve(session, 2);
+        assertEquals("{1, 2}", session.toString());
+        dictionary.release(call);
+        assertTrue(call.isEmpty());
+        // the session still holds it, a new word does not take it
+        assertEquals(3, dictionary.encode(5));
+        assertEquals(4, dictionary.newTemporary(call));
+        dictionary.release(session);
+        dictionary.release(session);
+        assertEquals(1, dictionary.nextFree(1));
+        assertEquals(2, dictionary.encode(6));
+    }
+
+    @Test
+    void restore() {
+        // variable 2 is a word of the dictionary but not of the knowledge base, variable 3 is held by a call
+        assertEquals(1, dictionary.encode(7));
+        assertEquals(2, dictionary.encode(8));
+        BitSet call = new BitSet();
+        assertEquals(3, dictionary.newTemporary(call));
+        BitSet session = new BitSet();
+        int[] variables = dictionary.restore(new int[]{-1, 9, -1, -1, -1}, session);
+        // the word takes the variable 4, so the variables 2 and 4 are renamed, the variable 3 keeps its number
+        assertArrayEquals(new int[]{0, 4, 5, 3, 6}, variables);
+        assertEquals("{3, 5, 6}", session.toString());
+        dictionary.release(call);
+        assertEquals(7, dictionary.encode(10));
+        dictionary.release(session);
+        assertEquals(3, dictionary.nextFree(1));
+    }
+
+    @Test
+    void bind() {
+        assertEquals(4, dictionary.bind(10, 4));
+        // the variable is taken, the word gets a new one
+        assertEquals(2, dictionary.bind(11, 4));
+        // the word is bound already
+        assertEquals(4, dictionary.bind(10, 7));
+        BitSet scope = new BitSet();
+        assertEquals(3, dictionary.newTemporary(scope));
+        assertEquals(5, dictionary.bind(12, 3));
+    }
+
+    @Test
+    void encode_concurrent() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t;
+                results.add(pool.submit(() -> {
+                    int[] variables = new int[1000];
+                    BitSet scope = new BitSet();
+                    for (int i = 0; i < variables.length; i++) {
+                        variables[i] = dictionary.encode((i + offset * 100) % variables.length);
+                        dictionary.newTemporary(scope);
+                    }
+                    dictionary.release(scope);
+                    return variables;
+                }));
+            }
+            // every thread sees the same variable for a word, and the words have distinct variables
+            for (int t = 0; t < results.size(); t++) {
+                int[] encoded = results.get(t).get();
+                for (int i = 0; i < encoded.length; i++) {
+                    assertEquals(dictionary.lookup((i + t * 100) % encoded.length), encoded[i]);
+                }
+            }
+            HashSet<Integer> variables = new HashSet<>();
+            for (int word = 0; word < 1000; word++) {
+                variables.add(dictionary.lookup(word));
+                assertEquals(word, dictionary.word(dictionary.lookup(word)));
+            }
+            assertEquals(1000, variables.size());
+            assertFalse(variables.contains(0));
+            assertEquals(1000, dictionary.size());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void decode_concurrent() {
+        // a thread which finds the variable of a word bound by another thread also finds the word of the variable
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    int misses = 0;
+                    for (int word = 0; word < 20000; word++) {
+                        if (dictionary.word(dictionary.encode(word)) != word) {
+                            misses++;
+                        }
+                    }
+                    return misses;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, (int) result.get());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package im.irrational.logic.propositional;
+
+/**
+ * the enumeration of every assignment of a few variables in batches of 64, one assignment per bit of a word, as
+ * {@link CompiledFormula#evaluateParallel(long[])} takes them
+ * <p>
+ * this is shared by the evaluators of this library, e.g. {@link CompiledFormula#countModels()}, and is not part of its
+ * interface to formulas.
+ */
+public final class AssignmentBatches {
+    /**
+     * values of the first 6 variables in the 64 assignments of a word, assignment j gives bit v of j to variable v
+     */
+    private static final long[] PATTERNS = {
+            0xAAAAAAAAAAAAAAAAL,
+            0xCCCCCCCCCCCCCCCCL,
+            0xF0F0F0F0F0F0F0F0L,
+            0xFF00FF00FF00FF00L,
+            0xFFFF0000FFFF0000L,
+            0xFFFFFFFF00000000L};
+
+    private AssignmentBatches() {
+    }
+
+    /**
+     * @param variables number of variables
+     * @return number of batches of 64 assignments to enumerate every assignment of the variables
+     */
+    public static long batches(int variables) {
+        if (variables > 62) {
+            throw new IllegalStateException(String.format("too many variables to enumerate: %d", variables));
+        }
+        return variables <= 6 ? 1 : 1L << (variables - 6);
+    }
+
+    /**
+     * @param variables number of variables
+     * @return the valid assignments of a batch, fewer than 64 if there are fewer than 6 variables
+     */
+    public static long mask(int variables) {
+        return variables >= 6 ? -1L : (1L << (1 << variables)) - 1;
+    }
+
+    /**
+     * fill the columns of a batch: the assignment j of batch b is the binary number (b << 6) | j
+     *
+     * @param batch   index of the batch, see {@link #batches(int)}
+     * @param columns values of each variable in the 64 assignments of the batch, bit j of columns[v] is the value of
+     *                variable v in assignment j
+     * @return the columns
+     */
+    public static long[] columns(long batch, final long[] columns) {
+        for (int v = 0; v < columns.length; v++) {
+            columns[v] = v < PATTERNS.length ? PATTERNS[v] : -((batch >>> (v - PATTERNS.length)) & 1);
+        }
+        return columns;
+    }
+}
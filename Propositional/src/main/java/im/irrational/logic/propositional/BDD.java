@@ -0,0 +1,141 @@
+package im.irrational.logic.propositional;
+
+import java.math.BigInteger;
+
+/**
+ * a formula compiled by a {@link BDDManager}, an immutable handle on the root of its diagram
+ * <p>
+ * two BDDs of the same manager are equal if and only if their formulas are equivalent, which is a comparison of the
+ * roots. The operations take time in the size of the diagrams, and their results are cached by the manager.
+ */
+public final class BDD {
+    final BDDManager manager;
+    final int root;
+
+    BDD(final BDDManager manager, int root) {
+        this.manager = manager;
+        this.root = root;
+        manager.register(this);
+    }
+
+    public BDDManager getManager() {
+        return manager;
+    }
+
+    public BDD and(final BDD other) {
+        manager.check(other);
+        manager.prepare();
+        return new BDD(manager, manager.and(root, other.root));
+    }
+
+    public BDD or(final BDD other) {
+        manager.check(other);
+        manager.prepare();
+        return new BDD(manager, manager.or(root, other.root));
+    }
+
+    public BDD xor(final BDD other) {
+        manager.check(other);
+        manager.prepare();
+        return new BDD(manager, manager.xor(root, other.root));
+    }
+
+    public BDD not() {
+        manager.prepare();
+        return new BDD(manager, manager.not(root));
+    }
+
+    /**
+     * @return the formula where the variable has the value, the same formula if the variable is not declared
+     */
+    public BDD restrict(final String name, boolean value) {
+        int variable = manager.indexOf(name);
+        if (variable < 0) {
+            return this;
+        }
+        manager.prepare();
+        return new BDD(manager, manager.restrict(root, variable, value));
+    }
+
+    /**
+     * @param literals a conjunction of literals, the variables take their values
+     * @return the formula where the variables have the values of the literals
+     */
+    public BDD restrict(final Clause literals) throws FormulaError {
+        manager.prepare();
+        int result = root;
+        for (ILogicFormula element : literals) {
+            if (!(element instanceof Literal)) {
+                throw new FormulaError(String.format("a restriction is made of literals, not %s", element));
+            }
+            Literal literal = (Literal) element;
+            int variable = manager.indexOf(literal.getName());
+            if (variable >= 0) {
+                result = manager.restrict(result, variable, literal.getValue());
+            }
+        }
+        return new BDD(manager, result);
+    }
+
+    /**
+     * @return true if every model of this formula is a model of the other
+     */
+    public boolean entails(final BDD other) {
+        manager.check(other);
+        manager.prepare();
+        return manager.leq(root, other.root);
+    }
+
+    /**
+     * @return true if every model of this formula is a model of the other, which is compiled by the manager
+     */
+    public boolean entails(final Clause other) throws FormulaError {
+        return entails(manager.compile(other));
+    }
+
+    public boolean isConsistent() {
+        return root != BDDManager.FALSE;
+    }
+
+    public boolean isValid() {
+        return root == BDDManager.TRUE;
+    }
+
+    /**
+     * @return number of models over all the variables of the manager
+     */
+    public BigInteger countModels() {
+        return manager.count(root);
+    }
+
+    /**
+     * @return a conjunction of literals whose every extension is a model, null if the formula is inconsistent
+     */
+    public Clause anyModel() {
+        return manager.model(root);
+    }
+
+    /**
+     * @return number of nodes of the diagram, with the terminals
+     */
+    public int size() {
+        return manager.size(root);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BDD)) {
+            return false;
+        }
+        BDD other = (BDD) obj;
+        return manager == other.manager && root == other.root;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(manager) + root;
+    }
+}
@@ -0,0 +1,723 @@
+package im.irrational.logic.propositional;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * reduced ordered binary decision diagrams of formulas, see {@link BDD}
+ * <p>
+ * the nodes of all the BDDs of a manager live in flat arrays, a node is an index and 0 and 1 are the terminals false
+ * and true. A unique table makes one node per (variable, low, high), so two BDDs of a manager are equivalent if and only
+ * if they have the same root, and the results of the operations are kept in a direct-mapped cache, where a new result
+ * evicts the one in its slot. The variables are ordered by declaration: a formula which is compiled declares its new
+ * variables below the others, in the order of the {@link Ordering} of the manager.
+ * <p>
+ * the nodes which no {@link BDD} can reach are dead, they are collected before an operation once the table has grown
+ * past a threshold, which doubles with the live nodes. A BDD is referenced weakly, so its nodes are collected after the
+ * BDD is garbage collected, and the reference itself is dropped when the next BDD is made, even if no node is. A
+ * BDDManager and its BDDs are not thread safe.
+ */
+public class BDDManager {
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    private static final int TERMINAL_LEVEL = Integer.MAX_VALUE;
+
+    private static final int AND = 0;
+    private static final int OR = 1;
+    private static final int XOR = 2;
+    private static final int NOT = 3;
+    private static final int RESTRICT = 4;
+    private static final int LEQ = 5;
+
+    public enum Ordering {
+        /**
+         * the order in which the variables first appear in the canonical order of the formula
+         */
+        APPEARANCE,
+        /**
+         * the order of the names
+         */
+        NAME,
+        /**
+         * the variables in the most sub-formulas first
+         */
+        OCCURRENCE,
+        /**
+         * FORCE: each variable is moved to the center of gravity of the sub-formulas it is in, so that the variables
+         * of a sub-formula end up close to each other
+         */
+        FORCE
+    }
+
+    private final Ordering ordering;
+    private final ArrayList<String> variables = new ArrayList<>();
+    private final HashMap<String, Integer> indices = new HashMap<>();
+
+    /**
+     * level of the node, its variable, -1 if the node is free
+     */
+    private int[] level;
+    private int[] low;
+    private int[] high;
+    /**
+     * next node in the bucket of the unique table, or in the free list
+     */
+    private int[] next;
+    private int[] buckets;
+    private int freeList = -1;
+    private int nodes = 2;
+    private int used = 2;
+
+    private final int[] cacheKeys;
+    private final int[] cacheA;
+    private final int[] cacheB;
+    private final int[] cacheResults;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    /**
+     * the BDDs of the manager, a reference is queued once its BDD is garbage collected
+     */
+    private final HashSet<Reference<BDD>> roots = new HashSet<>();
+    private final ReferenceQueue<BDD> collected = new ReferenceQueue<>();
+    private final int minThreshold;
+    private int threshold;
+    private long collections = 0;
+
+    public BDDManager() {
+        this(Ordering.FORCE);
+    }
+
+    public BDDManager(final Ordering ordering) {
+        this(ordering, 1 << 12, 1 << 16);
+    }
+
+    /**
+     * @param ordering  order of the new variables of a compiled formula
+     * @param nodes     number of nodes before the first collection, the table grows as needed
+     * @param cacheSize number of slots of the operation cache, rounded up to a power of two
+     */
+    public BDDManager(final Ordering ordering, int nodes, int cacheSize) {
+        if (nodes < 2 || cacheSize < 1) {
+            throw new IllegalArgumentException("the manager needs room for the terminals and a cache");
+        }
+        this.ordering = ordering;
+        int capacity = Integer.highestOneBit(nodes - 1) << 1;
+        level = new int[capacity];
+        low = new int[capacity];
+        high = new int[capacity];
+        next = new int[capacity];
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        level[FALSE] = TERMINAL_LEVEL;
+        level[TRUE] = TERMINAL_LEVEL;
+        int slots = (cacheSize == 1 ? 1 : Integer.highestOneBit(cacheSize - 1) << 1);
+        cacheKeys = new int[slots];
+        Arrays.fill(cacheKeys, -1);
+        cacheA = new int[slots];
+        cacheB = new int[slots];
+        cacheResults = new int[slots];
+        this.minThreshold = capacity;
+        this.threshold = capacity;
+    }
+
+    public Ordering getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * declare a variable below the others if it is not declared yet
+     *
+     * @return level of the variable
+     */
+    public int declare(final String name) {
+        Integer index = indices.get(name);
+        if (index == null) {
+            index = variables.size();
+            variables.add(name);
+            indices.put(name, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return number of variables, the models are counted over all of them
+     */
+    public int getVariableCount() {
+        return variables.size();
+    }
+
+    /**
+     * @return name of the variable at the level
+     */
+    public String getVariable(int level) {
+        return variables.get(level);
+    }
+
+    /**
+     * @return level of the variable, or -1 if it is not declared
+     */
+    public int indexOf(final String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return number of nodes in the table, live or dead, with the terminals
+     */
+    public int getNodeCount() {
+        return used;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return number of collections of the dead nodes
+     */
+    public long getCollections() {
+        return collections;
+    }
+
+    public BDD constant(boolean value) {
+        return new BDD(this, value ? TRUE : FALSE);
+    }
+
+    /**
+     * @return the BDD of the literal, its variable is declared if needed
+     */
+    public BDD literal(final Literal literal) {
+        prepare();
+        return new BDD(this, literal(declare(literal.getName()), literal.getValue()));
+    }
+
+    public BDD variable(final String name) {
+        return literal(new Literal(name, true));
+    }
+
+    /**
+     * compile a formula, hash-consed by a {@link UniqueTable} so that equal sub-formulas are built once. The
+     * sub-formulas are normalized as {@link Clause#add(ILogicFormula)} does, which drops an empty sub-formula, and an
+     * empty formula is true.
+     */
+    public BDD compile(final Clause formula) throws FormulaError {
+        prepare();
+        declareAll(formula);
+        UniqueTable table = new UniqueTable();
+        FormulaNode root = table.of(formula);
+        int[] built = new int[table.size()];
+        Arrays.fill(built, -1);
+        return new BDD(this, build(root, built));
+    }
+
+    private int literal(int variable, boolean value) {
+        return value ? make(variable, FALSE, TRUE) : make(variable, TRUE, FALSE);
+    }
+
+    /**
+     * @param built the BDD of each node of the table which is built, -1 for the others
+     */
+    private int build(final FormulaNode node, final int[] built) {
+        if (node.isLiteral()) {
+            Literal literal = node.getLiteral();
+            return literal(indices.get(literal.getName()), literal.getValue());
+        } else if (built[node.getId()] >= 0) {
+            return built[node.getId()];
+        }
+        boolean and = node.getType() == eClauseType.CONJUNCTIVE;
+        int result = (and || node.size() == 0) ? TRUE : FALSE;
+        int absorbing = and ? FALSE : TRUE;
+        for (int i = 0; i < node.size() && result != absorbing; i++) {
+            result = apply(and ? AND : OR, result, build(node.get(i), built));
+        }
+        built[node.getId()] = result;
+        return result;
+    }
+
+    /**
+     * declare the new variables of the formula in the order of the heuristic
+     */
+    private void declareAll(final Clause formula) throws FormulaError {
+        LinkedHashMap<String, int[]> found = new LinkedHashMap<>();
+        List<int[]> edges = new ArrayList<>();
+        scan(formula, found, edges);
+        List<String> names = new ArrayList<>(found.keySet());
+        switch (ordering) {
+            case NAME:
+                names.sort(null);
+                break;
+            case OCCURRENCE:
+                // a stable sort keeps the order of appearance of the ties
+                names.sort((a, b) -> Integer.compare(found.get(b)[1], found.get(a)[1]));
+                break;
+            case FORCE:
+                names = force(names, edges);
+                break;
+            default:
+                break;
+        }
+        for (String name : names) {
+            declare(name);
+        }
+    }
+
+    /**
+     * collect the new variables with their position in the order of appearance and their number of occurrences, and
+     * the positions of the new variables of each sub-formula
+     *
+     * @return positions of the new variables of the formula
+     */
+    private List<Integer> scan(final Clause formula, final LinkedHashMap<String, int[]> found, final List<int[]> edges) throws FormulaError {
+        ArrayList<Integer> edge = new ArrayList<>();
+        for (ILogicFormula element : formula.ordered()) {
+            if (element instanceof Literal) {
+                String name = ((Literal) element).getName();
+                if (indices.containsKey(name)) {
+                    continue;
+                }
+                int[] variable = found.get(name);
+                if (variable == null) {
+                    variable = new int[]{found.size(), 0};
+                    found.put(name, variable);
+                }
+                variable[1]++;
+                edge.add(variable[0]);
+            } else if (element instanceof Clause) {
+                edge.addAll(scan((Clause) element, found, edges));
+            } else {
+                throw new FormulaError(String.format("Unknown logic element type: %s", element.getClass().getName()));
+            }
+        }
+        if (edge.size() > 1) {
+            int[] array = new int[edge.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = edge.get(i);
+            }
+            edges.add(array);
+        }
+        return edge;
+    }
+
+    /**
+     * FORCE (Aloul, Markov and Sakallah): move each variable to the average of the centers of gravity of its
+     * sub-formulas, and sort, until the total span of the sub-formulas stops decreasing
+     */
+    private static List<String> force(final List<String> names, final List<int[]> edges) {
+        int n = names.size();
+        Integer[] order = new Integer[n];
+        double[] position = new double[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+            position[v] = v;
+        }
+        long span = span(edges, position);
+        for (int iteration = 0; iteration < 32 && n > 1; iteration++) {
+            double[] sum = new double[n];
+            int[] degree = new int[n];
+            for (int[] edge : edges) {
+                double center = 0;
+                for (int v : edge) {
+                    center += position[v];
+                }
+                center /= edge.length;
+                for (int v : edge) {
+                    sum[v] += center;
+                    degree[v]++;
+                }
+            }
+            double[] target = new double[n];
+            for (int v = 0; v < n; v++) {
+                target[v] = (degree[v] == 0 ? position[v] : sum[v] / degree[v]);
+            }
+            Integer[] candidate = order.clone();
+            Arrays.sort(candidate, (a, b) -> Double.compare(target[a], target[b]));
+            double[] moved = new double[n];
+            for (int i = 0; i < n; i++) {
+                moved[candidate[i]] = i;
+            }
+            long candidateSpan = span(edges, moved);
+            if (candidateSpan >= span) {
+                break;
+            }
+            span = candidateSpan;
+            order = candidate;
+            position = moved;
+        }
+        List<String> sorted = new ArrayList<>(n);
+        for (Integer v : order) {
+            sorted.add(names.get(v));
+        }
+        return sorted;
+    }
+
+    private static long span(final List<int[]> edges, final double[] position) {
+        long span = 0;
+        for (int[] edge : edges) {
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (int v : edge) {
+                min = Math.min(min, position[v]);
+                max = Math.max(max, position[v]);
+            }
+            span += (long) (max - min);
+        }
+        return span;
+    }
+
+    /**
+     * @return the node (level, low, high), reduced and unique
+     */
+    private int make(int variable, int lowNode, int highNode) {
+        if (lowNode == highNode) {
+            return lowNode;
+        }
+        int hash = hash(variable, lowNode, highNode) & (buckets.length - 1);
+        for (int node = buckets[hash]; node >= 0; node = next[node]) {
+            if (level[node] == variable && low[node] == lowNode && high[node] == highNode) {
+                return node;
+            }
+        }
+        int node;
+        if (freeList >= 0) {
+            node = freeList;
+            freeList = next[node];
+        } else {
+            if (nodes == level.length) {
+                grow();
+                hash = hash(variable, lowNode, highNode) & (buckets.length - 1);
+            }
+            node = nodes++;
+        }
+        used++;
+        level[node] = variable;
+        low[node] = lowNode;
+        high[node] = highNode;
+        next[node] = buckets[hash];
+        buckets[hash] = node;
+        return node;
+    }
+
+    private void grow() {
+        int capacity = level.length << 1;
+        level = Arrays.copyOf(level, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+        next = Arrays.copyOf(next, capacity);
+        rehash(capacity);
+    }
+
+    /**
+     * rebuild the buckets of the unique table with the live nodes
+     */
+    private void rehash(int capacity) {
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        for (int node = 2; node < nodes; node++) {
+            if (level[node] >= 0) {
+                int hash = hash(level[node], low[node], high[node]) & (capacity - 1);
+                next[node] = buckets[hash];
+                buckets[hash] = node;
+            }
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int hash = 31 * (31 * a + b) + c;
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int cached(int op, int a, int b) {
+        int slot = (hash(op, a, b) & (cacheKeys.length - 1));
+        if (cacheKeys[slot] == op && cacheA[slot] == a && cacheB[slot] == b) {
+            cacheHits++;
+            return cacheResults[slot];
+        }
+        cacheMisses++;
+        return -1;
+    }
+
+    private int cache(int op, int a, int b, int result) {
+        int slot = (hash(op, a, b) & (cacheKeys.length - 1));
+        cacheKeys[slot] = op;
+        cacheA[slot] = a;
+        cacheB[slot] = b;
+        cacheResults[slot] = result;
+        return result;
+    }
+
+    int apply(int op, int a, int b) {
+        switch (op) {
+            case AND:
+                if (a == FALSE || b == FALSE) {
+                    return FALSE;
+                } else if (a == TRUE || a == b) {
+                    return b;
+                } else if (b == TRUE) {
+                    return a;
+                }
+                break;
+            case OR:
+                if (a == TRUE || b == TRUE) {
+                    return TRUE;
+                } else if (a == FALSE || a == b) {
+                    return b;
+                } else if (b == FALSE) {
+                    return a;
+                }
+                break;
+            default:
+                if (a == b) {
+                    return FALSE;
+                } else if (a == FALSE) {
+                    return b;
+                } else if (b == FALSE) {
+                    return a;
+                } else if (a == TRUE) {
+                    return not(b);
+                } else if (b == TRUE) {
+                    return not(a);
+                }
+                break;
+        }
+        // the operations are commutative
+        if (a > b) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        int result = cached(op, a, b);
+        if (result >= 0) {
+            return result;
+        }
+        int top = Math.min(level[a], level[b]);
+        int lowNode = apply(op, level[a] == top ? low[a] : a, level[b] == top ? low[b] : b);
+        int highNode = apply(op, level[a] == top ? high[a] : a, level[b] == top ? high[b] : b);
+        return cache(op, a, b, make(top, lowNode, highNode));
+    }
+
+    int not(int a) {
+        if (a <= TRUE) {
+            return a ^ 1;
+        }
+        int result = cached(NOT, a, 0);
+        if (result >= 0) {
+            return result;
+        }
+        return cache(NOT, a, 0, make(level[a], not(low[a]), not(high[a])));
+    }
+
+    int restrict(int a, int variable, boolean value) {
+        if (level[a] > variable) {
+            return a;
+        } else if (level[a] == variable) {
+            return value ? high[a] : low[a];
+        }
+        int key = (variable << 1) | (value ? 1 : 0);
+        int result = cached(RESTRICT, a, key);
+        if (result >= 0) {
+            return result;
+        }
+        return cache(RESTRICT, a, key, make(level[a], restrict(low[a], variable, value), restrict(high[a], variable, value)));
+    }
+
+    /**
+     * @return true if every model of a is a model of b
+     */
+    boolean leq(int a, int b) {
+        if (a == FALSE || b == TRUE || a == b) {
+            return true;
+        } else if (a == TRUE || b == FALSE) {
+            // the BDDs are reduced, a is true and b is not, or b is false and a is not
+            return false;
+        }
+        int result = cached(LEQ, a, b);
+        if (result >= 0) {
+            return result == TRUE;
+        }
+        int top = Math.min(level[a], level[b]);
+        boolean leq = leq(level[a] == top ? low[a] : a, level[b] == top ? low[b] : b)
+                && leq(level[a] == top ? high[a] : a, level[b] == top ? high[b] : b);
+        cache(LEQ, a, b, leq ? TRUE : FALSE);
+        return leq;
+    }
+
+    int and(int a, int b) {
+        return apply(AND, a, b);
+    }
+
+    int or(int a, int b) {
+        return apply(OR, a, b);
+    }
+
+    int xor(int a, int b) {
+        return apply(XOR, a, b);
+    }
+
+    /**
+     * @return number of models over the variables of the manager
+     */
+    BigInteger count(int root) {
+        HashMap<Integer, BigInteger> counts = new HashMap<>();
+        return count(root, counts).shiftLeft(levelOf(root));
+    }
+
+    /**
+     * @return number of models over the variables from the level of the node to the last one
+     */
+    private BigInteger count(int node, final HashMap<Integer, BigInteger> counts) {
+        if (node <= TRUE) {
+            return node == TRUE ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        BigInteger count = counts.get(node);
+        if (count == null) {
+            count = count(low[node], counts).shiftLeft(levelOf(low[node]) - level[node] - 1)
+                    .add(count(high[node], counts).shiftLeft(levelOf(high[node]) - level[node] - 1));
+            counts.put(node, count);
+        }
+        return count;
+    }
+
+    private int levelOf(int node) {
+        return node <= TRUE ? variables.size() : level[node];
+    }
+
+    /**
+     * @return number of nodes reachable from the root, with the terminals
+     */
+    int size(int root) {
+        BitSet seen = new BitSet();
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = root;
+        int size = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (seen.get(node)) {
+                continue;
+            }
+            seen.set(node);
+            size++;
+            if (node > TRUE) {
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length << 1);
+                }
+                stack[top++] = low[node];
+                stack[top++] = high[node];
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return a conjunction of literals whose every extension is a model, null if there is no model
+     */
+    Clause model(int root) {
+        if (root == FALSE) {
+            return null;
+        }
+        Clause model = new Clause(eClauseType.CONJUNCTIVE);
+        for (int node = root; node > TRUE; ) {
+            boolean value = low[node] == FALSE;
+            model.addWithoutCopy(new Literal(variables.get(level[node]), value));
+            node = value ? high[node] : low[node];
+        }
+        return model;
+    }
+
+    void register(final BDD bdd) {
+        for (Reference<? extends BDD> reference = collected.poll(); reference != null; reference = collected.poll()) {
+            roots.remove(reference);
+        }
+        roots.add(new WeakReference<>(bdd, collected));
+    }
+
+    /**
+     * @return number of BDDs which are referenced by the manager, some of them may be garbage collected already
+     */
+    int getRootCount() {
+        return roots.size();
+    }
+
+    void check(final BDD bdd) {
+        if (bdd.manager != this) {
+            throw new IllegalArgumentException("the BDDs belong to different managers");
+        }
+    }
+
+    /**
+     * collect the dead nodes if the table has grown past the threshold, before an operation starts
+     */
+    void prepare() {
+        if (used >= threshold) {
+            collect();
+            threshold = Math.max(minThreshold, used << 1);
+        }
+    }
+
+    /**
+     * free the nodes which no live {@link BDD} reaches, and clear the operation cache
+     *
+     * @return number of freed nodes
+     */
+    public int collect() {
+        collections++;
+        boolean[] marked = new boolean[nodes];
+        marked[FALSE] = true;
+        marked[TRUE] = true;
+        int[] stack = new int[64];
+        for (Reference<BDD> reference : roots) {
+            BDD bdd = reference.get();
+            if (bdd == null) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = bdd.root;
+            while (top > 0) {
+                int node = stack[--top];
+                if (marked[node]) {
+                    continue;
+                }
+                marked[node] = true;
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length << 1);
+                }
+                stack[top++] = low[node];
+                stack[top++] = high[node];
+            }
+        }
+        int freed = 0;
+        for (int node = nodes - 1; node > TRUE; node--) {
+            if (!marked[node] && level[node] >= 0) {
+                level[node] = -1;
+                freed++;
+            }
+        }
+        // free the nodes in increasing order, so that the table is filled from the start
+        freeList = -1;
+        for (int node = nodes - 1; node > TRUE; node--) {
+            if (level[node] < 0) {
+                next[node] = freeList;
+                freeList = node;
+            }
+        }
+        used -= freed;
+        rehash(buckets.length);
+        Arrays.fill(cacheKeys, -1);
+        return freed;
+    }
+}
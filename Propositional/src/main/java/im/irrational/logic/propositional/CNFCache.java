@@ -0,0 +1,141 @@
+package im.irrational.logic.propositional;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * a bounded cache of {@link Clause#convertToCNF(Clause)}, the least recently used conversions are evicted first
+ * <p>
+ * the formulas are the keys, so structurally equal formulas share a conversion. The weight of a conversion is its number
+ * of literals, the cache keeps at most maxEntries conversions and maxWeight literals. A formula which is already in CNF
+ * is not cached since its conversion is a copy. The keys and the results are copies, which are shared with the callers
+ * in constant time (see {@link Clause#clone()}). A CNFCache is thread safe, the conversions are computed outside of its
+ * lock, so two threads may convert the same formula at the same time.
+ * <p>
+ * the cache holds its keys besides its conversions: a conversion is at least as large as its formula, so the literals
+ * of a full cache are at most twice maxWeight, plus the objects of the clauses. A cache of 1 << 20 literals takes
+ * tens of megabytes.
+ */
+public class CNFCache {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Clause, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static final class Entry {
+        final Clause cnf;
+        final long weight;
+
+        Entry(final Clause cnf, long weight) {
+            this.cnf = cnf;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @param maxEntries maximum number of conversions
+     * @param maxWeight  maximum number of literals in all the conversions
+     */
+    public CNFCache(int maxEntries, long maxWeight) {
+        if (maxEntries < 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("the bounds of the cache must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return the formula in CNF, as {@link Clause#convertToCNF(Clause)}
+     */
+    public Clause toCNF(final Clause formula) throws FormulaError {
+        if (formula == null) {
+            return null;
+        } else if (formula.isCNF()) {
+            return formula.toCNF();
+        }
+        synchronized (this) {
+            Entry entry = entries.get(formula);
+            if (entry != null) {
+                hits++;
+                return entry.cnf.clone();
+            }
+            misses++;
+        }
+        Clause cnf = formula.toCNF();
+        long w = weightOf(cnf);
+        if (w <= maxWeight && maxEntries > 0) {
+            synchronized (this) {
+                Entry previous = entries.put(formula.clone(), new Entry(cnf.clone(), w));
+                weight += w - (previous == null ? 0 : previous.weight);
+                evict();
+            }
+        }
+        return cnf;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Clause, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+            weight -= it.next().getValue().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long weightOf(final Clause cnf) {
+        long w = 0;
+        for (ILogicFormula element : cnf) {
+            w += (element instanceof Clause ? ((Clause) element).size() : 1);
+        }
+        return w;
+    }
+
+    /**
+     * @return number of conversions found in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of conversions which were computed
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of conversions evicted to keep the cache in its bounds
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of conversions in the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of literals in the conversions in the cache
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CNFCache{size=%d, weight=%d, hits=%d, misses=%d, evictions=%d}", entries.size(), weight, hits, misses, evictions);
+    }
+}
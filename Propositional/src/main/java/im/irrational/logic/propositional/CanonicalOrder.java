@@ -0,0 +1,132 @@
+package im.irrational.logic.propositional;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * the order of the strings of the formulas, as {@link String#compareTo(String)} of their {@link Object#toString()},
+ * without building the strings
+ * <p>
+ * the two formulas are written character by character in lockstep, the children of a clause in the order of
+ * {@link Clause#getOrderedElements()}, which is cached by the clause, and the comparison stops at the first difference.
+ * This is the order of the children in the canonical string of a clause.
+ */
+public final class CanonicalOrder implements Comparator<ILogicFormula> {
+    public static final CanonicalOrder INSTANCE = new CanonicalOrder();
+
+    private CanonicalOrder() {
+    }
+
+    @Override
+    public int compare(final ILogicFormula a, final ILogicFormula b) {
+        if (a == b) {
+            return 0;
+        }
+        Cursor x = new Cursor(a);
+        Cursor y = new Cursor(b);
+        while (true) {
+            int c = x.next();
+            int d = y.next();
+            if (c != d) {
+                return (c < 0 ? -1 : (d < 0 ? 1 : c - d));
+            } else if (c < 0) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * the characters of the string of a formula, one at a time
+     */
+    private static final class Cursor {
+        /**
+         * the clauses being written and the index of their next child
+         */
+        private Clause[] clauses = null;
+        private int[] indexes = null;
+        /**
+         * true if the separator before the next child was written
+         */
+        private boolean[] separated = null;
+        private int depth = 0;
+        /**
+         * a character to write before the text, -1 if there is none
+         */
+        private int pending = -1;
+        private String text = null;
+        private int position = 0;
+
+        Cursor(final ILogicFormula formula) {
+            start(formula);
+        }
+
+        private void start(final ILogicFormula formula) {
+            if (formula instanceof Literal) {
+                Literal literal = (Literal) formula;
+                if (!literal.getValue()) {
+                    pending = Literal.NEGATION_SYMBOL.charAt(0);
+                }
+                text = literal.getName();
+                position = 0;
+            } else if (formula instanceof Clause) {
+                if (clauses == null) {
+                    clauses = new Clause[4];
+                    indexes = new int[4];
+                    separated = new boolean[4];
+                } else if (depth == clauses.length) {
+                    clauses = Arrays.copyOf(clauses, depth << 1);
+                    indexes = Arrays.copyOf(indexes, depth << 1);
+                    separated = Arrays.copyOf(separated, depth << 1);
+                }
+                clauses[depth] = (Clause) formula;
+                indexes[depth] = 0;
+                separated[depth] = false;
+                depth++;
+                pending = '(';
+            } else {
+                // any other formula is written by its string
+                text = formula.toString();
+                position = 0;
+            }
+        }
+
+        /**
+         * @return the next character, -1 at the end of the string
+         */
+        int next() {
+            while (true) {
+                if (pending >= 0) {
+                    int c = pending;
+                    pending = -1;
+                    return c;
+                }
+                if (text != null) {
+                    if (position < text.length()) {
+                        return text.charAt(position++);
+                    }
+                    text = null;
+                }
+                if (depth == 0) {
+                    return -1;
+                }
+                int top = depth - 1;
+                Clause clause = clauses[top];
+                ILogicFormula[] children = clause.ordered();
+                int i = indexes[top];
+                if (i == children.length) {
+                    clauses[top] = null;
+                    depth--;
+                    return ')';
+                } else if (i > 0 && !separated[top]) {
+                    separated[top] = true;
+                    text = clause.getType().getSymble();
+                    position = 0;
+                } else {
+                    separated[top] = false;
+                    indexes[top] = i + 1;
+                    start(children[i]);
+                }
+            }
+        }
+    }
+}
@@ -2,22 +2,50 @@ package im.irrational.logic.propositional;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
+/**
+ * a conjunction or a disjunction of formulas
+ * <p>
+ * the set of elements is copied on write: {@link #clone()} shares it with the copy in constant time, and the first
+ * change of either clause copies the set, but not the elements. Literals are immutable and a clause must not be
+ * changed while it is an element of another clause, so the elements are shared between the clauses instead of being
+ * copied.
+ */
 public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
     HashSet<ILogicFormula> elements;
     eClauseType type;
+    /**
+     * cached hash code, 0 if it has to be computed (again). A clause must not be changed while it is an element of
+     * another clause, as for any element of a {@link HashSet}
+     */
+    private int hash = 0;
+    /**
+     * true if the set of elements may be shared with another clause, it is copied before it is changed
+     */
+    private boolean shared = false;
+    /**
+     * cached elements in the {@link CanonicalOrder}, null if they have to be sorted (again). It is volatile so that a
+     * clause which is only read, e.g. one from a {@link CNFCache}, can be sorted by any thread.
+     */
+    private volatile ILogicFormula[] ordered = null;
 
     public Clause() {
         this(eClauseType.DISJUNCTIVE);
     }
 
+    /**
+     * a copy of the clause, which shares the set of elements until one of the clauses is changed
+     */
     public Clause(final Clause e) {
-        this();
         type = e.type;
-        for (ILogicFormula l : e.elements) {
-            elements.add(l.clone());
-        }
+        elements = e.elements;
+        hash = e.hash;
+        ordered = e.ordered;
+        shared = true;
+        e.shared = true;
     }
 
     public Clause(eClauseType type) {
@@ -60,10 +88,33 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
         return false;
     }
 
+    /**
+     * a formula which is already in CNF is only copied, as its conversion would: a disjunction of one literal becomes the
+     * literal and an empty disjunction is dropped
+     */
+    private static Clause copyCNF(final Clause c) {
+        Clause cnf = new Clause(eClauseType.CONJUNCTIVE);
+        for (ILogicFormula element : c.elements) {
+            if (element instanceof Clause) {
+                Clause disjunction = (Clause) element;
+                if (disjunction.size() == 1) {
+                    cnf.elements.add(disjunction.elements.iterator().next());
+                } else if (disjunction.size() > 1) {
+                    cnf.elements.add(disjunction);
+                }
+            } else {
+                cnf.elements.add(element);
+            }
+        }
+        return cnf;
+    }
+
     public static Clause convertToCNF(final Clause c) throws FormulaError {
         Clause cnf = new Clause(eClauseType.CONJUNCTIVE);
         if (c == null){
             return null;
+        } else if (c.type == eClauseType.CONJUNCTIVE && isCNF(c)) {
+            return copyCNF(c);
         } else if (c.size() == 0){
             return cnf;
         } else if (c.size() == 1 || c.type == eClauseType.CONJUNCTIVE) {
@@ -98,7 +149,7 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
                 if (clause instanceof Literal) {
                     p.add(clause);
                 } else if (clause instanceof Clause) {
-                    p.add(convertToCNF((Clause) clause));
+                    p.addWithoutCopy(convertToCNF((Clause) clause));
                 } else {
                     throw new FormulaError(String.format("Unknown logic element type: %s", clause.getClass().getName()));
                 }
@@ -111,7 +162,7 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
                 if (clause instanceof Literal) {
                     q.add(clause);
                 } else if (clause instanceof Clause) {
-                    q.add(convertToCNF((Clause) clause));
+                    q.addWithoutCopy(convertToCNF((Clause) clause));
                 } else {
                     throw new FormulaError(String.format("Unknown logic element type: %s", clause.getClass().getName()));
                 }
@@ -124,7 +175,7 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
                     Clause disjunctive = new Clause(eClauseType.DISJUNCTIVE);
                     disjunctive.add(pClause);
                     disjunctive.add(qClause);
-                    cnf.add(disjunctive);
+                    cnf.addWithoutCopy(disjunctive);
                 }
             }
             return cnf;
@@ -155,14 +206,28 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
 
     public void setType(eClauseType t){
         this.type = t;
+        this.hash = 0;
+    }
+
+    /**
+     * make the set of elements private to this clause before it is changed
+     */
+    private void unshare() {
+        this.hash = 0;
+        this.ordered = null;
+        if (shared) {
+            elements = new HashSet<>(elements);
+            shared = false;
+        }
     }
 
     public void add(final ILogicFormula clause) throws FormulaError {
+        unshare();
         if (this.getClass() == clause.getClass()){
             Clause f = (Clause) clause;
             if (f.type == this.type){
                 for (ILogicFormula c : f) {
-                    this.add(c.clone());
+                    this.add(c);
                 }
             } else if(f.size() > 0){
                 this.elements.add(f.clone());
@@ -173,11 +238,41 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
         }
     }
 
+    /**
+     * add an element as {@link #add(ILogicFormula)} but without copying it, the caller gives up the element and must
+     * not change it anymore
+     */
+    void addWithoutCopy(final ILogicFormula element) {
+        unshare();
+        if (element instanceof Clause) {
+            Clause other = (Clause) element;
+            if (other.type == this.type) {
+                for (ILogicFormula c : other.elements) {
+                    addWithoutCopy(c);
+                }
+            } else if (other.size() > 0) {
+                this.elements.add(other);
+            }
+        } else {
+            this.elements.add(element);
+        }
+    }
+
+    /**
+     * add an element as it is, without the normalization of {@link #add(ILogicFormula)}: a clause of the same type is not
+     * flattened and an empty clause is kept. It builds the formulas that the normalization would change, e.g. in the
+     * tests; the caller gives up the element as with {@link #addWithoutCopy(ILogicFormula)}
+     */
+    void addAsIs(final ILogicFormula element) {
+        unshare();
+        this.elements.add(element);
+    }
+
     private void addAsCNF(final ILogicFormula clause) throws FormulaError {
         if (clause instanceof Literal) {
             this.add(clause);
         } else if (clause instanceof Clause) {
-            this.add(convertToCNF((Clause) clause));
+            this.addWithoutCopy(convertToCNF((Clause) clause));
         } else {
             throw new FormulaError(String.format("Unknown logic element type: %s", clause.getClass().getName()));
         }
@@ -196,7 +291,7 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
                         simplified.add(f);
                     }
                 } else {
-                    simplified.add(formula.simplified());
+                    simplified.addWithoutCopy(formula.simplified());
                 }
             } else simplified.add(clause);
         }
@@ -207,22 +302,34 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
         Clause newC = new Clause();
         newC.type = type.neg();
         for (ILogicFormula l : elements) {
-            newC.add(l.negation());
+            newC.addWithoutCopy(l.negation());
         }
         return newC;
     }
 
+    /**
+     * @return a copy in constant time, see {@link #Clause(Clause)}
+     */
     public Clause clone() {
         return new Clause(this);
     }
 
     @Override
     public int hashCode() {
-        return 31 * elements.hashCode() + type.hashCode();
+        int h = hash;
+        if (h == 0) {
+            // the ordinal, unlike the identity hash of the enum, is the same in every run
+            h = 31 * elements.hashCode() + type.ordinal();
+            hash = h;
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
@@ -230,25 +337,75 @@ public class Clause implements ILogicFormula, Iterable<ILogicFormula> {
             return false;
         }
         final Clause other = (Clause) obj;
-        if (this.type == other.type) {
+        if (this.type == other.type && this.size() == other.size() && this.hashCode() == other.hashCode()) {
             return this.elements.equals(other.elements);
         }
         return false;
     }
 
+    ILogicFormula[] ordered() {
+        ILogicFormula[] o = ordered;
+        if (o == null) {
+            o = elements.toArray(new ILogicFormula[0]);
+            Arrays.sort(o, CanonicalOrder.INSTANCE);
+            ordered = o;
+        }
+        return o;
+    }
+
+    /**
+     * @return the elements in the {@link CanonicalOrder}, the order of {@link #toString()}. It is kept until the
+     * clause is changed
+     */
+    public List<ILogicFormula> getOrderedElements() {
+        return Collections.unmodifiableList(Arrays.asList(ordered()));
+    }
+
+    /**
+     * write the canonical string of the clause, the elements sorted by their strings
+     */
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        out.append('(');
+        ILogicFormula[] o = ordered();
+        for (int i = 0; i < o.length; i++) {
+            if (i > 0) {
+                out.append(type.getSymble());
+            }
+            o[i].appendTo(out);
+        }
+        out.append(')');
+    }
+
     @Override
     public String toString(){
-        ArrayList<String> clauseStrs = new ArrayList<>(this.elements.size());
-        for (ILogicFormula clause : elements) {
-            clauseStrs.add(clause.toString());
+        StringBuilder builder = new StringBuilder();
+        try {
+            appendTo(builder);
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new UncheckedIOException(e);
         }
-        Collections.sort(clauseStrs);  // return consistent strings
-        return "(" + String.join(this.type.getSymble(), clauseStrs) + ")";
+        return builder.toString();
     }
 
+    /**
+     * @return the elements, the iterator is read-only since the set of elements may be shared with copies of the clause
+     */
     @NotNull
     public Iterator<ILogicFormula> iterator() {
-        return this.elements.iterator();
+        final Iterator<ILogicFormula> it = this.elements.iterator();
+        return new Iterator<ILogicFormula>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public ILogicFormula next() {
+                return it.next();
+            }
+        };
     }
 
     public Clause toCNF() throws FormulaError {
@@ -0,0 +1,330 @@
+package im.irrational.logic.propositional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * a formula compiled to flat arrays over its own variables, to evaluate it under many assignments
+ * <p>
+ * the variables of the formula are numbered from 0, and an assignment is a bitset as {@link java.util.BitSet#toLongArray()}:
+ * bit i of word i / 64 is the value of variable i, and a missing word is false. The formula is hash-consed by a
+ * {@link UniqueTable}, so equal sub-formulas are one node, compiled once; the clauses are nodes in post order, and a
+ * child of a node is a literal, variable shifted left by one with the lowest bit set if negative, or the complement of
+ * a node index. {@link #evaluate(long[])} walks down from the root and stops at the first child which decides a node;
+ * {@link #evaluateParallel(long[])} evaluates 64 assignments at once, one per bit of a word. The sub-formulas are
+ * normalized as {@link Clause#add(ILogicFormula)} does, which drops an empty sub-formula, and an empty formula is true.
+ * A CompiledFormula is immutable and thread safe.
+ */
+public final class CompiledFormula {
+    /**
+     * names of the variables
+     */
+    private final String[] variables;
+    /**
+     * variable of each id of the global {@link SymbolTable} up to the largest id of the formula, -1 if the name is not
+     * in the formula
+     */
+    private final int[] index;
+    /**
+     * children of node i are children[start[i]] to children[start[i + 1] - 1]
+     */
+    private final int[] start;
+    private final int[] children;
+    private final boolean[] conjunctive;
+
+    /**
+     * compile the formula, its variables are numbered by name
+     */
+    public CompiledFormula(final Clause formula) throws FormulaError {
+        this(formula, Collections.<String>emptyList());
+    }
+
+    /**
+     * compile the formula with a given order of the variables, e.g. to evaluate several formulas under the same
+     * assignments
+     *
+     * @param variables the first variables, in this order, the other variables of the formula follow by name
+     */
+    public CompiledFormula(final Clause formula, final List<String> variables) throws FormulaError {
+        SymbolTable symbols = SymbolTable.getGlobal();
+        ArrayList<Integer> ids = new ArrayList<>();
+        BitSet seen = new BitSet();
+        for (String name : variables) {
+            int id = symbols.intern(name);
+            if (seen.get(id)) {
+                throw new IllegalArgumentException(String.format("duplicate variable: %s", name));
+            }
+            seen.set(id);
+            ids.add(id);
+        }
+        ArrayList<Integer> others = new ArrayList<>();
+        collect(formula, seen, others);
+        others.sort((a, b) -> symbols.getName(a).compareTo(symbols.getName(b)));
+        ids.addAll(others);
+
+        this.variables = new String[ids.size()];
+        // up to the largest id of the formula, not the whole global table
+        int maxId = -1;
+        for (int id : ids) {
+            maxId = Math.max(maxId, id);
+        }
+        this.index = new int[maxId + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < ids.size(); i++) {
+            index[ids.get(i)] = i;
+            this.variables[i] = symbols.getName(ids.get(i));
+        }
+
+        UniqueTable table = new UniqueTable();
+        FormulaNode root = table.of(formula);
+        Compiler compiler = new Compiler(table);
+        compiler.node(root);
+        int nodes = compiler.nodes.size();
+        this.start = new int[nodes + 1];
+        this.conjunctive = new boolean[nodes];
+        int total = 0;
+        for (int i = 0; i < nodes; i++) {
+            start[i] = total;
+            total += compiler.nodes.get(i).length;
+            conjunctive[i] = compiler.types.get(i) == eClauseType.CONJUNCTIVE;
+        }
+        start[nodes] = total;
+        this.children = new int[total];
+        for (int i = 0; i < nodes; i++) {
+            System.arraycopy(compiler.nodes.get(i), 0, children, start[i], compiler.nodes.get(i).length);
+        }
+    }
+
+    /**
+     * add the ids of the names of the formula which are not seen yet to others
+     */
+    private static void collect(final Clause formula, final BitSet seen, final List<Integer> others) throws FormulaError {
+        for (ILogicFormula element : formula) {
+            if (element instanceof Literal) {
+                int id = ((Literal) element).getId();
+                if (!seen.get(id)) {
+                    seen.set(id);
+                    others.add(id);
+                }
+            } else if (element instanceof Clause) {
+                collect((Clause) element, seen, others);
+            } else {
+                throw new FormulaError(String.format("Unknown logic element type: %s", element.getClass().getName()));
+            }
+        }
+    }
+
+    /**
+     * compiles the nodes of a {@link UniqueTable}, a node is compiled once however many times it is shared
+     */
+    private final class Compiler {
+        final ArrayList<int[]> nodes = new ArrayList<>();
+        final ArrayList<eClauseType> types = new ArrayList<>();
+        /**
+         * index of the compiled node of each node of the table, -1 if it is not compiled yet
+         */
+        final int[] compiled;
+
+        Compiler(final UniqueTable table) {
+            compiled = new int[table.size()];
+            Arrays.fill(compiled, -1);
+        }
+
+        /**
+         * @return index of the node of the clause, the root is the last node
+         */
+        int node(final FormulaNode clause) {
+            if (compiled[clause.getId()] >= 0) {
+                return compiled[clause.getId()];
+            }
+            ArrayList<Integer> codes = new ArrayList<>(clause.size());
+            add(clause, clause.getType(), codes);
+            int[] array = new int[codes.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = codes.get(i);
+            }
+            nodes.add(array);
+            // an empty clause is true, whatever its type
+            types.add(array.length == 0 ? eClauseType.CONJUNCTIVE : clause.getType());
+            compiled[clause.getId()] = nodes.size() - 1;
+            return nodes.size() - 1;
+        }
+
+        /**
+         * add the children of the clause to codes, a clause with one element is flattened
+         */
+        void add(final FormulaNode clause, final eClauseType type, final List<Integer> codes) {
+            for (FormulaNode child : clause.children()) {
+                if (child.isLiteral()) {
+                    int literal = child.getLiteralCode();
+                    codes.add((index[literal >>> 1] << 1) | (literal & 1));
+                } else if (child.getType() == type || child.size() == 1) {
+                    add(child, type, codes);
+                } else {
+                    codes.add(~node(child));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of variables, the size in bits of an assignment
+     */
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    /**
+     * @return name of the variable
+     */
+    public String getVariable(int variable) {
+        return variables[variable];
+    }
+
+    /**
+     * @return the variable of the name, or -1 if it is not in the formula
+     */
+    public int indexOf(final String name) {
+        int id = SymbolTable.getGlobal().lookup(name);
+        return id >= 0 && id < index.length ? index[id] : -1;
+    }
+
+    /**
+     * @return number of clauses after equal sub-formulas are merged
+     */
+    public int getNodeCount() {
+        return conjunctive.length;
+    }
+
+    /**
+     * make the assignment of a conjunction of literals, the variables which are not in it or not in the formula are
+     * false
+     */
+    public long[] assignment(final Iterable<ILogicFormula> literals) throws FormulaError {
+        long[] assignment = new long[(variables.length + 63) >>> 6];
+        for (ILogicFormula element : literals) {
+            if (!(element instanceof Literal)) {
+                throw new FormulaError(String.format("an assignment is made of literals, not %s", element));
+            }
+            Literal literal = (Literal) element;
+            int variable = literal.getId() < index.length ? index[literal.getId()] : -1;
+            if (variable >= 0 && literal.getValue()) {
+                assignment[variable >>> 6] |= 1L << variable;
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * @return the conjunction of the literals of the variables under the assignment
+     */
+    public Clause model(final long[] assignment) {
+        Clause model = new Clause(eClauseType.CONJUNCTIVE);
+        for (int i = 0; i < variables.length; i++) {
+            model.addWithoutCopy(new Literal(variables[i], value(assignment, i)));
+        }
+        return model;
+    }
+
+    /**
+     * @param assignment values of the variables, one bit each
+     * @return value of the formula
+     */
+    public boolean evaluate(final long[] assignment) {
+        return evaluate(conjunctive.length - 1, assignment);
+    }
+
+    private boolean evaluate(int node, final long[] assignment) {
+        boolean and = conjunctive[node];
+        for (int i = start[node]; i < start[node + 1]; i++) {
+            int child = children[i];
+            boolean value = child < 0
+                    ? evaluate(~child, assignment)
+                    : value(assignment, child >>> 1) ^ ((child & 1) != 0);
+            if (value != and) {
+                return value;
+            }
+        }
+        return and;
+    }
+
+    private static boolean value(final long[] assignment, int variable) {
+        int word = variable >>> 6;
+        return word < assignment.length && (assignment[word] & (1L << variable)) != 0;
+    }
+
+    /**
+     * evaluate the formula under 64 assignments at once
+     *
+     * @param columns values of each variable in the 64 assignments, bit j of columns[v] is the value of variable v in
+     *                assignment j, a missing column is false
+     * @return values of the formula, bit j under assignment j
+     */
+    public long evaluateParallel(final long[] columns) {
+        return evaluateParallel(columns, new long[conjunctive.length]);
+    }
+
+    private long evaluateParallel(final long[] columns, final long[] values) {
+        for (int node = 0; node < conjunctive.length; node++) {
+            boolean and = conjunctive[node];
+            long decided = and ? 0L : -1L;
+            long value = ~decided;
+            for (int i = start[node]; i < start[node + 1] && value != decided; i++) {
+                int child = children[i];
+                long word;
+                if (child < 0) {
+                    word = values[~child];
+                } else {
+                    int variable = child >>> 1;
+                    word = variable < columns.length ? columns[variable] : 0L;
+                    if ((child & 1) != 0) {
+                        word = ~word;
+                    }
+                }
+                value = and ? value & word : value | word;
+            }
+            values[node] = value;
+        }
+        return values[conjunctive.length - 1];
+    }
+
+    /**
+     * find the first model in the order of the assignments as binary numbers, 64 assignments at a time
+     *
+     * @return a model, or null if the formula is unsatisfiable
+     */
+    public long[] findModel() {
+        long[] columns = new long[variables.length];
+        long[] values = new long[conjunctive.length];
+        long batches = AssignmentBatches.batches(variables.length);
+        long mask = AssignmentBatches.mask(variables.length);
+        for (long batch = 0; batch < batches; batch++) {
+            long models = evaluateParallel(AssignmentBatches.columns(batch, columns), values) & mask;
+            if (models != 0) {
+                long assignment = (batch << 6) | Long.numberOfTrailingZeros(models);
+                return variables.length == 0 ? new long[0] : new long[]{assignment};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * count the models by evaluating every assignment, 64 at a time
+     *
+     * @return number of models over the variables of the formula
+     */
+    public long countModels() {
+        long[] columns = new long[variables.length];
+        long[] values = new long[conjunctive.length];
+        long batches = AssignmentBatches.batches(variables.length);
+        long mask = AssignmentBatches.mask(variables.length);
+        long count = 0;
+        for (long batch = 0; batch < batches; batch++) {
+            count += Long.bitCount(evaluateParallel(AssignmentBatches.columns(batch, columns), values) & mask);
+        }
+        return count;
+    }
+}
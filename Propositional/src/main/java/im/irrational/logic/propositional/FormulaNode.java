@@ -0,0 +1,154 @@
+package im.irrational.logic.propositional;
+
+/**
+ * an immutable formula made by a {@link UniqueTable}: a literal, or a conjunction or disjunction of nodes
+ * <p>
+ * the table makes one node per structure, so two nodes of the same table are equal if and only if they are the same
+ * instance, and equals is inherited from {@link Object}. The children are sorted by id, which makes the membership
+ * tests binary searches and {@link #containsAll(FormulaNode)} a merge. The hash is computed once, when the node is made.
+ */
+public final class FormulaNode {
+    private static final FormulaNode[] NO_CHILDREN = new FormulaNode[0];
+
+    private final int id;
+    /**
+     * type of the clause, null for a literal
+     */
+    private final eClauseType type;
+    /**
+     * code of the literal as in {@link Literal}: id of the name shifted left by one, the lowest bit set if negative
+     */
+    private final int literal;
+    private final FormulaNode[] children;
+    private final int hash;
+
+    FormulaNode(int id, int literal, int hash) {
+        this.id = id;
+        this.type = null;
+        this.literal = literal;
+        this.children = NO_CHILDREN;
+        this.hash = hash;
+    }
+
+    FormulaNode(int id, final eClauseType type, final FormulaNode[] children, int hash) {
+        this.id = id;
+        this.type = type;
+        this.literal = 0;
+        this.children = children;
+        this.hash = hash;
+    }
+
+    /**
+     * @return id of the node in its table, nodes made later have larger ids
+     */
+    public int getId() {
+        return id;
+    }
+
+    public boolean isLiteral() {
+        return type == null;
+    }
+
+    /**
+     * @return type of the clause, null for a literal
+     */
+    public eClauseType getType() {
+        return type;
+    }
+
+    /**
+     * @return the literal, it is only valid if {@link #isLiteral()}
+     */
+    public Literal getLiteral() {
+        return new Literal(literal >>> 1, (literal & 1) == 0);
+    }
+
+    int getLiteralCode() {
+        return literal;
+    }
+
+    /**
+     * @return number of children, 0 for a literal
+     */
+    public int size() {
+        return children.length;
+    }
+
+    /**
+     * @param i index of the child, in increasing ids
+     */
+    public FormulaNode get(int i) {
+        return children[i];
+    }
+
+    FormulaNode[] children() {
+        return children;
+    }
+
+    public boolean contains(final FormulaNode node) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = children[middle].id;
+            if (middleId < node.id) {
+                low = middle + 1;
+            } else if (middleId > node.id) {
+                high = middle - 1;
+            } else {
+                return children[middle] == node;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if every child of the other node is a child of this node
+     */
+    public boolean containsAll(final FormulaNode other) {
+        if (other == this) {
+            return true;
+        } else if (other.children.length > children.length) {
+            return false;
+        }
+        int i = 0;
+        for (FormulaNode child : other.children) {
+            while (i < children.length && children[i].id < child.id) {
+                i++;
+            }
+            if (i == children.length || children[i] != child) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return a new {@link Literal} or {@link Clause} with the structure of the node
+     */
+    public ILogicFormula toFormula() {
+        if (isLiteral()) {
+            return getLiteral();
+        }
+        Clause clause = new Clause(type);
+        for (FormulaNode child : children) {
+            // the node is normalized, there is no child to flatten or to drop
+            clause.addWithoutCopy(child.toFormula());
+        }
+        return clause;
+    }
+
+    /**
+     * @return the string of the {@link Literal} or the {@link Clause} of the node, written by the same code
+     */
+    @Override
+    public String toString() {
+        return toFormula().toString();
+    }
+}
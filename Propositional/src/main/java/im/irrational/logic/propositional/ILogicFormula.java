@@ -1,5 +1,7 @@
 package im.irrational.logic.propositional;
 
+import java.io.IOException;
+
 public interface ILogicFormula {
     /**
      * negation of the element
@@ -9,4 +11,13 @@ public interface ILogicFormula {
     ILogicFormula negation() throws FormulaError;
 
     ILogicFormula clone();
+
+    /**
+     * write the string of the formula
+     *
+     * @param out where the string is appended
+     */
+    default void appendTo(Appendable out) throws IOException {
+        out.append(toString());
+    }
 }
@@ -0,0 +1,228 @@
+package im.irrational.logic.propositional;
+
+import java.util.Arrays;
+
+/**
+ * the infix notation printed by {@link Clause#toString()}: {@code ~} for negation, {@code &} for conjunction,
+ * {@code |} for disjunction and parentheses, e.g. {@code (P|~Q)&~(R&S)}
+ * <p>
+ * negation binds tighter than conjunction, which binds tighter than disjunction. A name is any sequence of characters
+ * other than white spaces, operators and parentheses. The formula is parsed in a single pass by recursive descent, the
+ * names are interned in the global {@link SymbolTable} through a cache of the parser, so a name which was seen before
+ * is resolved without building a string. A negated sub-formula is pushed down to the literals (De Morgan), a single
+ * literal is parsed as a disjunction of one literal, and {@code ()} as an empty disjunction.
+ * <p>
+ * an InfixLanguage is not thread safe because of its cache.
+ */
+public class InfixLanguage implements ILanguage<Clause> {
+    private static final char NEGATION = '~';
+    private static final char OPEN = '(';
+    private static final char CLOSE = ')';
+    private static final char CONJUNCTION = eClauseType.CONJUNCTIVE.getSymble().charAt(0);
+    private static final char DISJUNCTION = eClauseType.DISJUNCTIVE.getSymble().charAt(0);
+
+    /**
+     * open addressing table from names to their ids in the global symbol table
+     */
+    private String[] names = new String[64];
+    private int[] ids = new int[64];
+    private int cached = 0;
+
+    private CharSequence input;
+    private int position;
+
+    @Override
+    public String toString(final Clause languageElement) {
+        return languageElement.toString();
+    }
+
+    @Override
+    public Clause parse(final String str) throws LanguageFormatException {
+        return parse((CharSequence) str);
+    }
+
+    public Clause parse(final CharSequence str) throws LanguageFormatException {
+        input = str;
+        position = 0;
+        try {
+            ILogicFormula formula = disjunction();
+            skipWhitespace();
+            if (position < input.length()) {
+                throw error(String.format("unexpected '%c'", input.charAt(position)));
+            }
+            if (formula instanceof Clause) {
+                return (Clause) formula;
+            }
+            Clause clause = new Clause(eClauseType.DISJUNCTIVE);
+            clause.addWithoutCopy(formula);
+            return clause;
+        } finally {
+            input = null;
+        }
+    }
+
+    /**
+     * disjunction := conjunction ('|' conjunction)*
+     */
+    private ILogicFormula disjunction() throws LanguageFormatException {
+        ILogicFormula first = conjunction();
+        if (peek() != DISJUNCTION) {
+            return first;
+        }
+        Clause clause = new Clause(eClauseType.DISJUNCTIVE);
+        clause.addWithoutCopy(first);
+        while (peek() == DISJUNCTION) {
+            position++;
+            clause.addWithoutCopy(conjunction());
+        }
+        return clause;
+    }
+
+    /**
+     * conjunction := unary ('&' unary)*
+     */
+    private ILogicFormula conjunction() throws LanguageFormatException {
+        ILogicFormula first = unary();
+        if (peek() != CONJUNCTION) {
+            return first;
+        }
+        Clause clause = new Clause(eClauseType.CONJUNCTIVE);
+        clause.addWithoutCopy(first);
+        while (peek() == CONJUNCTION) {
+            position++;
+            clause.addWithoutCopy(unary());
+        }
+        return clause;
+    }
+
+    /**
+     * unary := '~' unary | '(' disjunction ')' | '(' ')' | name
+     */
+    private ILogicFormula unary() throws LanguageFormatException {
+        int c = peek();
+        if (c == NEGATION) {
+            position++;
+            ILogicFormula formula = unary();
+            if (formula instanceof Literal) {
+                return ((Literal) formula).negation();
+            }
+            try {
+                return formula.negation();
+            } catch (FormulaError e) {
+                throw error(e.getMessage());
+            }
+        } else if (c == OPEN) {
+            position++;
+            if (peek() == CLOSE) {
+                position++;
+                return new Clause(eClauseType.DISJUNCTIVE);
+            }
+            ILogicFormula formula = disjunction();
+            if (peek() != CLOSE) {
+                throw error(position < input.length() ? String.format("')' expected, found '%c'", input.charAt(position)) : "')' expected");
+            }
+            position++;
+            return formula;
+        } else if (c < 0) {
+            throw error("unexpected end of formula");
+        } else if (!isNameChar((char) c)) {
+            throw error(String.format("unexpected '%c'", (char) c));
+        }
+        int start = position;
+        while (position < input.length() && isNameChar(input.charAt(position))) {
+            position++;
+        }
+        return new Literal(intern(start, position), true);
+    }
+
+    private static boolean isNameChar(char c) {
+        return !Character.isWhitespace(c) && c != NEGATION && c != OPEN && c != CLOSE && c != CONJUNCTION && c != DISJUNCTION;
+    }
+
+    /**
+     * @return the next character which is not a white space, -1 at the end
+     */
+    private int peek() {
+        skipWhitespace();
+        return position < input.length() ? input.charAt(position) : -1;
+    }
+
+    private void skipWhitespace() {
+        while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+    }
+
+    /**
+     * @return id of the name between start and end in the global symbol table
+     */
+    private int intern(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + input.charAt(i);
+        }
+        int mask = names.length - 1;
+        int slot = mix(hash) & mask;
+        for (String name = names[slot]; name != null; name = names[slot]) {
+            if (matches(name, start, end)) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        String name = input.subSequence(start, end).toString();
+        int id = SymbolTable.getGlobal().intern(name);
+        names[slot] = name;
+        ids[slot] = id;
+        if (++cached * 2 > names.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private boolean matches(final String name, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] oldNames = names;
+        int[] oldIds = ids;
+        names = new String[oldNames.length << 1];
+        ids = new int[oldNames.length << 1];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                // String.hashCode is the same polynomial as in intern
+                int slot = mix(oldNames[i].hashCode()) & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = oldNames[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * forget the names seen so far, they stay in the global symbol table
+     */
+    public void clearCache() {
+        Arrays.fill(names, null);
+        cached = 0;
+    }
+
+    private LanguageFormatException error(final String message) {
+        return new LanguageFormatException(String.format("%s at position %d", message, position), position);
+    }
+}
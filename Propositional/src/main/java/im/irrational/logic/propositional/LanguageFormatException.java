@@ -1,4 +1,32 @@
 package im.irrational.logic.propositional;
 
 public class LanguageFormatException extends Exception {
+    /**
+     * position of the error in the input, -1 if unknown
+     */
+    private final long position;
+
+    public LanguageFormatException() {
+        this.position = -1;
+    }
+
+    public LanguageFormatException(String message) {
+        this(message, -1);
+    }
+
+    /**
+     * @param message  description of the error
+     * @param position offset of the error in the input (characters or bytes), -1 if unknown
+     */
+    public LanguageFormatException(String message, long position) {
+        super(message);
+        this.position = position;
+    }
+
+    /**
+     * @return offset of the error in the input, -1 if unknown
+     */
+    public long getPosition() {
+        return position;
+    }
 }
@@ -2,43 +2,89 @@ package im.irrational.logic.propositional;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+
+/**
+ * a name or its negation, a literal is immutable: {@link #clone()} returns the literal itself
+ */
 public class Literal implements ILogicFormula {
     public static final String NEGATION_SYMBOL = "~";
-    private boolean value;
-    private String name;
+    /**
+     * id of the name in the global {@link SymbolTable} shifted left by one, the lowest bit is set for negative literals
+     */
+    private final int code;
+    /**
+     * hash of the literal computed once from the name, it keeps the iteration order of {@link Clause}s the same as when
+     * literals were identified by their names
+     */
+    private final int hash;
 
     public Literal(@NotNull Literal aThis) {
-        this.value = aThis.value;
-        this.name = aThis.name;
+        this.code = aThis.code;
+        this.hash = aThis.hash;
+    }
+
+    private Literal(int code, int hash) {
+        this.code = code;
+        this.hash = hash;
     }
 
+    /**
+     * @param name  name of the variable, it is interned in the global {@link SymbolTable}
+     * @param value polarity of the literal
+     * @throws IllegalArgumentException if the name is null
+     */
     public Literal(String name, boolean value) {
-        this.name = name;
-        this.value = value;
+        this(SymbolTable.getGlobal().intern(name), value);
+    }
+
+    /**
+     * @param id    id of the name in the global {@link SymbolTable}
+     * @param value polarity of the literal
+     */
+    public Literal(int id, boolean value) {
+        this.code = (id << 1) | (value ? 0 : 1);
+        this.hash = 31 * (value ? 1 : 0) + SymbolTable.getGlobal().getName(id).hashCode();
     }
 
     public boolean getValue() {
-        return value;
+        return (code & 1) == 0;
     }
 
     public String getName() {
-        return name;
+        return SymbolTable.getGlobal().getName(getId());
+    }
+
+    /**
+     * @return id of the name in the global {@link SymbolTable}
+     */
+    public int getId() {
+        return code >>> 1;
     }
 
     @Override
     public String toString() {
-        return (value ? name : NEGATION_SYMBOL.concat(name));
+        return (getValue() ? getName() : NEGATION_SYMBOL.concat(getName()));
+    }
+
+    @Override
+    public void appendTo(final Appendable out) throws IOException {
+        if (!getValue()) {
+            out.append(NEGATION_SYMBOL);
+        }
+        out.append(getName());
     }
 
     public Literal negation() {
-        Literal neg = this.clone();
-        neg.value = !neg.value;
-        return neg;
+        return new Literal(code ^ 1, hash + (getValue() ? -31 : 31));
     }
 
+    /**
+     * @return this literal, which is immutable
+     */
     @Override
     public Literal clone() {
-        return new Literal(this);
+        return this;
     }
 
     @Override
@@ -46,12 +92,11 @@ public class Literal implements ILogicFormula {
         if (this == o) return true;
         if (!(o instanceof Literal)) return false;
         Literal literal = (Literal) o;
-        return value == literal.value &&
-                name.equals(literal.name);
+        return code == literal.code;
     }
 
     @Override
     public int hashCode() {
-        return 31 * (value ? 1 : 0) + (name == null ? 0 : name.hashCode());
+        return hash;
     }
 }
@@ -0,0 +1,92 @@
+package im.irrational.logic.propositional;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * intern variable names to dense integer ids, starting from 0
+ * <p>
+ * {@link Literal} is identified by the id of its name in the global table, so comparing and hashing literals never
+ * touches the name. A name is hashed once, when it is interned. A name is never removed: the global table lives as long
+ * as the process and keeps every name that was interned, so it grows with the number of distinct names.
+ */
+public final class SymbolTable {
+    private static final SymbolTable GLOBAL = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private volatile int size = 0;
+
+    /**
+     * @return the table shared by all {@link Literal}s
+     */
+    public static SymbolTable getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * get the id of the name, the name is added to the table if it is not there yet
+     *
+     * @param name variable name
+     * @return id of the name
+     * @throws IllegalArgumentException if the name is null
+     */
+    public int intern(@NotNull String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("a variable needs a name");
+        }
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            int newId = size;
+            String[] table = names;
+            if (newId == table.length) {
+                String[] grown = new String[table.length << 1];
+                System.arraycopy(table, 0, grown, 0, table.length);
+                table = grown;
+            }
+            table[newId] = name;
+            names = table;
+            // publish the name before the id, readers never see an id without a name
+            size = newId + 1;
+            ids.put(name, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * get the id of the name without adding it to the table
+     *
+     * @param name variable name
+     * @return id of the name, or -1 if the name is not in the table or null
+     */
+    public int lookup(String name) {
+        Integer id = (name == null ? null : ids.get(name));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id id of a name in the table
+     * @return the name
+     */
+    public String getName(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(String.format("unknown symbol id: %d", id));
+        }
+        return names[id];
+    }
+
+    /**
+     * @return number of names in the table
+     */
+    public int size() {
+        return size;
+    }
+}
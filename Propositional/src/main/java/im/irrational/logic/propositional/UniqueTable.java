@@ -0,0 +1,169 @@
+package im.irrational.logic.propositional;
+
+import java.util.Arrays;
+
+/**
+ * hash-consing of formulas: the table makes at most one {@link FormulaNode} per structure, so structurally equal
+ * sub-formulas are the same instance and are compared by reference
+ * <p>
+ * a clause node is looked up by its type and the identities of its children, which are already unique, so a lookup
+ * never walks down the formula. The nodes live as long as the table. A UniqueTable is not thread safe.
+ */
+public class UniqueTable {
+    /**
+     * open addressing table of the nodes
+     */
+    private FormulaNode[] slots = new FormulaNode[64];
+    private int size = 0;
+
+    /**
+     * @return number of nodes in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    public FormulaNode literal(final Literal literal) {
+        return literal(literal.getId(), literal.getValue());
+    }
+
+    /**
+     * @param id    id of the name in the global {@link SymbolTable}
+     * @param value polarity of the literal
+     */
+    public FormulaNode literal(int id, boolean value) {
+        return literal((id << 1) | (value ? 0 : 1));
+    }
+
+    private FormulaNode literal(int code) {
+        int hash = mix(code);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (FormulaNode node = slots[slot]; node != null; node = slots[slot]) {
+            if (node.hashCode() == hash && node.isLiteral() && node.getLiteralCode() == code) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, new FormulaNode(size, code, hash));
+    }
+
+    /**
+     * make a clause as {@link Clause#add(ILogicFormula)} would: the elements of the same type are flattened, the empty
+     * elements of the other type are dropped and duplicates are removed
+     */
+    public FormulaNode clause(final eClauseType type, final FormulaNode... elements) {
+        int count = 0;
+        for (FormulaNode element : elements) {
+            count += (element.getType() == type ? element.size() : 1);
+        }
+        FormulaNode[] children = new FormulaNode[count];
+        count = 0;
+        for (FormulaNode element : elements) {
+            if (element.getType() == type) {
+                for (FormulaNode child : element.children()) {
+                    children[count++] = child;
+                }
+            } else if (element.isLiteral() || element.size() > 0) {
+                children[count++] = element;
+            }
+        }
+        return make(type, children, count);
+    }
+
+    /**
+     * @return the node of the formula, normalized as {@link #clause(eClauseType, FormulaNode...)}, so the formulas which
+     * {@link Clause#add(ILogicFormula)} makes equal have the same node
+     */
+    public FormulaNode of(final ILogicFormula formula) throws FormulaError {
+        if (formula instanceof Literal) {
+            return literal((Literal) formula);
+        } else if (!(formula instanceof Clause)) {
+            throw new FormulaError(String.format("Unknown logic element type: %s", formula.getClass().getName()));
+        }
+        Clause clause = (Clause) formula;
+        FormulaNode[] children = new FormulaNode[clause.size()];
+        int count = 0;
+        for (ILogicFormula element : clause) {
+            children[count++] = of(element);
+        }
+        return clause(clause.getType(), children);
+    }
+
+    /**
+     * @return a new {@link Literal} or {@link Clause} with the structure of the node, see {@link FormulaNode#toFormula()}
+     */
+    public ILogicFormula toFormula(final FormulaNode node) {
+        return node.toFormula();
+    }
+
+    /**
+     * @return the negation, as {@link Clause#negation()}
+     */
+    public FormulaNode negation(final FormulaNode node) {
+        if (node.isLiteral()) {
+            return literal(node.getLiteralCode() ^ 1);
+        }
+        FormulaNode[] negated = new FormulaNode[node.size()];
+        for (int i = 0; i < negated.length; i++) {
+            negated[i] = negation(node.get(i));
+        }
+        return clause(node.getType().neg(), negated);
+    }
+
+    /**
+     * @param children the children, in any order and with duplicates, the array is owned by the table
+     * @param count    number of children in the array
+     */
+    private FormulaNode make(final eClauseType type, FormulaNode[] children, int count) {
+        Arrays.sort(children, 0, count, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || children[unique - 1] != children[i]) {
+                children[unique++] = children[i];
+            }
+        }
+        if (unique != children.length) {
+            children = Arrays.copyOf(children, unique);
+        }
+        int hash = type.ordinal() + 1;
+        for (FormulaNode child : children) {
+            hash = 31 * hash + child.hashCode();
+        }
+        hash = mix(hash);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (FormulaNode node = slots[slot]; node != null; node = slots[slot]) {
+            if (node.hashCode() == hash && node.getType() == type && Arrays.equals(node.children(), children)) {
+                // the children are unique, Arrays.equals compares them by reference
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, new FormulaNode(size, type, children, hash));
+    }
+
+    private FormulaNode insert(int slot, final FormulaNode node) {
+        slots[slot] = node;
+        if (++size * 2 > slots.length) {
+            FormulaNode[] old = slots;
+            slots = new FormulaNode[old.length << 1];
+            int mask = slots.length - 1;
+            for (FormulaNode n : old) {
+                if (n != null) {
+                    int s = n.hashCode() & mask;
+                    while (slots[s] != null) {
+                        s = (s + 1) & mask;
+                    }
+                    slots[s] = n;
+                }
+            }
+        }
+        return node;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,23 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentBatchesTest {
+
+    @Test
+    void columns() {
+        // the batches enumerate the assignments as binary numbers
+        long[] columns = AssignmentBatches.columns(2, new long[8]);
+        assertEquals(0xAAAAAAAAAAAAAAAAL, columns[0]);
+        assertEquals(0xFFFFFFFF00000000L, columns[5]);
+        assertEquals(0L, columns[6]);
+        assertEquals(-1L, columns[7]);
+        assertEquals(4, AssignmentBatches.batches(8));
+        assertEquals(1, AssignmentBatches.batches(3));
+        assertEquals(0xFF, AssignmentBatches.mask(3));
+        assertEquals(-1L, AssignmentBatches.mask(6));
+        assertThrows(IllegalStateException.class, () -> AssignmentBatches.batches(63));
+    }
+}
@@ -0,0 +1,155 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BDDManagerTest {
+    InfixLanguage language = new InfixLanguage();
+
+    @Test
+    void compile() {
+        try {
+            BDDManager manager = new BDDManager();
+            BDD distributed = manager.compile(language.parse("(P|Q)&(P|R)"));
+            BDD factored = manager.compile(language.parse("P|(Q&R)"));
+            // equivalent formulas have the same diagram
+            assertEquals(distributed, factored);
+            assertEquals(BigInteger.valueOf(5), factored.countModels());
+            assertTrue(manager.compile(language.parse("P|~P")).isValid());
+            assertFalse(manager.compile(language.parse("P&~P")).isConsistent());
+            assertTrue(manager.compile(language.parse("()")).isValid());
+            assertEquals(manager.constant(true), manager.compile(new Clause(eClauseType.CONJUNCTIVE)));
+            assertEquals(manager.variable("Q").not(), manager.compile(language.parse("~Q")));
+            // 3 nodes and the terminals, in the order P, Q, R
+            assertEquals(5, new BDDManager(BDDManager.Ordering.APPEARANCE).compile(language.parse("P|(Q&R)")).size());
+        } catch (LanguageFormatException | FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void operations() {
+        Random random = new Random(3);
+        try {
+            for (BDDManager.Ordering ordering : BDDManager.Ordering.values()) {
+                for (int test = 0; test < 50; test++) {
+                    Clause f = RandomFormulas.alternating(random, 10, 6);
+                    Clause g = RandomFormulas.alternating(random, 10, 6);
+                    Clause both = new Clause(eClauseType.CONJUNCTIVE);
+                    both.add(f);
+                    both.add(g);
+                    BDDManager manager = new BDDManager(ordering);
+                    BDD bddF = manager.compile(f);
+                    BDD bddG = manager.compile(g);
+                    // over the same variables as the manager
+                    CompiledFormula compiled = new CompiledFormula(both);
+                    assertEquals(compiled.getVariableCount(), manager.getVariableCount());
+                    assertEquals(BigInteger.valueOf(compiled.countModels()), bddF.and(bddG).countModels(), both.toString());
+                    assertEquals(bddF.and(bddG), manager.compile(both));
+                    Clause either = new Clause(eClauseType.DISJUNCTIVE);
+                    either.add(f);
+                    either.add(g);
+                    assertEquals(bddF.or(bddG), manager.compile(either));
+                    assertEquals(bddF.not(), manager.compile(f.negation()));
+                    assertEquals(bddF.xor(bddG), bddF.and(bddG.not()).or(bddF.not().and(bddG)));
+                    BigInteger total = BigInteger.ONE.shiftLeft(manager.getVariableCount());
+                    assertEquals(total, bddF.countModels().add(bddF.not().countModels()));
+                    // entailment
+                    assertTrue(bddF.and(bddG).entails(bddF));
+                    assertTrue(bddF.entails(bddF.or(bddG)));
+                    assertEquals(!bddF.and(bddG.not()).isConsistent(), bddF.entails(bddG));
+                    assertEquals(!bddF.and(bddG.not()).isConsistent(), bddF.entails(g));
+                    // restriction
+                    String name = manager.getVariable(random.nextInt(manager.getVariableCount()));
+                    BDD restricted = bddF.restrict(name, true);
+                    assertEquals(bddF.and(manager.variable(name)).countModels().shiftLeft(1), restricted.countModels());
+                    assertEquals(restricted, restricted.restrict(name, false));
+                    Clause model = bddF.anyModel();
+                    if (bddF.isConsistent()) {
+                        assertTrue(bddF.restrict(model).isValid());
+                        assertTrue(manager.compile(model).entails(bddF));
+                    } else {
+                        assertNull(model);
+                    }
+                }
+            }
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void ordering() {
+        // (a0&b0)|(a1&b1)|... is linear when the pairs are interleaved and exponential when all the a come first
+        try {
+            Clause formula = new Clause(eClauseType.DISJUNCTIVE);
+            for (int i = 0; i < 8; i++) {
+                formula.add(new Clause(eClauseType.CONJUNCTIVE,
+                        new Literal("a" + i, true),
+                        new Literal("b" + i, true)));
+            }
+            BDD force = new BDDManager(BDDManager.Ordering.FORCE).compile(formula);
+            BDD name = new BDDManager(BDDManager.Ordering.NAME).compile(formula);
+            assertEquals(18, force.size());
+            assertTrue(name.size() > 10 * force.size());
+            assertEquals(force.countModels(), name.countModels());
+            assertEquals("a0", name.getManager().getVariable(0));
+            assertEquals("a1", name.getManager().getVariable(1));
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void collect() {
+        Random random = new Random(17);
+        try {
+            // a small table, which is collected often
+            BDDManager manager = new BDDManager(BDDManager.Ordering.APPEARANCE, 64, 256);
+            Clause keptFormula = RandomFormulas.alternating(random, 12, 6);
+            BDD kept = manager.compile(keptFormula);
+            for (int i = 0; i < 200; i++) {
+                manager.compile(RandomFormulas.alternating(random, 12, 6)).and(kept).not();
+            }
+            assertTrue(manager.getCollections() > 0);
+            // the models are counted over the variables declared so far
+            BigInteger count = kept.countModels();
+            System.gc();
+            manager.collect();
+            // the kept diagram is intact, and the unique table still finds its nodes
+            assertEquals(count, kept.countModels());
+            assertEquals(kept, manager.compile(keptFormula));
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void handles() {
+        // queries which make no node still drop the references of the garbage collected BDDs
+        try {
+            BDDManager manager = new BDDManager();
+            BDD kb = manager.compile(language.parse("(P|Q)&(~P|R)"));
+            BDD query = manager.compile(language.parse("Q|R"));
+            for (int i = 0; i < 100000; i++) {
+                assertTrue(kb.and(query).entails(query));
+            }
+            for (int attempt = 0; attempt < 10 && manager.getRootCount() > 1000; attempt++) {
+                System.gc();
+                kb.not();
+            }
+            assertTrue(manager.getRootCount() <= 1000, String.valueOf(manager.getRootCount()));
+        } catch (LanguageFormatException | FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CNFCacheTest {
+    Clause formula;
+
+    @BeforeEach
+    void setUp() {
+        // (A&B)|C
+        formula = new Clause(eClauseType.DISJUNCTIVE,
+                new Clause(eClauseType.CONJUNCTIVE,
+                        new Literal("A", true),
+                        new Literal("B", true)),
+                new Literal("C", true));
+    }
+
+    @Test
+    void toCNF() {
+        try {
+            CNFCache cache = new CNFCache(16, 1000);
+            Clause cnf = cache.toCNF(formula);
+            assertEquals("((A|C)&(B|C))", cnf.toString());
+            assertEquals(1, cache.getMisses());
+            assertEquals(0, cache.getHits());
+            assertEquals(4, cache.getWeight());
+            // a structurally equal formula hits the cache
+            Clause same = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("C", true),
+                    new Clause(eClauseType.CONJUNCTIVE,
+                            new Literal("B", true),
+                            new Literal("A", true)));
+            assertEquals(cnf, cache.toCNF(same));
+            assertEquals(1, cache.getHits());
+            // the results are copies
+            cnf.add(new Literal("D", true));
+            assertEquals("((A|C)&(B|C))", cache.toCNF(formula).toString());
+            // a changed formula is another key
+            formula.add(new Literal("D", true));
+            assertEquals("((A|C|D)&(B|C|D))", cache.toCNF(formula).toString());
+            assertEquals(2, cache.getMisses());
+            // a formula in CNF is not cached
+            assertEquals("(A&B)", cache.toCNF(new Clause(eClauseType.CONJUNCTIVE,
+                    new Literal("A", true),
+                    new Literal("B", true))).toString());
+            assertEquals(2, cache.size());
+            assertNull(cache.toCNF(null));
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void eviction() {
+        try {
+            CNFCache cache = new CNFCache(2, 1000);
+            Clause[] formulas = new Clause[3];
+            for (int i = 0; i < formulas.length; i++) {
+                formulas[i] = new Clause(eClauseType.DISJUNCTIVE,
+                        new Clause(eClauseType.CONJUNCTIVE,
+                                new Literal("A" + i, true),
+                                new Literal("B", true)),
+                        new Literal("C", true));
+                cache.toCNF(formulas[i]);
+            }
+            // the least recently used is evicted
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getEvictions());
+            cache.toCNF(formulas[1]);
+            assertEquals(1, cache.getHits());
+            cache.toCNF(formulas[0]);
+            assertEquals(4, cache.getMisses());
+            assertEquals(2, cache.getEvictions());
+
+            // by weight
+            CNFCache small = new CNFCache(16, 6);
+            small.toCNF(formulas[0]);
+            small.toCNF(formulas[1]);
+            assertEquals(1, small.size());
+            assertEquals(4, small.getWeight());
+            small.clear();
+            assertEquals(0, small.size());
+            assertEquals(0, small.getWeight());
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanonicalOrderTest {
+    private static ILogicFormula randomFormula(final Random random, int depth) throws FormulaError {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return new Literal("abc".substring(random.nextInt(3)) + random.nextInt(3), random.nextBoolean());
+        }
+        Clause clause = new Clause(random.nextBoolean() ? eClauseType.CONJUNCTIVE : eClauseType.DISJUNCTIVE);
+        int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            clause.add(randomFormula(random, depth - 1));
+        }
+        return clause;
+    }
+
+    @Test
+    void compare() {
+        try {
+            Random random = new Random(7);
+            List<ILogicFormula> formulas = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                formulas.add(randomFormula(random, 3));
+            }
+            for (ILogicFormula a : formulas) {
+                for (ILogicFormula b : formulas) {
+                    assertEquals(Integer.signum(a.toString().compareTo(b.toString())),
+                            Integer.signum(CanonicalOrder.INSTANCE.compare(a, b)), a + " " + b);
+                }
+            }
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void compare_prefix() {
+        Literal p = new Literal("P", true);
+        Literal p1 = new Literal("P1", true);
+        Clause clause = new Clause(eClauseType.DISJUNCTIVE, p);
+        assertTrue(CanonicalOrder.INSTANCE.compare(p, p1) < 0);
+        assertTrue(CanonicalOrder.INSTANCE.compare(p1, p) > 0);
+        assertTrue(CanonicalOrder.INSTANCE.compare(clause, p) < 0);
+        assertTrue(CanonicalOrder.INSTANCE.compare(p.negation(), p) > 0);
+        assertEquals(0, CanonicalOrder.INSTANCE.compare(clause, new Clause(eClauseType.CONJUNCTIVE, p)));
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.Iterator;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -76,6 +77,29 @@ class ClauseTest {
         }
     }
 
+    @Test
+    void toCNF_alreadyCNF() {
+        try {
+            // a formula in CNF is copied as the conversion would do it
+            clause = new Clause(eClauseType.CONJUNCTIVE,
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("A", true)),
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("B", true),
+                            new Literal("C", false)),
+                    new Clause(eClauseType.DISJUNCTIVE),
+                    new Literal("D", true));
+            assertTrue(clause.isCNF());
+            Clause cnf = clause.toCNF();
+            assertEquals("((B|~C)&A&D)", cnf.toString());
+            cnf.add(new Literal("E", true));
+            assertEquals(4, clause.size());
+        } catch (FormulaError formulaError) {
+            formulaError.printStackTrace();
+            fail(formulaError);
+        }
+    }
+
     @Test
     void contains() {
         assertFalse(clause.contains(literal));
@@ -201,6 +225,41 @@ class ClauseTest {
         }
     }
 
+    @Test
+    void test_clone_copyOnWrite() {
+        try {
+            clause.add(literal);
+            Clause another = clause.clone();
+            assertEquals(clause, another);
+            another.add(new Literal("other", true));
+            assertEquals(1, clause.size());
+            assertEquals(2, another.size());
+            clause.add(new Literal("third", false));
+            assertEquals("(other|test)", another.toString());
+            assertEquals("(test|~third)", clause.toString());
+            // a copy of a copy
+            Clause third = another.clone().clone();
+            another.setType(eClauseType.CONJUNCTIVE);
+            assertEquals("(other|test)", third.toString());
+            assertEquals("(other&test)", another.toString());
+            // literals are immutable and shared
+            assertSame(literal, literal.clone());
+            // the elements shared with the copies cannot be removed through an iterator
+            Iterator<ILogicFormula> it = third.iterator();
+            it.next();
+            assertThrows(UnsupportedOperationException.class, it::remove);
+            assertEquals(2, another.size());
+            // a clause built as it is keeps a nested clause of its own type
+            Clause nested = new Clause(eClauseType.DISJUNCTIVE);
+            nested.addAsIs(another.negation());
+            nested.addAsIs(new Clause(eClauseType.DISJUNCTIVE));
+            assertEquals("(()|(~other|~test))", nested.toString());
+        } catch (FormulaError formulaError) {
+            formulaError.printStackTrace();
+            fail(formulaError);
+        }
+    }
+
     @Test
     void test_hashCode() {
         assertEquals(clause.hashCode(), clause.hashCode());
@@ -257,6 +316,30 @@ class ClauseTest {
         }
     }
 
+    @Test
+    void appendTo() {
+        try {
+            Clause formula = new Clause(eClauseType.CONJUNCTIVE,
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", false),
+                            new Literal("Q", true)),
+                    new Literal("P", true));
+            StringBuilder builder = new StringBuilder("formula: ");
+            formula.appendTo(builder);
+            assertEquals("formula: ((Q|~R)&P)", builder.toString());
+            assertEquals("((Q|~R)&P)", formula.toString());
+            assertEquals(Arrays.asList(new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("R", false),
+                    new Literal("Q", true)), new Literal("P", true)), formula.getOrderedElements());
+            // the order is computed again after a change
+            formula.add(new Literal("A", false));
+            assertEquals("((Q|~R)&P&~A)", formula.toString());
+        } catch (FormulaError | java.io.IOException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
     @Test
     void test_simplified() {
         try {
@@ -0,0 +1,160 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledFormulaTest {
+    InfixLanguage language = new InfixLanguage();
+
+    /**
+     * value of the formula when the variables of the names are true
+     */
+    static boolean naive(final ILogicFormula formula, final CompiledFormula compiled, long assignment) {
+        if (formula instanceof Literal) {
+            Literal literal = (Literal) formula;
+            return ((assignment >>> compiled.indexOf(literal.getName())) & 1) == (literal.getValue() ? 1 : 0);
+        }
+        Clause clause = (Clause) formula;
+        if (clause.size() == 0) {
+            return true;
+        }
+        boolean and = clause.getType() == eClauseType.CONJUNCTIVE;
+        for (ILogicFormula element : clause) {
+            if (naive(element, compiled, assignment) != and) {
+                return !and;
+            }
+        }
+        return and;
+    }
+
+    @Test
+    void evaluate() {
+        try {
+            Clause formula = language.parse("(P|~Q)&(R|(P&Q))");
+            CompiledFormula compiled = new CompiledFormula(formula);
+            assertEquals(3, compiled.getVariableCount());
+            assertEquals("P", compiled.getVariable(0));
+            assertEquals(2, compiled.indexOf("R"));
+            assertEquals(-1, compiled.indexOf("S"));
+            // P, Q, R: only Q and R true
+            assertFalse(compiled.evaluate(new long[]{0b110}));
+            assertTrue(compiled.evaluate(new long[]{0b100}));
+            assertTrue(compiled.evaluate(new long[]{0b011}));
+            assertFalse(compiled.evaluate(new long[0]));
+            long[] assignment = compiled.assignment(language.parse("P&~Q&R&S"));
+            assertArrayEquals(new long[]{0b101}, assignment);
+            assertEquals(language.parse("P&~Q&R"), compiled.model(assignment));
+            // models: 011, 100, 101, 111
+            assertEquals(4, compiled.countModels());
+            assertArrayEquals(new long[]{0b011}, compiled.findModel());
+            // 8 assignments at once, assignment j gives bit v of j to variable v
+            assertEquals(0b10111000, compiled.evaluateParallel(new long[]{0b10101010, 0b11001100, 0b11110000}));
+        } catch (LanguageFormatException | FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void constants() {
+        try {
+            assertTrue(new CompiledFormula(new Clause(eClauseType.CONJUNCTIVE)).evaluate(new long[0]));
+            // an empty disjunction is true, as in the CNF conversion
+            assertTrue(new CompiledFormula(new Clause(eClauseType.DISJUNCTIVE)).evaluate(new long[0]));
+            assertEquals(1, new CompiledFormula(new Clause(eClauseType.CONJUNCTIVE)).countModels());
+            CompiledFormula contradiction = new CompiledFormula(language.parse("P&~P"));
+            assertEquals(0, contradiction.countModels());
+            assertNull(contradiction.findModel());
+            // an empty sub-formula is dropped as Clause.add does, whatever its type
+            Clause formula = new Clause(eClauseType.DISJUNCTIVE, new Literal("P", true), new Clause(eClauseType.CONJUNCTIVE));
+            assertEquals(1, new CompiledFormula(formula).countModels());
+            formula = new Clause(eClauseType.DISJUNCTIVE, new Literal("P", true), new Clause(eClauseType.DISJUNCTIVE));
+            assertEquals(1, new CompiledFormula(formula).countModels());
+            formula = new Clause(eClauseType.CONJUNCTIVE, new Literal("P", true), new Clause(eClauseType.DISJUNCTIVE));
+            assertEquals(1, new CompiledFormula(formula).countModels());
+        } catch (LanguageFormatException | FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void variables() {
+        try {
+            CompiledFormula compiled = new CompiledFormula(language.parse("Q|R"), Arrays.asList("R", "S"));
+            assertEquals(3, compiled.getVariableCount());
+            assertEquals("R", compiled.getVariable(0));
+            assertEquals("S", compiled.getVariable(1));
+            assertEquals("Q", compiled.getVariable(2));
+            assertTrue(compiled.evaluate(new long[]{0b001}));
+            assertFalse(compiled.evaluate(new long[]{0b010}));
+            // S is free
+            assertEquals(6, compiled.countModels());
+            // a name which is interned after the formula is not in it
+            Literal later = new Literal("CompiledFormulaTest.variables", true);
+            assertEquals(-1, compiled.indexOf(later.getName()));
+            assertArrayEquals(new long[]{0b100}, compiled.assignment(Arrays.<ILogicFormula>asList(new Literal("Q", true), later)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> new CompiledFormula(language.parse("Q"), Arrays.asList("R", "R")));
+        } catch (LanguageFormatException | FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void shared() {
+        try {
+            // the same disjunction in two conjunctions is compiled once
+            Clause formula = language.parse("((P|Q)&R)|((P|Q)&S)");
+            CompiledFormula compiled = new CompiledFormula(formula);
+            assertEquals(4, compiled.getNodeCount());
+        } catch (LanguageFormatException | FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void random() {
+        Random random = new Random(11);
+        try {
+            for (int test = 0; test < 200; test++) {
+                Clause formula = RandomFormulas.nested(random, 8, 3);
+                CompiledFormula compiled = new CompiledFormula(formula);
+                int n = compiled.getVariableCount();
+                long count = 0;
+                for (long assignment = 0; assignment < (1L << n); assignment++) {
+                    boolean expected = naive(formula, compiled, assignment);
+                    assertEquals(expected, compiled.evaluate(new long[]{assignment}), formula.toString());
+                    count += expected ? 1 : 0;
+                }
+                assertEquals(count, compiled.countModels(), formula.toString());
+                // the CNF has the same models
+                Clause cnf = formula.toCNF();
+                assertEquals(count, new CompiledFormula(cnf, Arrays.asList(variables(compiled))).countModels(), cnf.toString());
+                long[] model = compiled.findModel();
+                if (count == 0) {
+                    assertNull(model);
+                } else {
+                    assertTrue(compiled.evaluate(model));
+                }
+            }
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    static String[] variables(final CompiledFormula compiled) {
+        String[] variables = new String[compiled.getVariableCount()];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = compiled.getVariable(i);
+        }
+        return variables;
+    }
+}
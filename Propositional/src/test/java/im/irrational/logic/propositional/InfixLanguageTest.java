@@ -0,0 +1,115 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InfixLanguageTest {
+    InfixLanguage language;
+
+    @BeforeEach
+    void setUp() {
+        language = new InfixLanguage();
+    }
+
+    @Test
+    void parse() {
+        try {
+            assertEquals(new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("P", true),
+                    new Literal("Q", false)), language.parse("P | ~Q"));
+            assertEquals(new Clause(eClauseType.CONJUNCTIVE,
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("P", true),
+                            new Literal("Q", false)),
+                    new Literal("R", true)), language.parse("(P|~Q)&R"));
+            assertEquals(new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("P12", true)), language.parse("(P12)"));
+            assertEquals(new Clause(eClauseType.DISJUNCTIVE), language.parse("()"));
+        } catch (LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void parse_precedence() {
+        try {
+            // ~ before & before |
+            assertEquals("((P&~Q)|(R&S))", language.parse("P & ~Q | R & S").toString());
+            assertEquals("((Q&R)|P|S)", language.parse("P|Q&R|S").toString());
+            assertEquals("((P|Q)&(R|S))", language.parse("(P|Q)&(R|S)").toString());
+            // nested operators of the same type are flattened
+            assertEquals("(P|Q|R|S)", language.parse("P|(Q|(R|S))").toString());
+        } catch (LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void parse_negation() {
+        try {
+            assertEquals("(P)", language.parse("~~P").toString());
+            assertEquals("(~P|~Q)", language.parse("~(P&Q)").toString());
+            assertEquals("((P|~R)&~Q)", language.parse("~(~P&R|Q)").toString());
+        } catch (LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void round_trip() {
+        try {
+            Clause formula = new Clause(eClauseType.CONJUNCTIVE,
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("R", false),
+                            new Literal("P", false),
+                            new Literal("Q", false)),
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Clause(eClauseType.CONJUNCTIVE,
+                                    new Literal("P", true),
+                                    new Literal("S", true)),
+                            new Clause(eClauseType.CONJUNCTIVE,
+                                    new Literal("Q", true),
+                                    new Literal("S", true)),
+                            new Literal("R", false)));
+            String str = language.toString(formula);
+            assertEquals(formula, language.parse(str));
+            assertEquals(str, language.parse(str).toString());
+            // the names are interned
+            Literal literal = (Literal) language.parse("  new_name ").iterator().next();
+            assertEquals(SymbolTable.getGlobal().lookup("new_name"), literal.getId());
+            // the cache grows
+            StringBuilder builder = new StringBuilder("x0");
+            for (int i = 1; i < 1000; i++) {
+                builder.append('|').append('x').append(i);
+            }
+            assertEquals(1000, language.parse(builder).size());
+            assertEquals(1000, language.parse(builder.toString()).size());
+            language.clearCache();
+            assertEquals(1000, language.parse(builder).size());
+        } catch (LanguageFormatException e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void parse_errors() {
+        LanguageFormatException e = assertThrows(LanguageFormatException.class, () -> language.parse("(P&Q"));
+        assertEquals(4, e.getPosition());
+        assertEquals("')' expected at position 4", e.getMessage());
+        e = assertThrows(LanguageFormatException.class, () -> language.parse("P & | Q"));
+        assertEquals(4, e.getPosition());
+        e = assertThrows(LanguageFormatException.class, () -> language.parse("P Q"));
+        assertEquals(2, e.getPosition());
+        e = assertThrows(LanguageFormatException.class, () -> language.parse("P)"));
+        assertEquals(1, e.getPosition());
+        e = assertThrows(LanguageFormatException.class, () -> language.parse("~"));
+        assertEquals(1, e.getPosition());
+        assertThrows(LanguageFormatException.class, () -> language.parse(""));
+    }
+}
@@ -28,6 +28,21 @@ class LiteralTest {
         assertEquals("test", literal.getName());
     }
 
+    @Test
+    void nullName() {
+        assertThrows(IllegalArgumentException.class, () -> new Literal((String) null, true));
+        assertEquals(-1, SymbolTable.getGlobal().lookup(null));
+    }
+
+    @Test
+    void getId() {
+        Literal literal = new Literal("test", true);
+        assertEquals(literal.getId(), literal.negation().getId());
+        assertEquals(literal.getId(), new Literal("test", false).getId());
+        assertNotEquals(literal.getId(), new Literal("anotherTest", true).getId());
+        assertEquals(literal, new Literal(literal.getId(), true));
+    }
+
     @Test
     void test_toString() {
         Literal literal = new Literal("test", true);
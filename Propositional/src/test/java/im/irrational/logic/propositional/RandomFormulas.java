@@ -0,0 +1,58 @@
+package im.irrational.logic.propositional;
+
+import java.util.Random;
+
+/**
+ * random formulas of the tests, over the variables V0, V1, ...; the same random generator gives the same formulas
+ */
+public final class RandomFormulas {
+    private RandomFormulas() {
+    }
+
+    public static Literal literal(final Random random, int variables) {
+        return new Literal("V" + random.nextInt(variables), random.nextBoolean());
+    }
+
+    /**
+     * @param width maximum number of elements of the root, a sub-formula has at most 3
+     * @return a formula which alternates conjunctions and disjunctions down to depth 3, starting with a conjunction
+     */
+    public static Clause alternating(final Random random, int variables, int width) throws FormulaError {
+        return alternating(random, variables, width, 0);
+    }
+
+    private static Clause alternating(final Random random, int variables, int width, int depth) throws FormulaError {
+        Clause clause = new Clause(depth % 2 == 0 ? eClauseType.CONJUNCTIVE : eClauseType.DISJUNCTIVE);
+        int size = 1 + random.nextInt(depth == 0 ? width : 3);
+        for (int i = 0; i < size; i++) {
+            if (depth < 3 && random.nextInt(3) > 0) {
+                clause.add(alternating(random, variables, width, depth + 1));
+            } else {
+                clause.add(literal(random, variables));
+            }
+        }
+        return clause;
+    }
+
+    /**
+     * @param depth number of levels below the root
+     * @return a formula of clauses of random types, which keeps the nesting that {@link Clause#add(ILogicFormula)}
+     * flattens; only the root may be empty
+     */
+    public static Clause nested(final Random random, int variables, int depth) throws FormulaError {
+        return nested(random, variables, depth, 0);
+    }
+
+    private static Clause nested(final Random random, int variables, int depth, int min) throws FormulaError {
+        Clause clause = new Clause(random.nextBoolean() ? eClauseType.CONJUNCTIVE : eClauseType.DISJUNCTIVE);
+        int size = min + random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            if (depth > 0 && random.nextInt(3) == 0) {
+                clause.addAsIs(nested(random, variables, depth - 1, 1));
+            } else {
+                clause.add(literal(random, variables));
+            }
+        }
+        return clause;
+    }
+}
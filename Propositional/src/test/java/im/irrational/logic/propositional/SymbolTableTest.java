@@ -0,0 +1,53 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableTest {
+    SymbolTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new SymbolTable();
+    }
+
+    @Test
+    void intern() {
+        assertEquals(0, table.intern("a"));
+        assertEquals(1, table.intern("b"));
+        assertEquals(0, table.intern("a"));
+        assertEquals(0, table.intern(new String("a")));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void lookup() {
+        assertEquals(-1, table.lookup("a"));
+        table.intern("a");
+        assertEquals(0, table.lookup("a"));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void getName() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, table.intern("v" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("v" + i, table.getName(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getName(1000));
+    }
+
+    @Test
+    void global() {
+        int id = SymbolTable.getGlobal().intern("SymbolTableTest");
+        Literal literal = new Literal("SymbolTableTest", false);
+        assertEquals(id, literal.getId());
+        assertEquals(literal, new Literal(id, false));
+        assertEquals(literal.hashCode(), new Literal(id, false).hashCode());
+        assertEquals("SymbolTableTest", new Literal(id, true).getName());
+    }
+}
@@ -0,0 +1,98 @@
+package im.irrational.logic.propositional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniqueTableTest {
+    UniqueTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new UniqueTable();
+    }
+
+    @Test
+    void literal() {
+        FormulaNode p = table.literal(new Literal("P", true));
+        assertSame(p, table.literal(new Literal("P", true)));
+        assertNotSame(p, table.literal(new Literal("P", false)));
+        assertEquals(new Literal("P", true), p.getLiteral());
+        assertEquals("~P", table.literal(new Literal("P", false)).toString());
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void clause() {
+        FormulaNode p = table.literal(new Literal("P", true));
+        FormulaNode q = table.literal(new Literal("Q", false));
+        FormulaNode r = table.literal(new Literal("R", true));
+        FormulaNode pq = table.clause(eClauseType.DISJUNCTIVE, p, q);
+        assertSame(pq, table.clause(eClauseType.DISJUNCTIVE, q, p, q));
+        assertNotSame(pq, table.clause(eClauseType.CONJUNCTIVE, p, q));
+        // flattened as Clause.add
+        FormulaNode pqr = table.clause(eClauseType.DISJUNCTIVE, pq, r);
+        assertSame(pqr, table.clause(eClauseType.DISJUNCTIVE, p, q, r));
+        assertSame(pq, table.clause(eClauseType.DISJUNCTIVE, pq, table.clause(eClauseType.CONJUNCTIVE)));
+        assertTrue(pqr.contains(q));
+        assertFalse(pq.contains(r));
+        assertTrue(pqr.containsAll(pq));
+        assertFalse(pq.containsAll(pqr));
+        assertEquals("(P|R|~Q)", pqr.toString());
+    }
+
+    @Test
+    void of() {
+        try {
+            Clause formula = new Clause(eClauseType.CONJUNCTIVE,
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("P", true),
+                            new Literal("Q", false)),
+                    new Clause(eClauseType.DISJUNCTIVE,
+                            new Literal("Q", false),
+                            new Literal("P", true)),
+                    new Literal("R", true));
+            FormulaNode node = table.of(formula);
+            assertSame(node, table.of(formula.clone()));
+            assertEquals(2, node.size());
+            assertEquals(formula, table.toFormula(node));
+            assertEquals(formula.toString(), node.toString());
+            FormulaNode negation = table.negation(node);
+            assertEquals(formula.negation(), table.toFormula(negation));
+            assertSame(node, table.negation(negation));
+            // normalized as Clause.add, which flattens a clause of the same type and drops an empty one
+            Clause nested = new Clause(eClauseType.DISJUNCTIVE,
+                    new Literal("P", true),
+                    new Clause(eClauseType.DISJUNCTIVE, new Literal("Q", false)),
+                    new Clause(eClauseType.CONJUNCTIVE));
+            Clause flat = new Clause(eClauseType.DISJUNCTIVE);
+            for (ILogicFormula element : nested) {
+                flat.add(element);
+            }
+            assertNotEquals(nested, flat);
+            assertSame(table.of(flat), table.of(nested));
+            assertEquals(2, table.of(nested).size());
+        } catch (FormulaError e) {
+            e.printStackTrace();
+            fail(e);
+        }
+    }
+
+    @Test
+    void grow() {
+        FormulaNode previous = table.clause(eClauseType.CONJUNCTIVE);
+        for (int i = 0; i < 1000; i++) {
+            previous = table.clause(eClauseType.DISJUNCTIVE, table.literal(new Literal("x" + i, true)),
+                    table.clause(eClauseType.CONJUNCTIVE, previous));
+        }
+        int size = table.size();
+        FormulaNode again = table.clause(eClauseType.CONJUNCTIVE);
+        for (int i = 0; i < 1000; i++) {
+            again = table.clause(eClauseType.DISJUNCTIVE, table.literal(new Literal("x" + i, true)),
+                    table.clause(eClauseType.CONJUNCTIVE, again));
+        }
+        assertSame(previous, again);
+        assertEquals(size, table.size());
+    }
+}